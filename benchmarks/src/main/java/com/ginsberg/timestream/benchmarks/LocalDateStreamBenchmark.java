@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream.benchmarks;
+
+import com.ginsberg.timestream.LocalDateStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.chrono.ChronoLocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for LocalDateStream, stepping by days.
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(Ranges.ELEMENTS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocalDateStreamBenchmark {
+
+    @Param({"true", "false"})
+    public boolean forward;
+
+    @Param({"true", "false"})
+    public boolean until;
+
+    private LocalDate from;
+    private LocalDate to;
+    private long step;
+
+    @Setup
+    public void setUp() {
+        from = LocalDate.of(2000, 1, 1);
+        to = from.plusDays(Ranges.stepsToEnd(forward, until));
+        step = forward ? 1 : -1;
+    }
+
+    private LocalDateStream builder() {
+        final LocalDateStream builder = LocalDateStream.from(from).every(1, ChronoUnit.DAYS);
+        return until ? builder.until(to) : builder.to(to);
+    }
+
+    @Benchmark
+    public int loop() {
+        int result = 0;
+        for (LocalDate date = from; Ranges.<ChronoLocalDate>inRange(date, to, forward, until); date = date.plusDays(step)) {
+            result += date.hashCode();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int sequential() {
+        return builder().stream().mapToInt(LocalDate::hashCode).sum();
+    }
+
+    @Benchmark
+    public int parallel() {
+        return builder().parallelStream().mapToInt(LocalDate::hashCode).sum();
+    }
+
+    @Benchmark
+    public long epochDays() {
+        return builder().epochDayStream().sum();
+    }
+
+    @Benchmark
+    public Object[] streamToArray() {
+        return builder().stream().toArray();
+    }
+
+    @Benchmark
+    public LocalDate[] toArray() {
+        return builder().toArray();
+    }
+
+    @Benchmark
+    public long[] toEpochDayArray() {
+        return builder().toEpochDayArray();
+    }
+}
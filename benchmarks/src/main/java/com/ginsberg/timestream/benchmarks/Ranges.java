@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream.benchmarks;
+
+/**
+ * Settings shared by every benchmark. Each benchmark produces exactly ELEMENTS
+ * elements per invocation, so that results can be read as a cost per element.
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class Ranges {
+    static final int ELEMENTS = 10_000;
+
+    private Ranges() {
+    }
+
+    /**
+     * The distance from the start of a range to its end point, in steps, which is
+     * one step further away for exclusive end points.
+     *
+     * @param forward true if the range moves forward through time.
+     * @param until   true if the end point is exclusive.
+     * @return The signed number of steps to the end point.
+     */
+    static int stepsToEnd(final boolean forward,
+                          final boolean until) {
+        final int steps = until ? ELEMENTS : ELEMENTS - 1;
+        return forward ? steps : 0 - steps;
+    }
+
+    /**
+     * The end test that a hand-written loop would use, for comparison with the builders.
+     *
+     * @param value   The candidate element.
+     * @param to      The end point.
+     * @param forward true if the range moves forward through time.
+     * @param until   true if the end point is exclusive.
+     * @param <T>     The type of element.
+     * @return true if the loop should go on.
+     */
+    static <T extends Comparable<? super T>> boolean inRange(final T value,
+                                                             final T to,
+                                                             final boolean forward,
+                                                             final boolean until) {
+        final int compare = value.compareTo(to);
+        if (forward) {
+            return until ? compare < 0 : compare <= 0;
+        }
+        return until ? compare > 0 : compare >= 0;
+    }
+}
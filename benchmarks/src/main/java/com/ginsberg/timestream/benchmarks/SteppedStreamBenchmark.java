@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ginsberg.timestream.benchmarks;
+
+import com.ginsberg.timestream.LocalDateStream;
+import com.ginsberg.timestream.LocalDateTimeStream;
+import com.ginsberg.timestream.ZonedDateTimeStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for series that are stepped through one element at a time rather than indexed,
+ * such as months from the 31st, which are clamped to the end of shorter months, and days in a
+ * zone with daylight saving time, which aren't all the same length. On Java 9 and later the
+ * multi-release jar steps with the JDK's bounded Stream.iterate(). The Java 8 methods run the
+ * same series in a JVM with multi-release jars turned off, which falls back to TakeWhile, so
+ * the difference between the two is the cost per element of the Java 8 path.
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(Ranges.ELEMENTS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SteppedStreamBenchmark {
+
+    private static final String JAVA_8 = "-Djdk.util.jar.enableMultiRelease=false";
+
+    private LocalDate date;
+    private LocalDateTime dateTime;
+    private ZonedDateTime zoned;
+
+    @Setup
+    public void setUp() {
+        date = LocalDate.of(2000, 1, 31);
+        dateTime = date.atStartOfDay();
+        zoned = dateTime.atZone(ZoneId.of("America/New_York"));
+    }
+
+    private LocalDateStream monthlyDates() {
+        return LocalDateStream.from(date).until(Ranges.ELEMENTS, ChronoUnit.MONTHS).every(1, ChronoUnit.MONTHS);
+    }
+
+    private LocalDateTimeStream monthlyDateTimes() {
+        return LocalDateTimeStream.from(dateTime).until(Ranges.ELEMENTS, ChronoUnit.MONTHS).every(1, ChronoUnit.MONTHS);
+    }
+
+    private ZonedDateTimeStream dailyZoned() {
+        return ZonedDateTimeStream.from(zoned).until(Ranges.ELEMENTS, ChronoUnit.DAYS).every(1, ChronoUnit.DAYS);
+    }
+
+    @Benchmark
+    public int dates() {
+        return monthlyDates().stream().mapToInt(LocalDate::hashCode).sum();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = JAVA_8)
+    public int datesJava8() {
+        return monthlyDates().stream().mapToInt(LocalDate::hashCode).sum();
+    }
+
+    @Benchmark
+    public int dateTimes() {
+        return monthlyDateTimes().stream().mapToInt(LocalDateTime::hashCode).sum();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = JAVA_8)
+    public int dateTimesJava8() {
+        return monthlyDateTimes().stream().mapToInt(LocalDateTime::hashCode).sum();
+    }
+
+    @Benchmark
+    public int zonedDays() {
+        return dailyZoned().stream().mapToInt(ZonedDateTime::hashCode).sum();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = JAVA_8)
+    public int zonedDaysJava8() {
+        return dailyZoned().stream().mapToInt(ZonedDateTime::hashCode).sum();
+    }
+}
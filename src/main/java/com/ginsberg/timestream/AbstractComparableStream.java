@@ -24,14 +24,34 @@
 
 package com.ginsberg.timestream;
 
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
-import static java.util.stream.Stream.iterate;
-
 /**
  * Provides generic support for open and closed-ended ranges of objects
  * that can be compared.
@@ -40,9 +60,15 @@ import static java.util.stream.Stream.iterate;
  * @author Todd Ginsberg (todd@ginsberg.com)
  */
 abstract class AbstractComparableStream<T extends Comparable<? super T>> {
+    /**
+     * The largest array that can be reliably allocated, as some VMs reserve header words.
+     */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
     private final T from;
     private T to;
     private boolean closedRange = false;
+    private boolean relative = false;
 
     AbstractComparableStream(final T from) {
         Objects.requireNonNull(from);
@@ -59,6 +85,51 @@ abstract class AbstractComparableStream<T extends Comparable<? super T>> {
         this.closedRange = true;
     }
 
+    /**
+     * Remember that the start of this stream was taken from the clock, so anything
+     * that caches the stream can anchor it to its day.
+     */
+    void setRelative() {
+        this.relative = true;
+    }
+
+    boolean isRelative() {
+        return relative;
+    }
+
+    /**
+     * Give a copy of this stream the same kind of end point, moved by the given function.
+     *
+     * @param copy  A non-null stream, with the same step as this one.
+     * @param shift Moves the end point of this stream to the end point of the copy.
+     * @param <S>   The type of stream.
+     * @return The copy.
+     */
+    <S extends AbstractComparableStream<T>> S withEndOf(final S copy,
+                                                         final UnaryOperator<T> shift) {
+        final T end = to == null ? null : shift.apply(to);
+        if (closedRange) {
+            copy.setUntil(end);
+        } else {
+            copy.setTo(end);
+        }
+        return copy;
+    }
+
+    /**
+     * Describe this stream for a SeriesCache. Two streams with equal keys produce the same elements.
+     *
+     * @param amount The number of units in each step.
+     * @param unit   The unit of each step, along with anything else that decides where the steps fall.
+     * @param zone   The zone of the elements, or null if they don't have one.
+     * @return A non-null key.
+     */
+    List<Object> seriesKey(final long amount,
+                           final Object unit,
+                           final ZoneId zone) {
+        return Arrays.asList(getClass(), from, to, closedRange, amount, unit, zone);
+    }
+
     boolean isForward() {
         return to == null || from.compareTo(to) <= 0;
     }
@@ -67,12 +138,60 @@ abstract class AbstractComparableStream<T extends Comparable<? super T>> {
         return from;
     }
 
+    T getTo() {
+        return to;
+    }
+
     /**
      * Provide an operator that returns the next value in the series.
      * @return A non-null UnaryOperator
      */
     abstract UnaryOperator<T> next();
 
+    /**
+     * Determine if the current step is fixed, meaning that the element at any index
+     * can be calculated directly from the start of the series, and will equal the
+     * element reached by applying next() that many times.
+     *
+     * @return true if indexer() may be used for this series.
+     */
+    abstract boolean hasFixedStep();
+
+    /**
+     * Provide a function that calculates the element at a given index in the series.
+     * Only valid when hasFixedStep() is true.
+     *
+     * @return A non-null LongFunction
+     */
+    abstract LongFunction<T> indexer();
+
+    /**
+     * Estimate the index of the given value in the series, by counting the number
+     * of whole steps between the start of the series and the value. This may be
+     * off by one in either direction and is corrected by the caller.
+     *
+     * @param value A non-null value in the direction of the series.
+     * @return A non-negative estimate of the index of the value.
+     */
+    abstract long estimateIndexOf(T value);
+
+    /**
+     * Provide a Spliterator over the occurrences of a recurrence rule, for series that are
+     * generated by the rule rather than by stepping from one element to the next.
+     *
+     * @return A new RecurrenceSpliterator, or null if the series doesn't follow a rule.
+     */
+    RecurrenceSpliterator<T> recurrenceSpliterator() {
+        return null;
+    }
+
+    /**
+     * Copy this builder, with its end point and step, so that the copy doesn't change along with it.
+     *
+     * @return A new, non-null builder of the same type.
+     */
+    abstract AbstractComparableStream<T> copy();
+
     /**
      * Produce a stream between the dates given, skipping
      * by the amount specified.
@@ -80,12 +199,602 @@ abstract class AbstractComparableStream<T extends Comparable<? super T>> {
      * @return A non-null stream of time/date.
      */
     public Stream<T> stream() {
-        return StreamSupport.stream(
-                TakeWhile.of(
-                        iterate(from, next()).spliterator(),
-                        canTake()),
+        return stream(false);
+    }
+
+    /**
+     * Produce a parallel stream between the dates given, skipping
+     * by the amount specified.
+     *
+     * @return A non-null, parallel stream of time/date.
+     * @see #stream(boolean)
+     */
+    public Stream<T> parallelStream() {
+        return stream(true);
+    }
+
+    /**
+     * Produce a sequential or parallel stream between the dates given, skipping
+     * by the amount specified.
+     *
+     * Parallel streams over bounded ranges with a fixed step split evenly by index.
+     * Bounded ranges without a fixed step (for example, monthly from the 31st) are
+     * generated up front so they can split evenly as well. Recurrence rules split by
+     * their periods. Other unbounded streams can only split by batching elements as
+     * they are generated.
+     *
+     * @param parallel true to produce a parallel stream.
+     * @return A non-null stream of time/date.
+     */
+    public Stream<T> stream(final boolean parallel) {
+        return StreamSupport.stream(parallel ? parallelSpliterator() : spliterator(), parallel);
+    }
+
+    /**
+     * Evaluate a parallel stream pipeline on the given pool rather than the common pool.
+     *
+     * A parallel stream runs its tasks in the pool that the terminal operation was
+     * started from, so the pipeline is applied (and must be terminated) from within
+     * a task submitted to the pool. This method blocks until the result is ready.
+     * <p>
+     * Terminate the pipeline with an operation that consumes every element, such as
+     * collect() or forEach(). Bounded streams with a fixed step know their size, so
+     * count() may return it without running map() or peek() at all.
+     *
+     * <pre>
+     * {@code
+     * final List<Frame> frames = LocalDateTimeStream
+     *     .from(start)
+     *     .until(end)
+     *     .every(1, ChronoUnit.HOURS)
+     *     .parallelStream(renderPool, s -> s.map(this::render).collect(Collectors.toList()));
+     * }
+     * </pre>
+     *
+     * @param pool     The non-null pool to run the stream in.
+     * @param pipeline A non-null function that builds and terminates the stream.
+     * @param <R>      The type of result produced by the pipeline.
+     * @return The result of the pipeline.
+     */
+    public <R> R parallelStream(final ForkJoinPool pool,
+                                final Function<? super Stream<T>, ? extends R> pipeline) {
+        Objects.requireNonNull(pool);
+        Objects.requireNonNull(pipeline);
+        return pool.submit(() -> pipeline.apply(parallelStream())).join();
+    }
+
+    /**
+     * Produce a stream that begins at the given index of this one, as if by
+     * stream().skip(index). When the step is fixed, the first element is
+     * calculated directly, so skipping costs the same no matter how far we skip.
+     *
+     * @param index The non-negative index of the first element of the stream.
+     * @return A non-null stream of time/date.
+     * @throws IllegalArgumentException if index is negative.
+     */
+    public Stream<T> streamFrom(final long index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Index must not be negative");
+        }
+        return StreamSupport.stream(spliterator(index), false);
+    }
+
+    /**
+     * Get the element at the given index of the stream. When the step is fixed this
+     * is calculated directly, otherwise it is found by walking the stream.
+     *
+     * @param index The non-negative index of the element to get.
+     * @return The non-null element at the given index.
+     * @throws IndexOutOfBoundsException if index is negative or past the end of the stream.
+     */
+    public T get(final long index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index must not be negative: " + index);
+        }
+        if (hasFixedStep()) {
+            final T value;
+            try {
+                value = indexer().apply(index);
+            } catch (DateTimeException | ArithmeticException e) {
+                if (to == null) {
+                    throw e;
+                }
+                throw new IndexOutOfBoundsException("Index is past the end of the stream: " + index);
+            }
+            if (!canTake().test(value)) {
+                throw new IndexOutOfBoundsException("Index is past the end of the stream: " + index);
+            }
+            return value;
+        }
+        return streamFrom(index)
+                .findFirst()
+                .orElseThrow(() -> new IndexOutOfBoundsException("Index is past the end of the stream: " + index));
+    }
+
+    /**
+     * Freeze this builder into a plan, which can be shared between threads and streamed any number
+     * of times. Later changes to this builder don't change the plan.
+     *
+     * <pre>
+     * {@code
+     * private static final TimeStreamPlan<LocalDateTime> HOURS = LocalDateTimeStream
+     *     .from(start)
+     *     .until(end)
+     *     .every(1, ChronoUnit.HOURS)
+     *     .build();
+     * }
+     * </pre>
+     *
+     * @return A non-null, immutable TimeStreamPlan.
+     */
+    public TimeStreamPlan<T> build() {
+        return new TimeStreamPlan<>(copy());
+    }
+
+    /**
+     * Calculate the number of elements in the stream. When the step is fixed this is
+     * worked out directly from the end points and the step, without producing
+     * any of the elements. A recurrence rule counts the occurrences of each of its periods.
+     *
+     * @return The number of elements in the stream, or empty if the stream is infinite.
+     */
+    public OptionalLong size() {
+        final RecurrenceSpliterator<T> recurrence = recurrenceSpliterator();
+        if (recurrence != null) {
+            return recurrence.isBounded() ? OptionalLong.of(recurrence.count()) : OptionalLong.empty();
+        } else if (to == null) {
+            return OptionalLong.empty();
+        } else if (hasFixedStep()) {
+            return OptionalLong.of(count());
+        } else {
+            return OptionalLong.of(StreamSupport.stream(spliterator(), false).count());
+        }
+    }
+
+    /**
+     * Produce a stream of the intervals between successive elements, such as the buckets of a
+     * time-series grid. Each interval starts at an element and ends where the next one starts.
+     * The last interval of a bounded stream ends at the end point (even if it is exclusive), and
+     * if the last element is the end point, it doesn't start an interval.
+     *
+     * @return A non-null stream of intervals, which is infinite if this stream is.
+     */
+    public Stream<TimeInterval<T>> intervals() {
+        return StreamSupport.stream(new IntervalSpliterator<>(spliterator(), next(), to, isForward()), false);
+    }
+
+    /**
+     * Produce intervals as pairs of primitive values, following the same rules as intervals().
+     *
+     * @param values  The values of the elements of this stream.
+     * @param toValue Converts the end point to a value.
+     * @return A non-null LongStream of the start and then the end of each interval.
+     */
+    LongStream packedIntervals(final LongStream values,
+                               final ToLongFunction<T> toValue) {
+        return StreamSupport.longStream(
+                new PackedIntervalSpliterator(values.spliterator(), to != null, to == null ? 0 : toValue.applyAsLong(to)),
                 false);
+    }
 
+    /**
+     * Produce the elements of this stream in arrays of the given size, the last of which may
+     * be shorter. When the step is fixed, each batch is calculated directly from its index,
+     * so the batches can be split evenly by a parallel stream.
+     *
+     * @param size      The positive number of elements in each batch.
+     * @param generator Creates an array of the given length.
+     * @return A non-null stream of batches, which is infinite if this stream is.
+     * @throws IllegalArgumentException if size is not positive.
+     */
+    Stream<T[]> batches(final int size,
+                        final IntFunction<T[]> generator) {
+        checkBatchSize(size);
+        if (hasFixedStep()) {
+            final LongFunction<T> indexer = indexer();
+            final long count = to == null ? Long.MAX_VALUE : count();
+            return batchStarts(size, count).mapToObj(start -> {
+                final T[] batch = generator.apply((int) Math.min(size, count - start));
+                for (int i = 0; i < batch.length; i++) {
+                    batch[i] = indexer.apply(start + i);
+                }
+                return batch;
+            });
+        }
+        return StreamSupport.stream(new BatchSpliterator<>(spliterator(), size, generator), false);
+    }
+
+    /**
+     * Produce primitive values in arrays of the given size, following the same rules as batches().
+     *
+     * @param size    The positive number of values in each batch.
+     * @param indexer Calculates the value at a given index, or null if the step isn't fixed.
+     * @param values  Produces the values, for when the step isn't fixed.
+     * @return A non-null stream of batches, which is infinite if this stream is.
+     * @throws IllegalArgumentException if size is not positive.
+     */
+    Stream<long[]> longBatches(final int size,
+                               final LongUnaryOperator indexer,
+                               final Supplier<LongStream> values) {
+        checkBatchSize(size);
+        if (indexer != null) {
+            final long count = to == null ? Long.MAX_VALUE : count();
+            return batchStarts(size, count).mapToObj(start -> {
+                final long[] batch = new long[(int) Math.min(size, count - start)];
+                for (int i = 0; i < batch.length; i++) {
+                    batch[i] = indexer.applyAsLong(start + i);
+                }
+                return batch;
+            });
+        }
+        return StreamSupport.stream(new LongBatchSpliterator(values.get().spliterator(), size), false);
+    }
+
+    /**
+     * The index of the first element of each batch. Bounded streams index their batches
+     * with a range, so that they split evenly.
+     */
+    private static LongStream batchStarts(final int size,
+                                          final long count) {
+        if (count == Long.MAX_VALUE) {
+            return LongStream.iterate(0, start -> Math.addExact(start, size));
+        }
+        return LongStream.range(0, (count + size - 1) / size).map(batch -> batch * size);
+    }
+
+    private static void checkBatchSize(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+    }
+
+    /**
+     * Gather the elements of this stream into an array. When the step is fixed, the array
+     * is allocated at exactly the right length and filled by index. Otherwise it is allocated
+     * at the estimated length, which is only grown or trimmed if the estimate was off.
+     *
+     * @param generator Creates an array of the given length.
+     * @return A non-null array of every element in the stream.
+     * @throws IllegalStateException if the stream is infinite or too long to fit in an array.
+     */
+    T[] toArray(final IntFunction<T[]> generator) {
+        checkBounded();
+        if (hasFixedStep()) {
+            final LongFunction<T> indexer = indexer();
+            final T[] array = generator.apply(arrayLength(count()));
+            for (int i = 0; i < array.length; i++) {
+                array[i] = indexer.apply(i);
+            }
+            return array;
+        }
+        T[] array = generator.apply(estimatedArrayLength());
+        int length = 0;
+        final Iterator<T> elements = Spliterators.iterator(spliterator());
+        while (elements.hasNext()) {
+            if (length == array.length) {
+                array = Arrays.copyOf(array, grow(length));
+            }
+            array[length++] = elements.next();
+        }
+        return length == array.length ? array : Arrays.copyOf(array, length);
+    }
+
+    /**
+     * Gather primitive values into an array, following the same rules as toArray().
+     *
+     * @param indexer Calculates the value at a given index, or null if the step isn't fixed.
+     * @param values  Produces the values, for when the step isn't fixed.
+     * @return A non-null array of every value.
+     * @throws IllegalStateException if the stream is infinite or too long to fit in an array.
+     */
+    long[] toLongArray(final LongUnaryOperator indexer,
+                       final Supplier<LongStream> values) {
+        checkBounded();
+        if (indexer != null) {
+            final long[] array = new long[arrayLength(count())];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = indexer.applyAsLong(i);
+            }
+            return array;
+        }
+        long[] array = new long[estimatedArrayLength()];
+        int length = 0;
+        final PrimitiveIterator.OfLong elements = Spliterators.iterator(values.get().spliterator());
+        while (elements.hasNext()) {
+            if (length == array.length) {
+                array = Arrays.copyOf(array, grow(length));
+            }
+            array[length++] = elements.nextLong();
+        }
+        return length == array.length ? array : Arrays.copyOf(array, length);
+    }
+
+    private static int arrayLength(final long count) {
+        if (count > MAX_ARRAY_LENGTH) {
+            throw new IllegalStateException("Too many elements to fit in an array: " + count);
+        }
+        return (int) count;
+    }
+
+    private int estimatedArrayLength() {
+        final RecurrenceSpliterator<T> recurrence = recurrenceSpliterator();
+        final long estimate = recurrence != null ? recurrence.count() : estimateIndexOf(to) + 1;
+        return (int) Math.min(Math.max(estimate, 1), MAX_ARRAY_LENGTH);
+    }
+
+    private static int grow(final int length) {
+        if (length == MAX_ARRAY_LENGTH) {
+            throw new IllegalStateException("Too many elements to fit in an array");
+        }
+        return (int) Math.min(length + (length >> 1) + 1L, MAX_ARRAY_LENGTH);
+    }
+
+    private void checkBounded() {
+        final RecurrenceSpliterator<T> recurrence = recurrenceSpliterator();
+        if (recurrence != null ? !recurrence.isBounded() : to == null) {
+            throw new IllegalStateException("An infinite stream can't be gathered into an array");
+        }
+    }
+
+    /**
+     * Produce a stream of primitive values, calculated directly from the index of each
+     * element rather than from the elements themselves. Only valid when hasFixedStep() is true.
+     *
+     * @param indexer Calculates the value for the element at a given index.
+     * @return A non-null LongStream, which is infinite if this stream is.
+     */
+    LongStream indexedLongStream(final LongUnaryOperator indexer) {
+        final LongStream indexes = to == null ? LongStream.iterate(0, i -> i + 1) : LongStream.range(0, count());
+        return indexes.map(indexer);
+    }
+
+    /**
+     * Produce the Spliterator that backs the stream. Bounded series with a fixed
+     * step are indexed directly, so they know their size and split evenly.
+     * Otherwise, each element is derived from the one before it.
+     *
+     * @return A non-null Spliterator.
+     */
+    Spliterator<T> spliterator() {
+        return spliterator(0);
+    }
+
+    /**
+     * Produce a Spliterator that begins at the given index of the stream.
+     *
+     * @param origin The non-negative index of the first element.
+     * @return A non-null Spliterator.
+     */
+    private Spliterator<T> spliterator(final long origin) {
+        if (hasFixedStep()) {
+            if (to != null) {
+                final long count = count();
+                return new RangeSpliterator<>(indexer(), Math.min(origin, count), count, comparator());
+            }
+            return Steps.of(indexer().apply(origin), next(), canTake());
+        }
+        final RecurrenceSpliterator<T> recurrence = recurrenceSpliterator();
+        final Spliterator<T> spliterator = recurrence != null
+                ? recurrence
+                : Steps.of(from, next(), canTake());
+        long skipped = 0;
+        while (skipped < origin && spliterator.tryAdvance(t -> { })) {
+            skipped++;
+        }
+        return spliterator;
+    }
+
+    /**
+     * Produce the Spliterator that backs a parallel stream. Bounded series without
+     * a fixed step can't be indexed, so they are buffered in order to split evenly,
+     * unless they follow a recurrence rule, which splits by period.
+     *
+     * @return A non-null Spliterator.
+     */
+    private Spliterator<T> parallelSpliterator() {
+        final RecurrenceSpliterator<T> recurrence = recurrenceSpliterator();
+        if (recurrence != null) {
+            return recurrence;
+        }
+        if (to != null && !hasFixedStep()) {
+            return StreamSupport.stream(spliterator(), false)
+                    .collect(Collectors.toCollection(ArrayList::new))
+                    .spliterator();
+        }
+        return spliterator();
+    }
+
+    /**
+     * Count the elements in a bounded series with a fixed step. Starts from an
+     * estimate and moves it until it sits on the last element we can take.
+     *
+     * @return The number of elements in the series.
+     */
+    private long count() {
+        final LongFunction<T> indexer = indexer();
+        final Predicate<T> canTake = canTake();
+        long last = estimateIndexOf(to);
+        while (canTake(indexer, canTake, last + 1)) {
+            last++;
+        }
+        while (last >= 0 && !canTake(indexer, canTake, last)) {
+            last--;
+        }
+        return last + 1;
+    }
+
+    private static <T> boolean canTake(final LongFunction<T> indexer,
+                                       final Predicate<T> canTake,
+                                       final long index) {
+        try {
+            return canTake.test(indexer.apply(index));
+        } catch (DateTimeException | ArithmeticException e) {
+            // Past the limits of the type, so certainly past the end.
+            return false;
+        }
+    }
+
+    /**
+     * Forward series are in natural order, backward series are in reverse.
+     *
+     * @return The comparator for the Spliterator, or null for natural order.
+     */
+    Comparator<? super T> comparator() {
+        return isForward() ? null : Comparator.reverseOrder();
+    }
+
+    /**
+     * Merge streams into one, in order, without buffering them. Each stream is already sorted in
+     * its own direction, so only the next element of each is held, and unbounded streams can be
+     * merged.
+     *
+     * @param streams    The non-null streams to merge.
+     * @param comparator The order of elements moving forward through time.
+     * @param distinct   true to produce elements that compare as equal only once.
+     * @param <T>        The type of element.
+     * @return A non-null stream of every element of the streams, in order.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    static <T extends Comparable<? super T>> Stream<T> merge(final AbstractComparableStream<T>[] streams,
+                                                             final Comparator<? super T> comparator,
+                                                             final boolean distinct) {
+        Objects.requireNonNull(streams);
+        return merge(Arrays.asList(streams), comparator, distinct);
+    }
+
+    private static <T extends Comparable<? super T>> Stream<T> merge(final List<AbstractComparableStream<T>> streams,
+                                                                     final Comparator<? super T> comparator,
+                                                                     final boolean distinct) {
+        final Comparator<? super T> order = orderOf(streams, comparator);
+        final List<Spliterator<T>> sources = new ArrayList<>(streams.size());
+        for (AbstractComparableStream<T> stream : streams) {
+            sources.add(stream.spliterator());
+        }
+        return StreamSupport.stream(MergeSpliterator.of(order, distinct, sources), false);
+    }
+
+    /**
+     * Produce the elements of the first stream that are in every other stream, lazily. Every
+     * builder produces a sorted and distinct series, so the streams are walked together instead
+     * of loading any of them into a set, and those with a fixed step jump past gaps by index.
+     *
+     * @param first      The non-null stream to take elements from.
+     * @param others     The non-null streams that the elements must all be in.
+     * @param comparator The order of elements moving forward through time.
+     * @param <T>        The type of element.
+     * @return A non-null stream of the elements common to every stream, in order.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    static <T extends Comparable<? super T>> Stream<T> intersection(final AbstractComparableStream<T> first,
+                                                                    final AbstractComparableStream<T>[] others,
+                                                                    final Comparator<? super T> comparator) {
+        final List<AbstractComparableStream<T>> all = listOf(first, others);
+        return StreamSupport.stream(SetOperationSpliterator.intersect(orderOf(all, comparator), all), false);
+    }
+
+    /**
+     * Produce the elements of the first stream that are in none of the other streams, lazily,
+     * in the same way as intersection().
+     *
+     * @param first      The non-null stream to take elements from.
+     * @param others     The non-null streams that the elements must not be in.
+     * @param comparator The order of elements moving forward through time.
+     * @param <T>        The type of element.
+     * @return A non-null stream of the elements of the first stream missing from the others, in order.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    static <T extends Comparable<? super T>> Stream<T> difference(final AbstractComparableStream<T> first,
+                                                                  final AbstractComparableStream<T>[] others,
+                                                                  final Comparator<? super T> comparator) {
+        final List<AbstractComparableStream<T>> all = listOf(first, others);
+        return StreamSupport.stream(SetOperationSpliterator.except(orderOf(all, comparator), all), false);
+    }
+
+    /**
+     * Produce the elements that are in any of the streams, each only once, by merging them.
+     *
+     * @param first      The non-null stream to take elements from first when they are equal.
+     * @param others     The non-null streams to add elements from.
+     * @param comparator The order of elements moving forward through time.
+     * @param <T>        The type of element.
+     * @return A non-null stream of the elements in any stream, in order.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    static <T extends Comparable<? super T>> Stream<T> union(final AbstractComparableStream<T> first,
+                                                             final AbstractComparableStream<T>[] others,
+                                                             final Comparator<? super T> comparator) {
+        return merge(listOf(first, others), comparator, true);
+    }
+
+    private static <T extends Comparable<? super T>> List<AbstractComparableStream<T>> listOf(final AbstractComparableStream<T> first,
+                                                                                             final AbstractComparableStream<T>[] others) {
+        Objects.requireNonNull(others);
+        final List<AbstractComparableStream<T>> all = new ArrayList<>(others.length + 1);
+        all.add(first);
+        all.addAll(Arrays.asList(others));
+        return all;
+    }
+
+    /**
+     * Work out which way a group of streams move. Streams of a single element go either way,
+     * but the rest must agree.
+     *
+     * @param streams    The non-null streams, none of which may be null.
+     * @param comparator The order of elements moving forward through time.
+     * @param <T>        The type of element.
+     * @return The comparator, reversed if the streams move backward.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    private static <T extends Comparable<? super T>> Comparator<? super T> orderOf(final List<AbstractComparableStream<T>> streams,
+                                                                                  final Comparator<? super T> comparator) {
+        Boolean forward = null;
+        for (AbstractComparableStream<T> stream : streams) {
+            Objects.requireNonNull(stream);
+            final boolean single = stream.to != null && stream.from.compareTo(stream.to) == 0;
+            if (!single) {
+                if (forward != null && forward != stream.isForward()) {
+                    throw new IllegalArgumentException("Streams must all move in the same direction to be combined");
+                }
+                forward = stream.isForward();
+            }
+        }
+        return forward == null || forward ? comparator : Collections.reverseOrder(comparator);
+    }
+
+    /**
+     * Determine if a unit is a whole number of months, which means that stepping
+     * by it is fixed as long as we never have to clamp the day of the month.
+     *
+     * @param unit A non-null unit.
+     * @return true if the unit is measured in months.
+     */
+    static boolean isMonthBased(final ChronoUnit unit) {
+        switch (unit) {
+            case MONTHS:
+            case YEARS:
+            case DECADES:
+            case CENTURIES:
+            case MILLENNIA:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Determine if stepping a day-based value by the given unit is fixed.
+     * Days and weeks always are, and month-based units are only when the day
+     * of the month exists in every month.
+     *
+     * @param unit       A non-null, date-based unit.
+     * @param dayOfMonth The day of the month the series starts on.
+     * @return true if the step is fixed.
+     */
+    static boolean isFixedDateStep(final ChronoUnit unit,
+                                   final int dayOfMonth) {
+        return unit == ChronoUnit.DAYS
+                || unit == ChronoUnit.WEEKS
+                || (isMonthBased(unit) && dayOfMonth <= 28);
     }
 
     /**
@@ -100,7 +809,7 @@ abstract class AbstractComparableStream<T extends Comparable<? super T>> {
      *
      * @return A Predicate
      */
-    private Predicate<T> canTake() {
+    Predicate<T> canTake() {
         return x -> {
             if (to == null) {
                 return true;
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Gathers the elements of a spliterator into arrays of a fixed size, for series that
+ * can't be indexed. The last array holds whatever is left, so may be shorter.
+ *
+ * @param <T> The type of element.
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class BatchSpliterator<T> extends Spliterators.AbstractSpliterator<T[]> {
+    private final Spliterator<T> source;
+    private final int size;
+    private final IntFunction<T[]> generator;
+    private T[] batch;
+    private int filled;
+
+    BatchSpliterator(final Spliterator<T> source,
+                     final int size,
+                     final IntFunction<T[]> generator) {
+        super(Long.MAX_VALUE, ORDERED | NONNULL | IMMUTABLE);
+        this.source = source;
+        this.size = size;
+        this.generator = generator;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T[]> action) {
+        batch = generator.apply(size);
+        filled = 0;
+        while (filled < size && source.tryAdvance(this::add)) {
+            // Keep filling.
+        }
+        if (filled == 0) {
+            return false;
+        }
+        action.accept(filled == size ? batch : Arrays.copyOf(batch, filled));
+        return true;
+    }
+
+    private void add(final T value) {
+        batch[filled++] = value;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.temporal.ChronoField;
+import java.time.temporal.Temporal;
+import java.time.temporal.TemporalUnit;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A unit of one business day, which skips over the days of the weekend, and optionally
+ * the holidays of a HolidayCalendar. Business days are numbered arithmetically a week at
+ * a time, so moving any number of business days, or counting the business days between
+ * two dates, takes the same time however far apart they are.
+ * <p>
+ * As a TemporalUnit, business days can also be added to anything with an epoch day:
+ * <p>
+ * <pre>
+ * {@code
+ * // The third business day after a Friday is the following Wednesday.
+ * LocalDate.of(2016, 4, 1).plus(3, BusinessDays.BUSINESS_DAYS);
+ * }
+ * </pre>
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ * @see LocalDateStream#every(int, BusinessDays)
+ */
+public final class BusinessDays implements TemporalUnit {
+    /**
+     * Monday to Friday, with Saturday and Sunday as the weekend.
+     */
+    public static final BusinessDays BUSINESS_DAYS = withWeekend(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+
+    /**
+     * Epoch day 0 is a Thursday, so counting from 3 days earlier puts weeks on Monday.
+     */
+    private static final long MONDAY_OFFSET = 3;
+
+    private final Set<DayOfWeek> weekend;
+    private final HolidayCalendar holidays;
+    private final HolidayCalendar weekdayHolidays;
+    private final int perWeek;
+    private final int[] before = new int[7];
+    private final int[] nth;
+
+    private BusinessDays(final Set<DayOfWeek> weekend,
+                         final HolidayCalendar holidays) {
+        this.weekend = weekend;
+        this.holidays = holidays;
+        // Holidays on the weekend don't change anything, so they are left out of the counts.
+        this.weekdayHolidays = holidays == null ? null : holidays.only(day -> !weekend.contains(dayOfWeek(day)));
+        this.perWeek = 7 - weekend.size();
+        this.nth = new int[perWeek];
+        int count = 0;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            before[day.ordinal()] = count;
+            if (!weekend.contains(day)) {
+                nth[count++] = day.ordinal();
+            }
+        }
+    }
+
+    /**
+     * Create a unit of business days with the given days as the weekend.
+     *
+     * @param weekend The days of the week that are not business days, such as Friday and Saturday.
+     * @return A non-null BusinessDays.
+     * @throws IllegalArgumentException if every day of the week is part of the weekend.
+     */
+    public static BusinessDays withWeekend(final DayOfWeek... weekend) {
+        final Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : weekend) {
+            days.add(day);
+        }
+        if (days.size() == 7) {
+            throw new IllegalArgumentException("Weekend must leave at least one business day");
+        }
+        return new BusinessDays(days, null);
+    }
+
+    /**
+     * Create a unit of business days with the same weekend as this one, which also skips
+     * the holidays in the given calendar. Business days are still numbered arithmetically,
+     * then corrected by the number of holidays before them, which the calendar counts from
+     * its bitset.
+     *
+     * @param holidays The non-null holidays that are not business days.
+     * @return A non-null BusinessDays.
+     */
+    public BusinessDays withHolidays(final HolidayCalendar holidays) {
+        Objects.requireNonNull(holidays);
+        return new BusinessDays(weekend, holidays);
+    }
+
+    /**
+     * @param epochDay An epoch day.
+     * @return true if the day is a business day.
+     */
+    boolean isBusinessDay(final long epochDay) {
+        return !weekend.contains(dayOfWeek(epochDay)) && (holidays == null || !weekdayHolidays.isHoliday(epochDay));
+    }
+
+    private static DayOfWeek dayOfWeek(final long epochDay) {
+        return DayOfWeek.of((int) Math.floorMod(epochDay + MONDAY_OFFSET, 7L) + 1);
+    }
+
+    /**
+     * Count the business days before the given day, from an arbitrary but fixed origin.
+     * This numbers the business days in order, and is also the number of the first
+     * business day on or after the given day.
+     *
+     * @param epochDay An epoch day.
+     * @return The number of the first business day on or after the given day.
+     */
+    long ordinal(final long epochDay) {
+        final long weekdays = weekdayOrdinal(epochDay);
+        return holidays == null ? weekdays : weekdays - weekdayHolidays.countBefore(epochDay);
+    }
+
+    /**
+     * Count the days that aren't on the weekend before the given day, a week at a time.
+     */
+    private long weekdayOrdinal(final long epochDay) {
+        final long days = Math.addExact(epochDay, MONDAY_OFFSET);
+        return Math.addExact(Math.multiplyExact(Math.floorDiv(days, 7), perWeek), before[(int) Math.floorMod(days, 7L)]);
+    }
+
+    /**
+     * Find the business day with the given number, which is the opposite of ordinal().
+     * With holidays, this starts from the weekday with that number and moves forward past
+     * the holidays before it, which usually settles within a few counts.
+     *
+     * @param ordinal The number of a business day.
+     * @return The epoch day of that business day.
+     */
+    long epochDay(final long ordinal) {
+        if (holidays == null) {
+            return weekdayEpochDay(ordinal);
+        }
+        // Every holiday before the day pushes it one weekday later, which may pass more holidays,
+        // so keep moving forward until the holidays skipped are all of the ones before the day.
+        long skipped = 0;
+        long epochDay = weekdayEpochDay(ordinal);
+        while (true) {
+            final long holidaysBefore = weekdayHolidays.countBefore(epochDay);
+            if (holidaysBefore == skipped && !weekdayHolidays.isHoliday(epochDay)) {
+                return epochDay;
+            }
+            skipped = holidaysBefore == skipped ? skipped + 1 : holidaysBefore;
+            epochDay = weekdayEpochDay(Math.addExact(ordinal, skipped));
+        }
+    }
+
+    /**
+     * Find the day that isn't on the weekend with the given number, which is the opposite of weekdayOrdinal().
+     */
+    private long weekdayEpochDay(final long ordinal) {
+        final long weeks = Math.floorDiv(ordinal, perWeek);
+        return Math.addExact(Math.multiplyExact(weeks, 7), nth[(int) Math.floorMod(ordinal, (long) perWeek)] - MONDAY_OFFSET);
+    }
+
+    /**
+     * Move the given number of business days from a day. A day that isn't a business day
+     * counts as if it were just after the business day before it, so moving one business
+     * day from a Saturday is the next Monday, as is moving one from Friday.
+     *
+     * @param epochDay An epoch day.
+     * @param amount   The number of business days to move, which may be negative.
+     * @return The epoch day of the business day that is reached.
+     */
+    long plus(final long epochDay,
+              final long amount) {
+        if (amount == 0) {
+            return epochDay;
+        }
+        if (amount > 0) {
+            return epochDay(Math.addExact(ordinal(epochDay + 1) - 1, amount));
+        }
+        return epochDay(Math.addExact(ordinal(epochDay), amount));
+    }
+
+    @Override
+    public Duration getDuration() {
+        return Duration.ofDays(7).dividedBy(perWeek);
+    }
+
+    @Override
+    public boolean isDurationEstimated() {
+        return true;
+    }
+
+    @Override
+    public boolean isDateBased() {
+        return true;
+    }
+
+    @Override
+    public boolean isTimeBased() {
+        return false;
+    }
+
+    @Override
+    public boolean isSupportedBy(final Temporal temporal) {
+        return temporal.isSupported(ChronoField.EPOCH_DAY);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R extends Temporal> R addTo(final R temporal,
+                                        final long amount) {
+        return (R) temporal.with(ChronoField.EPOCH_DAY, plus(temporal.getLong(ChronoField.EPOCH_DAY), amount));
+    }
+
+    /**
+     * Count the business days from the date of the first temporal, inclusive, to the date
+     * of the second, exclusive. Times of day are not considered.
+     */
+    @Override
+    public long between(final Temporal temporal1Inclusive,
+                        final Temporal temporal2Exclusive) {
+        return ordinal(temporal2Exclusive.getLong(ChronoField.EPOCH_DAY))
+                - ordinal(temporal1Inclusive.getLong(ChronoField.EPOCH_DAY));
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BusinessDays)) {
+            return false;
+        }
+        final BusinessDays that = (BusinessDays) o;
+        return weekend.equals(that.weekend) && Objects.equals(holidays, that.holidays);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * weekend.hashCode() + Objects.hashCode(holidays);
+    }
+
+    @Override
+    public String toString() {
+        return "BusinessDays" + weekend + (holidays == null ? "" : " with " + holidays);
+    }
+}
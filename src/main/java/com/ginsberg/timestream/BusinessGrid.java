@@ -0,0 +1,114 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * A grid of times on business days: a number of evenly spaced slots each business day,
+ * starting at the same time of day. The slots are numbered in order across days, so the
+ * slot at or around any time is found arithmetically.
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class BusinessGrid {
+    private static final long NANOS_PER_DAY = Duration.ofDays(1).toNanos();
+
+    private final BusinessDays businessDays;
+    private final long open;
+    private final long slotNanos;
+    private final long slots;
+
+    private BusinessGrid(final BusinessDays businessDays,
+                         final long open,
+                         final long slotNanos,
+                         final long slots) {
+        this.businessDays = businessDays;
+        this.open = open;
+        this.slotNanos = slotNanos;
+        this.slots = slots;
+    }
+
+    /**
+     * One slot each business day, at the given time.
+     */
+    static BusinessGrid daily(final BusinessDays businessDays,
+                              final LocalTime at) {
+        return new BusinessGrid(businessDays, at.toNanoOfDay(), NANOS_PER_DAY, 1);
+    }
+
+    /**
+     * Slots of the given length each business day, from the opening time until
+     * (but not including) the closing time.
+     */
+    static BusinessGrid hours(final BusinessDays businessDays,
+                              final LocalTime open,
+                              final LocalTime close,
+                              final Duration slot) {
+        final long slotNanos = slot.toNanos();
+        final long length = close.toNanoOfDay() - open.toNanoOfDay();
+        return new BusinessGrid(businessDays, open.toNanoOfDay(), slotNanos, (length + slotNanos - 1) / slotNanos);
+    }
+
+    /**
+     * @param slot The number of a slot.
+     * @return The non-null time of the slot.
+     */
+    LocalDateTime at(final long slot) {
+        final long epochDay = businessDays.epochDay(Math.floorDiv(slot, slots));
+        return LocalDateTime.of(
+                LocalDate.ofEpochDay(epochDay),
+                LocalTime.ofNanoOfDay(open + Math.floorMod(slot, slots) * slotNanos));
+    }
+
+    /**
+     * @param time A non-null time.
+     * @return The number of the first slot at or after the time.
+     */
+    long ceiling(final LocalDateTime time) {
+        final long epochDay = time.toLocalDate().toEpochDay();
+        final long first = Math.multiplyExact(businessDays.ordinal(epochDay), slots);
+        if (!businessDays.isBusinessDay(epochDay)) {
+            return first;
+        }
+        final long sinceOpen = time.toLocalTime().toNanoOfDay() - open;
+        if (sinceOpen <= 0) {
+            return first;
+        }
+        return first + Math.min((sinceOpen + slotNanos - 1) / slotNanos, slots);
+    }
+
+    /**
+     * @param time A non-null time.
+     * @return The number of the last slot at or before the time.
+     */
+    long floor(final LocalDateTime time) {
+        final long ceiling = ceiling(time);
+        return at(ceiling).equals(time) ? ceiling : ceiling - 1;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * An immutable series of times or dates that has been gathered from a stream builder,
+ * stored as primitive values rather than objects. Elements are only created when they
+ * are asked for, so a series can be shared by any number of threads.
+ * <p>
+ * The primitive value of each element is its epoch day for a LocalDate, its proleptic month
+ * for a YearMonth, and its epoch second (at UTC for a LocalDateTime) for everything else.
+ *
+ * @param <T> The type of element.
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ * @see SeriesCache
+ */
+public final class CachedSeries<T> {
+    private final long[] values;
+    private final int[] nanos;
+    private final Decoder<T> decoder;
+
+    /**
+     * Turns a primitive value and its nano-of-second back into an element.
+     *
+     * @param <T> The type of element.
+     */
+    interface Decoder<T> {
+        T decode(long value, int nano);
+    }
+
+    /**
+     * @param values  The non-null primitive value of each element, which is not copied.
+     * @param nanos   The nano-of-second of each element, which is not copied, or null if they are all zero.
+     * @param decoder Turns a value and nano back into an element.
+     */
+    CachedSeries(final long[] values,
+                 final int[] nanos,
+                 final Decoder<T> decoder) {
+        this.values = values;
+        this.nanos = nanos == null || Arrays.stream(nanos).allMatch(nano -> nano == 0) ? null : nanos;
+        this.decoder = decoder;
+    }
+
+    /**
+     * Gather elements that are measured in epoch seconds.
+     *
+     * @param elements    The non-null elements, in order.
+     * @param epochSecond Finds the epoch second of an element.
+     * @param nano        Finds the nano-of-second of an element.
+     * @param decoder     Turns an epoch second and nano back into an element.
+     * @param <T>         The type of element.
+     * @return A non-null series of the elements.
+     */
+    static <T> CachedSeries<T> ofEpochSeconds(final T[] elements,
+                                              final ToLongFunction<T> epochSecond,
+                                              final ToIntFunction<T> nano,
+                                              final Decoder<T> decoder) {
+        final long[] seconds = new long[elements.length];
+        final int[] nanos = new int[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            seconds[i] = epochSecond.applyAsLong(elements[i]);
+            nanos[i] = nano.applyAsInt(elements[i]);
+        }
+        return new CachedSeries<>(seconds, nanos, decoder);
+    }
+
+    /**
+     * @return The number of elements in the series.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Get the element at the given index of the series.
+     *
+     * @param index The index of the element.
+     * @return The non-null element at the given index.
+     * @throws IndexOutOfBoundsException if the index isn't in the series.
+     */
+    public T get(final int index) {
+        return decoder.decode(values[index], getNano(index));
+    }
+
+    /**
+     * Get the primitive value of the element at the given index of the series.
+     *
+     * @param index The index of the element.
+     * @return The primitive value of the element at the given index.
+     * @throws IndexOutOfBoundsException if the index isn't in the series.
+     */
+    public long getLong(final int index) {
+        return values[index];
+    }
+
+    /**
+     * Get the nano-of-second of the element at the given index of the series,
+     * which is always zero for dates.
+     *
+     * @param index The index of the element.
+     * @return The nano-of-second of the element at the given index.
+     * @throws IndexOutOfBoundsException if the index isn't in the series.
+     */
+    public int getNano(final int index) {
+        if (nanos != null) {
+            return nanos[index];
+        }
+        if (index < 0 || index >= values.length) {
+            throw new IndexOutOfBoundsException("Index is not in the series: " + index);
+        }
+        return 0;
+    }
+
+    /**
+     * Produce a stream of the elements of the series. The stream knows its size
+     * and splits evenly.
+     *
+     * @return A non-null stream of the elements.
+     */
+    public Stream<T> stream() {
+        return IntStream.range(0, values.length).mapToObj(this::get);
+    }
+
+    /**
+     * Produce a stream of the primitive value of each element of the series,
+     * without creating any elements.
+     *
+     * @return A non-null LongStream of primitive values.
+     */
+    public LongStream longStream() {
+        return Arrays.stream(values);
+    }
+
+    /**
+     * Estimate the memory held by the series, for the limit of a SeriesCache.
+     *
+     * @return The approximate size of the series, in bytes.
+     */
+    long byteSize() {
+        return 64 + 8L * values.length + (nanos == null ? 0 : 4L * nanos.length);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Calendar arithmetic on primitive values, following the ISO-8601 rules that
+ * java.time uses, so that series can be calculated without creating objects.
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class CalendarMath {
+    static final long SECONDS_PER_DAY = 86_400L;
+    private static final long DAYS_0000_TO_1970 = 719_528L;
+    private static final long DAYS_PER_CYCLE = 146_097L;
+
+    private CalendarMath() {
+    }
+
+    /**
+     * Calculate the number of months in a month-based unit.
+     *
+     * @param unit A unit for which AbstractComparableStream.isMonthBased() is true.
+     * @return The number of months in one of the unit.
+     */
+    static long monthsIn(final ChronoUnit unit) {
+        switch (unit) {
+            case MONTHS:
+                return 1;
+            case YEARS:
+                return 12;
+            case DECADES:
+                return 120;
+            case CENTURIES:
+                return 1_200;
+            case MILLENNIA:
+                return 12_000;
+            default:
+                throw new IllegalArgumentException("Not a month-based unit: " + unit);
+        }
+    }
+
+    /**
+     * Calculate the epoch day of the given day, in the given proleptic month
+     * (year * 12 + month - 1), as LocalDate.toEpochDay() does.
+     *
+     * @param prolepticMonth The month, counted from year zero.
+     * @param day            The day of the month, which must exist in that month.
+     * @return The number of days since 1970-01-01.
+     * @throws java.time.DateTimeException if the year is outside of the supported range.
+     */
+    static long epochDay(final long prolepticMonth,
+                         final int day) {
+        final long year = ChronoField.YEAR.checkValidValue(Math.floorDiv(prolepticMonth, 12));
+        final int month = (int) Math.floorMod(prolepticMonth, 12) + 1;
+        long total = 365 * year;
+        if (year >= 0) {
+            total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        } else {
+            total -= year / -4 - year / -100 + year / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Calculate the proleptic month (year * 12 + month - 1) that contains the given
+     * epoch day, as LocalDate.ofEpochDay() does.
+     *
+     * @param epochDay The number of days since 1970-01-01.
+     * @return The month, counted from year zero.
+     */
+    static long prolepticMonthOf(final long epochDay) {
+        long zeroDay = epochDay + DAYS_0000_TO_1970 - 60;
+        long adjust = 0;
+        if (zeroDay < 0) {
+            final long adjustCycles = (zeroDay + 1) / DAYS_PER_CYCLE - 1;
+            adjust = adjustCycles * 400;
+            zeroDay += -adjustCycles * DAYS_PER_CYCLE;
+        }
+        long year = (400 * zeroDay + 591) / DAYS_PER_CYCLE;
+        long dayOfYear = zeroDay - (365 * year + year / 4 - year / 100 + year / 400);
+        if (dayOfYear < 0) {
+            year--;
+            dayOfYear = zeroDay - (365 * year + year / 4 - year / 100 + year / 400);
+        }
+        // Years in this calculation start in March.
+        final int marchMonth = ((int) dayOfYear * 5 + 2) / 153;
+        year += adjust + marchMonth / 10;
+        return year * 12 + (marchMonth + 2) % 12;
+    }
+
+    /**
+     * Add months to an epoch day, clamping the day of the month to the end of the
+     * new month if need be, as LocalDate.plusMonths() does.
+     *
+     * @param epochDay The number of days since 1970-01-01.
+     * @param months   The number of months to add, may be negative.
+     * @return The new epoch day.
+     */
+    static long plusMonths(final long epochDay,
+                           final long months) {
+        final long prolepticMonth = prolepticMonthOf(epochDay);
+        final long dayOfMonth = epochDay - epochDay(prolepticMonth, 1) + 1;
+        final long newMonth = Math.addExact(prolepticMonth, months);
+        return epochDay(newMonth, (int) Math.min(dayOfMonth, lengthOfMonth(newMonth)));
+    }
+
+    static int lengthOfMonth(final long prolepticMonth) {
+        switch ((int) Math.floorMod(prolepticMonth, 12) + 1) {
+            case 2:
+                return isLeapYear(Math.floorDiv(prolepticMonth, 12)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    static boolean isLeapYear(final long year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+}
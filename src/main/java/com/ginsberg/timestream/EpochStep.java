@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Calculates points on the epoch time-line that are a fixed length of time apart,
+ * using only long arithmetic. The point at a given index is the base point, plus or
+ * minus the step multiplied by the index.
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class EpochStep {
+    static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    /**
+     * Converts a point on the epoch time-line to a single long value.
+     */
+    @FunctionalInterface
+    interface Converter {
+        long convert(long epochSecond, int nano);
+    }
+
+    static final Converter SECONDS = (epochSecond, nano) -> epochSecond;
+    static final Converter MILLIS = EpochStep::epochMilli;
+    static final Converter NANOS = EpochStep::epochNano;
+
+    private final long epochSecond;
+    private final int nano;
+    private final long stepSeconds;
+    private final long stepNanos;
+    private final boolean forward;
+
+    /**
+     * @param epochSecond The epoch second of the point at index zero.
+     * @param nano        The nano-of-second of the point at index zero.
+     * @param step        The non-negative length of time between points.
+     * @param forward     true if points move forward through time.
+     */
+    EpochStep(final long epochSecond,
+              final int nano,
+              final Duration step,
+              final boolean forward) {
+        this.epochSecond = epochSecond;
+        this.nano = nano;
+        this.stepSeconds = step.getSeconds();
+        this.stepNanos = step.getNano();
+        this.forward = forward;
+    }
+
+    /**
+     * Find the coarsest unit that measures a duration exactly, so that a duration
+     * such as 250 milliseconds isn't truncated to a whole number of seconds.
+     *
+     * @param duration A non-null duration.
+     * @return SECONDS, MILLIS, MICROS or NANOS.
+     */
+    static ChronoUnit unitOf(final Duration duration) {
+        final int nano = duration.getNano();
+        if (nano == 0) {
+            return ChronoUnit.SECONDS;
+        } else if (nano % NANOS_PER_MILLI == 0) {
+            return ChronoUnit.MILLIS;
+        } else if (nano % 1_000 == 0) {
+            return ChronoUnit.MICROS;
+        }
+        return ChronoUnit.NANOS;
+    }
+
+    /**
+     * Measure the length of a duration in a unit of a second or less.
+     *
+     * @param duration A non-null duration.
+     * @param unit     The unit to measure in, as found by unitOf().
+     * @return The non-negative length of the duration.
+     * @throws ArithmeticException if the length doesn't fit in a long.
+     */
+    static long amountOf(final Duration duration,
+                         final ChronoUnit unit) {
+        final Duration positive = duration.abs();
+        final long nanosPerUnit = unit.getDuration().toNanos();
+        return Math.addExact(
+                Math.multiplyExact(positive.getSeconds(), NANOS_PER_SECOND / nanosPerUnit),
+                positive.getNano() / nanosPerUnit);
+    }
+
+    long epochSecondAt(final long index) {
+        final long offsetNanos = offsetNanos(index);
+        if (forward) {
+            return Math.addExact(epochSecond, offsetSeconds(index) + (nano + offsetNanos >= NANOS_PER_SECOND ? 1 : 0));
+        }
+        return Math.subtractExact(epochSecond, offsetSeconds(index) + (nano - offsetNanos < 0 ? 1 : 0));
+    }
+
+    int nanoAt(final long index) {
+        final long offsetNanos = offsetNanos(index);
+        if (forward) {
+            return (int) ((nano + offsetNanos) % NANOS_PER_SECOND);
+        }
+        final long adjusted = nano - offsetNanos;
+        return (int) (adjusted < 0 ? adjusted + NANOS_PER_SECOND : adjusted);
+    }
+
+    long valueAt(final long index,
+                 final Converter converter) {
+        return converter.convert(epochSecondAt(index), nanoAt(index));
+    }
+
+    /**
+     * Count the whole steps between index zero and a point, in either direction.
+     * Steps that don't fit in a long are capped, as no series can be that long.
+     *
+     * @param epochSecond The epoch second of the point.
+     * @param nano        The nano-of-second of the point.
+     * @return The non-negative number of whole steps.
+     */
+    long stepsTo(final long epochSecond,
+                 final int nano) {
+        final BigInteger nanosPerSecond = BigInteger.valueOf(NANOS_PER_SECOND);
+        final BigInteger distance = BigInteger.valueOf(epochSecond)
+                .subtract(BigInteger.valueOf(this.epochSecond))
+                .multiply(nanosPerSecond)
+                .add(BigInteger.valueOf(nano - this.nano))
+                .abs();
+        final BigInteger steps = distance.divide(
+                BigInteger.valueOf(stepSeconds).multiply(nanosPerSecond).add(BigInteger.valueOf(stepNanos)));
+        return steps.bitLength() < Long.SIZE - 1 ? steps.longValue() : Long.MAX_VALUE - 1;
+    }
+
+    /**
+     * Whole seconds in index * step. The nanos of the step are split off and multiplied
+     * separately so that large indexes don't overflow.
+     */
+    private long offsetSeconds(final long index) {
+        final long high = index / NANOS_PER_SECOND;
+        final long low = index % NANOS_PER_SECOND;
+        return Math.addExact(
+                Math.addExact(Math.multiplyExact(index, stepSeconds), Math.multiplyExact(high, stepNanos)),
+                (low * stepNanos) / NANOS_PER_SECOND);
+    }
+
+    /**
+     * Nanos left over in index * step, once the whole seconds are removed.
+     */
+    private long offsetNanos(final long index) {
+        return ((index % NANOS_PER_SECOND) * stepNanos) % NANOS_PER_SECOND;
+    }
+
+    /**
+     * Convert a point on the time-line to milliseconds since the epoch, as Instant.toEpochMilli() does.
+     */
+    static long epochMilli(final long epochSecond, final int nano) {
+        return Math.addExact(Math.multiplyExact(epochSecond, 1_000L), nano / NANOS_PER_MILLI);
+    }
+
+    /**
+     * Convert a point on the time-line to nanoseconds since the epoch.
+     */
+    static long epochNano(final long epochSecond, final int nano) {
+        return Math.addExact(Math.multiplyExact(epochSecond, NANOS_PER_SECOND), nano);
+    }
+}
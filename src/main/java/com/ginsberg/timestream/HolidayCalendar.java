@@ -0,0 +1,375 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongPredicate;
+
+/**
+ * An immutable set of holidays, such as the days an exchange is closed. Holidays are kept
+ * as a bitset for each year, indexed by day of the year, with a running count of the
+ * holidays before each year. Whether a day is a holiday, and how many holidays there are
+ * before it, are both answered from a handful of words, without hashing or creating
+ * any objects.
+ * <p>
+ * A calendar is used by adding it to a definition of business days:
+ * <p>
+ * <pre>
+ * {@code
+ * HolidayCalendar holidays = HolidayCalendar.fromCsv(Paths.get("exchange-holidays.csv"));
+ * LocalDateStream
+ *     .from(LocalDate.of(2000, 1, 1))
+ *     .until(LocalDate.of(2050, 1, 1))
+ *     .every(1, BusinessDays.BUSINESS_DAYS.withHolidays(holidays))
+ *     .stream();
+ * }
+ * </pre>
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ * @see BusinessDays#withHolidays(HolidayCalendar)
+ */
+public final class HolidayCalendar {
+    /**
+     * Enough 64-bit words for the 366 days of a leap year.
+     */
+    private static final int WORDS_PER_YEAR = 6;
+
+    /**
+     * The number of days in 400 years, for finding the year of an epoch day without a LocalDate.
+     */
+    private static final long DAYS_PER_400_YEARS = 146_097;
+
+    private final int firstYear;
+    private final long[] yearStarts;
+    private final long[] words;
+    private final long[] before;
+
+    /**
+     * @param firstYear  The first year in the calendar.
+     * @param yearStarts The epoch day of the first day of each year, followed by that of the year after the last.
+     * @param words      The holidays of each year, with bit n set if day n + 1 of the year is a holiday.
+     */
+    private HolidayCalendar(final int firstYear,
+                            final long[] yearStarts,
+                            final long[] words) {
+        this.firstYear = firstYear;
+        this.yearStarts = yearStarts;
+        this.words = words;
+        this.before = new long[yearStarts.length];
+        for (int year = 1; year < yearStarts.length; year++) {
+            long count = before[year - 1];
+            for (int word = (year - 1) * WORDS_PER_YEAR; word < year * WORDS_PER_YEAR; word++) {
+                count += Long.bitCount(words[word]);
+            }
+            before[year] = count;
+        }
+    }
+
+    /**
+     * Create a calendar of the given holidays.
+     *
+     * @param holidays The non-null holidays, in any order. Duplicates are ignored.
+     * @return A non-null HolidayCalendar.
+     */
+    public static HolidayCalendar of(final LocalDate... holidays) {
+        return of(Arrays.asList(holidays));
+    }
+
+    /**
+     * Create a calendar of the given holidays.
+     *
+     * @param holidays The non-null holidays, in any order. Duplicates are ignored.
+     * @return A non-null HolidayCalendar.
+     */
+    public static HolidayCalendar of(final Collection<LocalDate> holidays) {
+        Objects.requireNonNull(holidays);
+        if (holidays.isEmpty()) {
+            return new HolidayCalendar(0, new long[1], new long[0]);
+        }
+        int firstYear = Integer.MAX_VALUE;
+        int lastYear = Integer.MIN_VALUE;
+        for (LocalDate holiday : holidays) {
+            firstYear = Math.min(firstYear, holiday.getYear());
+            lastYear = Math.max(lastYear, holiday.getYear());
+        }
+        final int years = lastYear - firstYear + 1;
+        final long[] yearStarts = new long[years + 1];
+        for (int year = 0; year <= years; year++) {
+            yearStarts[year] = LocalDate.of(firstYear + year, 1, 1).toEpochDay();
+        }
+        final long[] words = new long[years * WORDS_PER_YEAR];
+        for (LocalDate holiday : holidays) {
+            final int day = holiday.getDayOfYear() - 1;
+            words[(holiday.getYear() - firstYear) * WORDS_PER_YEAR + (day >>> 6)] |= 1L << day;
+        }
+        return new HolidayCalendar(firstYear, yearStarts, words);
+    }
+
+    /**
+     * Load a calendar from a CSV file, with an ISO-8601 date (such as 2016-12-26) in the first
+     * column of each line. Anything after the first column is ignored, as are blank lines and
+     * lines starting with #. The first line may be a header.
+     *
+     * @param path The non-null path of the file, which is read as UTF-8.
+     * @return A non-null HolidayCalendar.
+     * @throws IOException if the file can't be read.
+     * @throws DateTimeParseException if a line doesn't start with a date.
+     */
+    public static HolidayCalendar fromCsv(final Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return fromCsv(reader);
+        }
+    }
+
+    static HolidayCalendar fromCsv(final BufferedReader reader) throws IOException {
+        final List<LocalDate> holidays = new ArrayList<>();
+        boolean header = true;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            final String field = line.split(",", 2)[0].replace("\"", "").trim();
+            try {
+                holidays.add(LocalDate.parse(field));
+            } catch (DateTimeParseException e) {
+                if (!header) {
+                    throw e;
+                }
+            }
+            header = false;
+        }
+        return of(holidays);
+    }
+
+    /**
+     * Load a calendar from an iCalendar (RFC 5545) file, such as one exported from a calendar
+     * application. Every day of each event is a holiday: an event runs from the date of its
+     * DTSTART to the date of its DTEND, which is exclusive for all-day events. Recurring events
+     * are not expanded, so only their first occurrence is a holiday.
+     *
+     * @param path The non-null path of the file, which is read as UTF-8.
+     * @return A non-null HolidayCalendar.
+     * @throws IOException if the file can't be read.
+     * @throws DateTimeParseException if an event has a date that can't be parsed.
+     */
+    public static HolidayCalendar fromIcs(final Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return fromIcs(reader);
+        }
+    }
+
+    static HolidayCalendar fromIcs(final BufferedReader reader) throws IOException {
+        final List<LocalDate> holidays = new ArrayList<>();
+        final List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            // Long lines are folded onto lines that start with whitespace.
+            if (!lines.isEmpty() && (line.startsWith(" ") || line.startsWith("\t"))) {
+                lines.set(lines.size() - 1, lines.get(lines.size() - 1) + line.substring(1));
+            } else {
+                lines.add(line);
+            }
+        }
+        String start = null;
+        String end = null;
+        for (String property : lines) {
+            final int colon = property.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            final String name = property.substring(0, colon).split(";", 2)[0].trim().toUpperCase();
+            final String value = property.substring(colon + 1).trim();
+            if (name.equals("BEGIN") && value.equalsIgnoreCase("VEVENT")) {
+                start = null;
+                end = null;
+            } else if (name.equals("DTSTART")) {
+                start = value;
+            } else if (name.equals("DTEND")) {
+                end = value;
+            } else if (name.equals("END") && value.equalsIgnoreCase("VEVENT") && start != null) {
+                addEvent(holidays, start, end);
+            }
+        }
+        return of(holidays);
+    }
+
+    /**
+     * Add every day of an event. All-day events end the day before their DTEND, and
+     * timed events end on the day of their DTEND, unless it is at midnight.
+     */
+    private static void addEvent(final List<LocalDate> holidays,
+                                 final String start,
+                                 final String end) {
+        final LocalDate first = icsDate(start);
+        LocalDate last = first;
+        if (end != null) {
+            final LocalDate endDate = icsDate(end);
+            final boolean midnight = end.length() < 15 || end.substring(9, 15).equals("000000");
+            last = midnight ? endDate.minusDays(1) : endDate;
+        }
+        if (last.isBefore(first)) {
+            last = first;
+        }
+        for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+            holidays.add(date);
+        }
+    }
+
+    private static LocalDate icsDate(final String value) {
+        return LocalDate.parse(value.substring(0, Math.min(8, value.length())), DateTimeFormatter.BASIC_ISO_DATE);
+    }
+
+    /**
+     * @param date A non-null date.
+     * @return true if the date is a holiday.
+     */
+    public boolean isHoliday(final LocalDate date) {
+        return isHoliday(date.toEpochDay());
+    }
+
+    /**
+     * @return The number of holidays in the calendar.
+     */
+    public long size() {
+        return before[before.length - 1];
+    }
+
+    /**
+     * @param epochDay An epoch day.
+     * @return true if the day is a holiday.
+     */
+    boolean isHoliday(final long epochDay) {
+        final int year = yearOf(epochDay);
+        if (year < 0 || year >= yearStarts.length - 1) {
+            return false;
+        }
+        final long day = epochDay - yearStarts[year];
+        return (words[year * WORDS_PER_YEAR + (int) (day >>> 6)] & (1L << day)) != 0;
+    }
+
+    /**
+     * Count the holidays before the given day by adding up the bits of the year so far.
+     *
+     * @param epochDay An epoch day.
+     * @return The number of holidays before the day.
+     */
+    long countBefore(final long epochDay) {
+        final int year = yearOf(epochDay);
+        if (year < 0) {
+            return 0;
+        }
+        if (year >= yearStarts.length - 1) {
+            return size();
+        }
+        final long day = epochDay - yearStarts[year];
+        final int first = year * WORDS_PER_YEAR;
+        final int partial = first + (int) (day >>> 6);
+        long count = before[year];
+        for (int word = first; word < partial; word++) {
+            count += Long.bitCount(words[word]);
+        }
+        return count + Long.bitCount(words[partial] & ((1L << day) - 1));
+    }
+
+    /**
+     * Make a copy of this calendar with only some of its holidays.
+     *
+     * @param keep Decides whether to keep the holiday on an epoch day.
+     * @return A non-null HolidayCalendar.
+     */
+    HolidayCalendar only(final LongPredicate keep) {
+        final long[] kept = words.clone();
+        for (int word = 0; word < kept.length; word++) {
+            final long firstDay = yearStarts[word / WORDS_PER_YEAR] + (word % WORDS_PER_YEAR) * 64L;
+            for (long bits = kept[word]; bits != 0; bits &= bits - 1) {
+                final int bit = Long.numberOfTrailingZeros(bits);
+                if (!keep.test(firstDay + bit)) {
+                    kept[word] &= ~(1L << bit);
+                }
+            }
+        }
+        return new HolidayCalendar(firstYear, yearStarts, kept);
+    }
+
+    /**
+     * Find the year of an epoch day by estimating from the average length of a year
+     * and correcting against the start of each year.
+     *
+     * @return The index of the year, which is negative before the first year and past the last one after it.
+     */
+    private int yearOf(final long epochDay) {
+        final int years = yearStarts.length - 1;
+        if (years == 0 || epochDay < yearStarts[0]) {
+            return -1;
+        }
+        if (epochDay >= yearStarts[years]) {
+            return years;
+        }
+        int year = (int) Math.min(years - 1, (epochDay - yearStarts[0]) * 400 / DAYS_PER_400_YEARS);
+        while (yearStarts[year] > epochDay) {
+            year--;
+        }
+        while (yearStarts[year + 1] <= epochDay) {
+            year++;
+        }
+        return year;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof HolidayCalendar)) {
+            return false;
+        }
+        final HolidayCalendar that = (HolidayCalendar) o;
+        return firstYear == that.firstYear && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * firstYear + Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return "HolidayCalendar{" + size() + " holidays}";
+    }
+}
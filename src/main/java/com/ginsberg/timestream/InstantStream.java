@@ -0,0 +1,414 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * A builder that creates a stream of Instant objects.
+ * <p>
+ * <pre>
+ * {@code
+ * // Print all of the Instants between now and a second from now, every 250 milliseconds.
+ * InstantStream
+ *     .fromNow()
+ *     .to(1, ChronoUnit.SECONDS)
+ *     .every(Duration.ofMillis(250))
+ *     .stream()
+ *     .forEach(System.out::println);
+ * }
+ * </pre>
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+public class InstantStream extends AbstractComparableStream<Instant> {
+    private Duration step = Duration.ofSeconds(1);
+
+    private InstantStream(final Instant from) {
+        super(from);
+    }
+
+    /**
+     * Create an InstantStream, starting at Instant.now().
+     *
+     * @return A non-null InstantStream.
+     */
+    public static InstantStream fromNow() {
+        final InstantStream stream = new InstantStream(Instant.now());
+        stream.setRelative();
+        return stream;
+    }
+
+    /**
+     * Create an InstantStream, starting at the given Instant.
+     *
+     * @param from A non-null Instant to begin the stream with.
+     * @return A non-null InstantStream.
+     */
+    public static InstantStream from(final Instant from) {
+        return new InstantStream(from);
+    }
+
+    /**
+     * Merge InstantStreams into a single stream, in order, such as to combine many schedules
+     * into one timeline. Each stream is already in order, so only its next element is held,
+     * rather than buffering and sorting everything, and unbounded streams can be merged.
+     *
+     * @param distinct true to produce each instant only once.
+     * @param streams  The non-null streams to merge, which must all move in the same direction.
+     * @return A non-null Stream of Instant, which is infinite if any of the streams are.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public static Stream<Instant> merge(final boolean distinct,
+                                        final InstantStream... streams) {
+        return merge(streams, Comparator.naturalOrder(), distinct);
+    }
+
+    /**
+     * Produce each instant of this stream that is also in every one of the others, lazily. Every stream is
+     * already sorted and distinct, so they are walked together rather than collected into a set, and a
+     * stream with a fixed step jumps over the gaps between matches instead of stepping through them.
+     *
+     * @param others The non-null streams to intersect with, which must move in the same direction as this one.
+     * @return A non-null Stream of Instant, which is infinite only if every stream is.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<Instant> intersect(final InstantStream... others) {
+        return intersection(this, others, Comparator.naturalOrder());
+    }
+
+    /**
+     * Produce each instant of this stream that is in none of the others, lazily, walking the streams together
+     * in the same way as intersect().
+     *
+     * @param others The non-null streams to leave out, which must move in the same direction as this one.
+     * @return A non-null Stream of Instant, which is infinite if this stream is.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<Instant> except(final InstantStream... others) {
+        return difference(this, others, Comparator.naturalOrder());
+    }
+
+    /**
+     * Produce each instant that is in this stream or any of the others, in order and only once, by merging them.
+     *
+     * @param others The non-null streams to add, which must move in the same direction as this one.
+     * @return A non-null Stream of Instant, which is infinite if any of the streams are.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<Instant> union(final InstantStream... others) {
+        return union(this, others, Comparator.naturalOrder());
+    }
+
+    /**
+     * Set the inclusive end point of the stream, using an absolute Instant.
+     *
+     * @param to A nullable Instant to end the stream with (null means infinite).
+     * @return A non-null InstantStream.
+     */
+    public InstantStream to(final Instant to) {
+        setTo(to);
+        return this;
+    }
+
+    /**
+     * Set the inclusive end point of the stream, using a relative duration.
+     *
+     * @param amount The number of units to use when calculating the duration of the stream. May be negative.
+     * @param unit   The non-null unit the amount is denominated in. May not be null.
+     * @return A non-null InstantStream.
+     * @throws java.time.temporal.UnsupportedTemporalTypeException if the unit is not supported.
+     * @see ChronoUnit
+     */
+    public InstantStream to(int amount,
+                            final ChronoUnit unit) {
+        Objects.requireNonNull(unit);
+        setTo(getFrom().plus(amount, unit));
+        return this;
+    }
+
+    /**
+     * Set the exclusive end point of the stream, using an absolute Instant.
+     *
+     * @param until A nullable Instant to end the stream before (null means infinite).
+     * @return A non-null InstantStream.
+     */
+    public InstantStream until(final Instant until) {
+        setUntil(until);
+        return this;
+    }
+
+    /**
+     * Set the exclusive end point of the stream, using a relative duration.
+     *
+     * @param amount The number of units to use when calculating the duration of the stream. May be negative.
+     * @param unit   The non-null unit the amount is denominated in.
+     * @return A non-null InstantStream.
+     * @throws java.time.temporal.UnsupportedTemporalTypeException if the unit is not supported.
+     * @see ChronoUnit
+     */
+    public InstantStream until(int amount,
+                               final ChronoUnit unit) {
+        Objects.requireNonNull(unit);
+        setUntil(getFrom().plus(amount, unit));
+        return this;
+    }
+
+    /**
+     * Set the duration between successive elements produced by the stream. The default
+     * for this builder is 1 Second.
+     *
+     * @param amount The number of units to use when calculating the next element of the stream.
+     * @param unit   The non-null unit the amount is denominated in.
+     * @return A non-null InstantStream.
+     * @throws java.time.temporal.UnsupportedTemporalTypeException if the unit is not supported.
+     * @see ChronoUnit
+     */
+    public InstantStream every(int amount,
+                               final ChronoUnit unit) {
+        Objects.requireNonNull(unit);
+        if (amount == 0) {
+            throw new IllegalArgumentException("Amount must be non-zero");
+        }
+        // Fail fast on units (such as months) that an Instant can't be moved by.
+        Instant.EPOCH.plus(0, unit);
+        this.step = unit.getDuration().multipliedBy(amount).abs();
+        return this;
+    }
+
+    /**
+     * Set the duration between successive elements produced by the stream. The default
+     * for this builder is 1 Second. Durations are used to the nanosecond.
+     *
+     * @param duration The interval to use when calculating the next element of the stream.
+     * @return A non-null InstantStream.
+     */
+    public InstantStream every(final Duration duration) {
+        Objects.requireNonNull(duration);
+        if (duration.isZero()) {
+            throw new IllegalArgumentException("Duration must be non-zero");
+        }
+        this.step = duration.abs();
+        return this;
+    }
+
+    /**
+     * Produce a stream of the number of seconds from the epoch of 1970-01-01T00:00:00Z
+     * to each element of this stream, without creating any Instant objects.
+     *
+     * @return A non-null LongStream of epoch seconds.
+     */
+    public LongStream epochSecondStream() {
+        return epochStream(EpochStep.SECONDS);
+    }
+
+    /**
+     * Produce a stream of the number of milliseconds from the epoch of 1970-01-01T00:00:00Z
+     * to each element of this stream, without creating any Instant objects.
+     *
+     * @return A non-null LongStream of epoch milliseconds.
+     */
+    public LongStream epochMilliStream() {
+        return epochStream(EpochStep.MILLIS);
+    }
+
+    /**
+     * Produce a stream of the number of nanoseconds from the epoch of 1970-01-01T00:00:00Z
+     * to each element of this stream, without creating any Instant objects.
+     *
+     * @return A non-null LongStream of epoch nanoseconds.
+     * @throws ArithmeticException if an element is too far from the epoch to fit in a long.
+     */
+    public LongStream epochNanoStream() {
+        return epochStream(EpochStep.NANOS);
+    }
+
+    /**
+     * Produce the intervals between successive elements (see intervals()) as epoch milliseconds,
+     * packed into pairs: the start of each interval followed by its end.
+     *
+     * @return A non-null LongStream of interval start and end points, in epoch milliseconds.
+     */
+    public LongStream epochMilliIntervalStream() {
+        return packedIntervals(epochMilliStream(), Instant::toEpochMilli);
+    }
+
+    private LongStream epochStream(final EpochStep.Converter converter) {
+        final EpochStep epochStep = epochStep();
+        return indexedLongStream(index -> epochStep.valueAt(index, converter));
+    }
+
+    private EpochStep epochStep() {
+        return new EpochStep(getFrom().getEpochSecond(), getFrom().getNano(), step, isForward());
+    }
+
+    /**
+     * Produce the elements of this stream in arrays of the given size, ready to be handed
+     * to something that works in batches, such as a JDBC batch insert. The last array holds
+     * whatever is left over, so may be shorter. When the step is fixed, each batch is
+     * calculated from its index, so a parallel stream splits the batches evenly.
+     *
+     * @param size The positive number of elements in each batch.
+     * @return A non-null Stream of Instant arrays, which is infinite if this stream is.
+     * @throws IllegalArgumentException if size is not positive.
+     */
+    public Stream<Instant[]> batches(final int size) {
+        return batches(size, Instant[]::new);
+    }
+
+    /**
+     * Produce the epoch millisecond of each element of this stream in arrays of the given size, the
+     * last of which may be shorter. When the step is fixed, each batch is calculated from its
+     * index, so a parallel stream splits the batches evenly.
+     *
+     * @param size The positive number of values in each batch.
+     * @return A non-null Stream of long arrays, which is infinite if this stream is.
+     * @throws IllegalArgumentException if size is not positive.
+     * @see #epochMilliStream()
+     */
+    public Stream<long[]> epochMilliBatches(final int size) {
+        final EpochStep epochStep = epochStep();
+        return longBatches(size, index -> epochStep.valueAt(index, EpochStep.MILLIS), this::epochMilliStream);
+    }
+
+    /**
+     * Gather every element of this stream into an array. When the step is fixed, the length
+     * is worked out from the end points and the step, so the array is allocated once and
+     * filled directly, rather than grown as the stream is consumed.
+     *
+     * @return A non-null array of Instant.
+     * @throws IllegalStateException if the stream is infinite or too long to fit in an array.
+     */
+    public Instant[] toArray() {
+        return toArray(Instant[]::new);
+    }
+
+    /**
+     * Gather the epoch millisecond of every element of this stream into an array. When the step is
+     * fixed, the array is allocated at exactly the right length and filled directly, without
+     * creating any Instant objects.
+     *
+     * @return A non-null array of epoch milliseconds.
+     * @throws IllegalStateException if the stream is infinite or too long to fit in an array.
+     * @see #epochMilliStream()
+     */
+    public long[] toEpochMilliArray() {
+        final EpochStep epochStep = epochStep();
+        return toLongArray(index -> epochStep.valueAt(index, EpochStep.MILLIS), this::epochMilliStream);
+    }
+
+    /**
+     * Produce a reusable cursor that moves through the elements of this stream in place,
+     * without creating an Instant for each one. The date and time fields of the cursor
+     * are at UTC.
+     *
+     * @return A non-null TimeCursor, positioned before the first element.
+     */
+    public TimeCursor<Instant> cursor() {
+        return TimeCursor.of(
+                getFrom().atZone(ZoneOffset.UTC),
+                getTo() == null ? null : getTo().atZone(ZoneOffset.UTC),
+                isForward() ? step : step.negated(),
+                canTake(),
+                cursor -> Instant.ofEpochSecond(cursor.epochSecond(), cursor.nano()));
+    }
+
+    /**
+     * Describe this stream for a SeriesCache.
+     *
+     * @return A non-null key.
+     */
+    List<Object> seriesKey() {
+        final ChronoUnit unit = EpochStep.unitOf(step);
+        return seriesKey(EpochStep.amountOf(step, unit), unit, null);
+    }
+
+    /**
+     * Gather this stream for a SeriesCache, as epoch seconds.
+     *
+     * @return A non-null series.
+     */
+    CachedSeries<Instant> materialize() {
+        return CachedSeries.ofEpochSeconds(
+                toArray(),
+                Instant::getEpochSecond,
+                Instant::getNano,
+                Instant::ofEpochSecond);
+    }
+
+    /**
+     * Move a stream from fromNow() back to the start of its day at UTC, along with its
+     * end point, so that it is the same stream all day.
+     *
+     * @return A non-null InstantStream, which is this one if it isn't from fromNow().
+     */
+    InstantStream anchoredToDay() {
+        if (!isRelative()) {
+            return this;
+        }
+        final Duration sinceMidnight = Duration.between(getFrom().truncatedTo(ChronoUnit.DAYS), getFrom());
+        final InstantStream anchored = new InstantStream(getFrom().minus(sinceMidnight));
+        anchored.step = step;
+        return withEndOf(anchored, end -> end.minus(sinceMidnight));
+    }
+
+    @Override
+    InstantStream copy() {
+        final InstantStream copy = new InstantStream(getFrom());
+        copy.step = step;
+        return withEndOf(copy, UnaryOperator.identity());
+    }
+
+    @Override
+    UnaryOperator<Instant> next() {
+        return isForward() ? instant -> instant.plus(step) : instant -> instant.minus(step);
+    }
+
+    @Override
+    boolean hasFixedStep() {
+        return true;
+    }
+
+    @Override
+    LongFunction<Instant> indexer() {
+        final EpochStep epochStep = epochStep();
+        return index -> Instant.ofEpochSecond(epochStep.epochSecondAt(index), epochStep.nanoAt(index));
+    }
+
+    @Override
+    long estimateIndexOf(final Instant value) {
+        return epochStep().stepsTo(value.getEpochSecond(), value.getNano());
+    }
+}
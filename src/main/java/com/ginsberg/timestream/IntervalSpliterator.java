@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Turns a spliterator of elements into a spliterator of the intervals between them.
+ * Each interval ends where the next element starts, so every element is only
+ * calculated once. The final interval of a bounded series is clamped to its end
+ * point, which is where it always ends, because the element after the last one is
+ * past the end point. If the last element is the end point, there is no final interval.
+ *
+ * @param <T> The type of element.
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class IntervalSpliterator<T extends Comparable<? super T>> implements Spliterator<TimeInterval<T>> {
+    private final Spliterator<T> source;
+    private final UnaryOperator<T> next;
+    private final T end;
+    private final boolean forward;
+    private final boolean endsAtEnd;
+    private T pending;
+
+    /**
+     * @param source  The elements to take intervals between.
+     * @param next    Calculates the element after an element.
+     * @param end     The end point of the series, or null if there is none.
+     * @param forward true if the series moves forward through time.
+     */
+    IntervalSpliterator(final Spliterator<T> source,
+                        final UnaryOperator<T> next,
+                        final T end,
+                        final boolean forward) {
+        this(source, next, end, forward, true);
+    }
+
+    private IntervalSpliterator(final Spliterator<T> source,
+                                final UnaryOperator<T> next,
+                                final T end,
+                                final boolean forward,
+                                final boolean endsAtEnd) {
+        this.source = source;
+        this.next = next;
+        this.end = end;
+        this.forward = forward;
+        this.endsAtEnd = endsAtEnd;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super TimeInterval<T>> action) {
+        if (pending == null && !source.tryAdvance(this::setPending)) {
+            return false;
+        }
+        final T start = pending;
+        pending = null;
+        if (source.tryAdvance(this::setPending)) {
+            action.accept(new TimeInterval<>(start, pending));
+            return true;
+        }
+        final T last = endsAtEnd && end != null ? end : clamp(next.apply(start));
+        if (start.compareTo(last) == 0) {
+            return false;
+        }
+        action.accept(new TimeInterval<>(start, last));
+        return true;
+    }
+
+    /**
+     * The last interval of the first half of a split ends where the second half begins,
+     * which is the element after its last element. Some sources split off everything
+     * that is left, so that element is clamped to the end point.
+     */
+    @Override
+    public Spliterator<TimeInterval<T>> trySplit() {
+        if (pending != null) {
+            return null;
+        }
+        final Spliterator<T> prefix = source.trySplit();
+        return prefix == null ? null : new IntervalSpliterator<>(prefix, next, end, forward, false);
+    }
+
+    @Override
+    public long estimateSize() {
+        return source.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+    }
+
+    private T clamp(final T value) {
+        if (end == null) {
+            return value;
+        }
+        final int compare = value.compareTo(end);
+        return (forward ? compare > 0 : compare < 0) ? end : value;
+    }
+
+    private void setPending(final T value) {
+        pending = value;
+    }
+}
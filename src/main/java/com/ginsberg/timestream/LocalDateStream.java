@@ -26,9 +26,19 @@ package com.ginsberg.timestream;
 
 import java.time.LocalDate;
 import java.time.Period;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoField;
 import java.time.temporal.ChronoUnit;
+import java.time.temporal.UnsupportedTemporalTypeException;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
 import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 /**
  * A builder that creates a stream of LocalDate objects.
@@ -50,6 +60,8 @@ import java.util.function.UnaryOperator;
 public class LocalDateStream extends AbstractComparableStream<LocalDate> {
     private long amount = 1;
     private ChronoUnit unit = ChronoUnit.DAYS;
+    private BusinessDays businessDays;
+    private RecurrenceRule recurrence;
 
     private LocalDateStream(final LocalDate from) {
         super(from);
@@ -61,7 +73,9 @@ public class LocalDateStream extends AbstractComparableStream<LocalDate> {
      * @return A non-null LocalDateStream.
      */
     public static LocalDateStream fromNow() {
-        return new LocalDateStream(LocalDate.now());
+        final LocalDateStream stream = new LocalDateStream(LocalDate.now());
+        stream.setRelative();
+        return stream;
     }
 
     /**
@@ -74,6 +88,57 @@ public class LocalDateStream extends AbstractComparableStream<LocalDate> {
         return new LocalDateStream(from);
     }
 
+    /**
+     * Merge LocalDateStreams into a single stream, in order, such as to combine many schedules
+     * into one timeline. Each stream is already in order, so only its next element is held,
+     * rather than buffering and sorting everything, and unbounded streams can be merged.
+     *
+     * @param distinct true to produce each date only once.
+     * @param streams  The non-null streams to merge, which must all move in the same direction.
+     * @return A non-null Stream of LocalDate, which is infinite if any of the streams are.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public static Stream<LocalDate> merge(final boolean distinct,
+                                          final LocalDateStream... streams) {
+        return merge(streams, Comparator.naturalOrder(), distinct);
+    }
+
+    /**
+     * Produce each date of this stream that is also in every one of the others, lazily. Every stream is
+     * already sorted and distinct, so they are walked together rather than collected into a set, and a
+     * stream with a fixed step jumps over the gaps between matches instead of stepping through them.
+     *
+     * @param others The non-null streams to intersect with, which must move in the same direction as this one.
+     * @return A non-null Stream of LocalDate, which is infinite only if every stream is.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<LocalDate> intersect(final LocalDateStream... others) {
+        return intersection(this, others, Comparator.naturalOrder());
+    }
+
+    /**
+     * Produce each date of this stream that is in none of the others, lazily, walking the streams together
+     * in the same way as intersect().
+     *
+     * @param others The non-null streams to leave out, which must move in the same direction as this one.
+     * @return A non-null Stream of LocalDate, which is infinite if this stream is.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<LocalDate> except(final LocalDateStream... others) {
+        return difference(this, others, Comparator.naturalOrder());
+    }
+
+    /**
+     * Produce each date that is in this stream or any of the others, in order and only once, by merging them.
+     *
+     * @param others The non-null streams to add, which must move in the same direction as this one.
+     * @return A non-null Stream of LocalDate, which is infinite if any of the streams are.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<LocalDate> union(final LocalDateStream... others) {
+        return union(this, others, Comparator.naturalOrder());
+    }
+
     /**
      * Set the inclusive end point of the stream, using an absolute LocalDate.
      *
@@ -143,6 +208,8 @@ public class LocalDateStream extends AbstractComparableStream<LocalDate> {
         Objects.requireNonNull(unit);
         this.amount = Math.abs(amount);
         this.unit = unit;
+        this.businessDays = null;
+        this.recurrence = null;
         LocalDate.now().plus(0, unit); // Fail fast test
         if (this.amount == 0) {
             throw new IllegalArgumentException("Amount must be non-zero");
@@ -163,6 +230,8 @@ public class LocalDateStream extends AbstractComparableStream<LocalDate> {
         Objects.requireNonNull(period);
         this.unit = ChronoUnit.DAYS;
         this.amount = Math.abs(period.get(this.unit));
+        this.businessDays = null;
+        this.recurrence = null;
         LocalDate.now().plus(0, unit); // Fail fast test
         if (this.amount == 0) {
             throw new IllegalArgumentException("Effective amount must be non-zero (Period resolves to zero duration)");
@@ -170,8 +239,302 @@ public class LocalDateStream extends AbstractComparableStream<LocalDate> {
         return this;
     }
 
+    /**
+     * Step through the business days, skipping over the weekend. If the stream starts on
+     * the weekend, the first element is the nearest business day in the direction of the
+     * stream. Weekends are jumped over arithmetically rather than filtered out, so counting
+     * the elements or getting the nth one doesn't depend on the length of the stream.
+     *
+     * @param amount       The number of business days between elements.
+     * @param businessDays The non-null definition of a business day.
+     * @return A non-null LocalDateStream.
+     * @see BusinessDays#withWeekend(java.time.DayOfWeek...)
+     */
+    public LocalDateStream every(int amount,
+                                 final BusinessDays businessDays) {
+        Objects.requireNonNull(businessDays);
+        this.amount = Math.abs(amount);
+        this.unit = ChronoUnit.DAYS;
+        this.businessDays = businessDays;
+        this.recurrence = null;
+        if (this.amount == 0) {
+            throw new IllegalArgumentException("Amount must be non-zero");
+        }
+        return this;
+    }
+
+    /**
+     * Step through every weekday, Monday to Friday.
+     *
+     * @return A non-null LocalDateStream.
+     * @see #every(int, BusinessDays)
+     */
+    public LocalDateStream everyWeekday() {
+        return every(1, BusinessDays.BUSINESS_DAYS);
+    }
+
+    /**
+     * Step through every weekday, Monday to Friday, that isn't a holiday.
+     *
+     * @param holidays The non-null holidays to skip.
+     * @return A non-null LocalDateStream.
+     * @see BusinessDays#withHolidays(HolidayCalendar)
+     */
+    public LocalDateStream everyBusinessDay(final HolidayCalendar holidays) {
+        return every(1, BusinessDays.BUSINESS_DAYS.withHolidays(holidays));
+    }
+
+    /**
+     * Produce the dates that match a recurrence rule, such as the second Tuesday of each month.
+     * The start of the stream is the DTSTART of the rule. The matching days of each period of
+     * the rule are calculated directly, so the stream doesn't visit the days in between, and a
+     * bounded stream can be counted and split by period.
+     *
+     * @param rule The non-null rule, which may not have a BYHOUR, BYMINUTE or BYSECOND.
+     * @return A non-null LocalDateStream.
+     * @throws IllegalArgumentException if the rule has times of day.
+     */
+    public LocalDateStream recurring(final RecurrenceRule rule) {
+        Objects.requireNonNull(rule);
+        if (rule.hasTimes()) {
+            throw new IllegalArgumentException("Dates can't recur by time of day: " + rule);
+        }
+        this.amount = 1;
+        this.unit = ChronoUnit.DAYS;
+        this.businessDays = null;
+        this.recurrence = rule;
+        return this;
+    }
+
+    /**
+     * Produce a stream of the epoch day (days since 1970-01-01) of each element of this
+     * stream. When the step is fixed, the values are calculated directly, without
+     * creating any LocalDate objects.
+     *
+     * @return A non-null LongStream of epoch days.
+     * @see LocalDate#toEpochDay()
+     */
+    public LongStream epochDayStream() {
+        final LongUnaryOperator indexer = epochDayIndexer();
+        return indexer == null
+                ? stream().mapToLong(LocalDate::toEpochDay)
+                : indexedLongStream(indexer);
+    }
+
+    /**
+     * Produce a stream of the epoch day (days since 1970-01-01) of each element of this
+     * stream, as ints. When the step is fixed, the values are calculated directly, without
+     * creating any LocalDate objects.
+     *
+     * @return A non-null IntStream of epoch days.
+     * @throws ArithmeticException if an epoch day does not fit in an int.
+     * @see #epochDayStream()
+     */
+    public IntStream epochDayIntStream() {
+        return epochDayStream().mapToInt(Math::toIntExact);
+    }
+
+    /**
+     * Days and weeks are a fixed number of epoch days apart. Month-based units are a
+     * fixed number of months apart, which is turned into epoch days arithmetically.
+     * Business days are a fixed number of business days apart.
+     *
+     * @return A function from index to epoch day, or null if the step isn't fixed.
+     */
+    private LongUnaryOperator epochDayIndexer() {
+        if (!hasFixedStep()) {
+            return null;
+        }
+        final LocalDate from = getFrom();
+        final long step = isForward() ? amount : 0 - amount;
+        if (businessDays != null) {
+            final BusinessDays businessDays = this.businessDays;
+            final long first = firstBusinessDay();
+            return index -> ChronoField.EPOCH_DAY.checkValidValue(
+                    businessDays.epochDay(Math.addExact(first, Math.multiplyExact(index, step))));
+        }
+        if (unit == ChronoUnit.DAYS || unit == ChronoUnit.WEEKS) {
+            final long epochDay = from.toEpochDay();
+            final long days = unit == ChronoUnit.WEEKS ? step * 7 : step;
+            return index -> ChronoField.EPOCH_DAY.checkValidValue(
+                    Math.addExact(epochDay, Math.multiplyExact(index, days)));
+        }
+        final long prolepticMonth = from.getYear() * 12L + from.getMonthValue() - 1;
+        final long months = step * CalendarMath.monthsIn(unit);
+        final int day = from.getDayOfMonth();
+        return index -> CalendarMath.epochDay(
+                Math.addExact(prolepticMonth, Math.multiplyExact(index, months)),
+                day);
+    }
+
+    /**
+     * Produce the elements of this stream in arrays of the given size, ready to be handed
+     * to something that works in batches, such as a JDBC batch insert. The last array holds
+     * whatever is left over, so may be shorter. When the step is fixed, each batch is
+     * calculated from its index, so a parallel stream splits the batches evenly.
+     *
+     * @param size The positive number of elements in each batch.
+     * @return A non-null Stream of LocalDate arrays, which is infinite if this stream is.
+     * @throws IllegalArgumentException if size is not positive.
+     */
+    public Stream<LocalDate[]> batches(final int size) {
+        return batches(size, LocalDate[]::new);
+    }
+
+    /**
+     * Produce the epoch day of each element of this stream in arrays of the given size, the
+     * last of which may be shorter. When the step is fixed, each batch is calculated from its
+     * index, so a parallel stream splits the batches evenly.
+     *
+     * @param size The positive number of values in each batch.
+     * @return A non-null Stream of long arrays, which is infinite if this stream is.
+     * @throws IllegalArgumentException if size is not positive.
+     * @see #epochDayStream()
+     */
+    public Stream<long[]> epochDayBatches(final int size) {
+        return longBatches(size, epochDayIndexer(), this::epochDayStream);
+    }
+
+    /**
+     * Gather every element of this stream into an array. When the step is fixed, the length
+     * is worked out from the end points and the step, so the array is allocated once and
+     * filled directly, rather than grown as the stream is consumed.
+     *
+     * @return A non-null array of LocalDate.
+     * @throws IllegalStateException if the stream is infinite or too long to fit in an array.
+     */
+    public LocalDate[] toArray() {
+        return toArray(LocalDate[]::new);
+    }
+
+    /**
+     * Gather the epoch day of every element of this stream into an array. When the step is
+     * fixed, the array is allocated at exactly the right length and filled directly, without
+     * creating any LocalDate objects.
+     *
+     * @return A non-null array of epoch days.
+     * @throws IllegalStateException if the stream is infinite or too long to fit in an array.
+     * @see #epochDayStream()
+     */
+    public long[] toEpochDayArray() {
+        return toLongArray(epochDayIndexer(), this::epochDayStream);
+    }
+
+    /**
+     * Produce a reusable cursor that moves through the elements of this stream in place,
+     * without creating a LocalDate for each one. The time fields of the cursor are always
+     * zero, and epochSecond() is the start of the day at UTC.
+     *
+     * @return A non-null TimeCursor, positioned before the first element.
+     * @throws java.time.temporal.UnsupportedTemporalTypeException if the unit can't be stepped by.
+     */
+    public TimeCursor<LocalDate> cursor() {
+        if (businessDays != null) {
+            throw new UnsupportedTemporalTypeException("Cursors can't step by " + businessDays);
+        }
+        if (recurrence != null) {
+            throw new UnsupportedTemporalTypeException("Cursors can't follow " + recurrence);
+        }
+        return TimeCursor.of(
+                getFrom().atStartOfDay(ZoneOffset.UTC),
+                getTo() == null ? null : getTo().atStartOfDay(ZoneOffset.UTC),
+                isForward() ? amount : 0 - amount,
+                unit,
+                canTake(),
+                cursor -> LocalDate.of(cursor.year(), cursor.month(), cursor.day()));
+    }
+
+    /**
+     * Describe this stream for a SeriesCache.
+     *
+     * @return A non-null key.
+     */
+    List<Object> seriesKey() {
+        return seriesKey(amount, recurrence != null ? recurrence : businessDays != null ? businessDays : unit, null);
+    }
+
+    /**
+     * Gather this stream for a SeriesCache, as epoch days.
+     *
+     * @return A non-null series.
+     */
+    CachedSeries<LocalDate> materialize() {
+        return new CachedSeries<>(toEpochDayArray(), null, (day, nano) -> LocalDate.ofEpochDay(day));
+    }
+
+    /**
+     * The first element is the nearest business day to the start, in the direction of the stream.
+     *
+     * @return The business day number of the first element.
+     */
+    private long firstBusinessDay() {
+        final long from = getFrom().toEpochDay();
+        return isForward() ? businessDays.ordinal(from) : businessDays.ordinal(from + 1) - 1;
+    }
+
+    @Override
+    LocalDateStream copy() {
+        final LocalDateStream copy = new LocalDateStream(getFrom());
+        copy.amount = amount;
+        copy.unit = unit;
+        copy.businessDays = businessDays;
+        copy.recurrence = recurrence;
+        return withEndOf(copy, UnaryOperator.identity());
+    }
+
     @Override
     UnaryOperator<LocalDate> next() {
-        return date -> date.plus(isForward() ? amount : 0 - amount, unit);
+        if (recurrence != null) {
+            final RecurrenceSchedule schedule = new RecurrenceSchedule(recurrence, getFrom().atStartOfDay());
+            final boolean forward = isForward();
+            return date -> RecurrenceSpliterator.following(schedule, date.atStartOfDay(), forward).toLocalDate();
+        }
+        final long step = isForward() ? amount : 0 - amount;
+        if (businessDays != null) {
+            final BusinessDays businessDays = this.businessDays;
+            return date -> LocalDate.ofEpochDay(businessDays.plus(date.toEpochDay(), step));
+        }
+        return date -> date.plus(step, unit);
+    }
+
+    @Override
+    boolean hasFixedStep() {
+        return recurrence == null
+                && (businessDays != null || isFixedDateStep(unit, getFrom().getDayOfMonth()));
+    }
+
+    @Override
+    RecurrenceSpliterator<LocalDate> recurrenceSpliterator() {
+        if (recurrence == null) {
+            return null;
+        }
+        return RecurrenceSpliterator.of(
+                recurrence,
+                getFrom().atStartOfDay(),
+                getTo() == null ? null : getTo().atStartOfDay(),
+                null,
+                isForward(),
+                second -> LocalDate.ofEpochDay(Math.floorDiv(second, CalendarMath.SECONDS_PER_DAY)),
+                canTake());
+    }
+
+    @Override
+    LongFunction<LocalDate> indexer() {
+        if (businessDays != null) {
+            final LongUnaryOperator epochDay = epochDayIndexer();
+            return index -> LocalDate.ofEpochDay(epochDay.applyAsLong(index));
+        }
+        final LocalDate from = getFrom();
+        final long step = isForward() ? amount : 0 - amount;
+        final ChronoUnit unit = this.unit;
+        return index -> from.plus(Math.multiplyExact(index, step), unit);
+    }
+
+    @Override
+    long estimateIndexOf(final LocalDate value) {
+        if (businessDays != null) {
+            return Math.abs(businessDays.ordinal(value.toEpochDay()) - firstBusinessDay()) / amount;
+        }
+        return Math.abs(unit.between(getFrom(), value)) / amount;
     }
 }
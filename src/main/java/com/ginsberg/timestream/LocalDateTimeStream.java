@@ -26,9 +26,19 @@ package com.ginsberg.timestream;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
+import java.time.temporal.UnsupportedTemporalTypeException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
 import java.util.function.UnaryOperator;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 /**
  * A builder that creates a stream of LocalDateTime objects.
@@ -50,6 +60,9 @@ import java.util.function.UnaryOperator;
 public class LocalDateTimeStream extends AbstractComparableStream<LocalDateTime> {
     private long amount = 1;
     private ChronoUnit unit = ChronoUnit.SECONDS;
+    private BusinessDays businessDays;
+    private LocalTime open;
+    private LocalTime close;
 
     private LocalDateTimeStream(final LocalDateTime from) {
         super(from);
@@ -61,7 +74,9 @@ public class LocalDateTimeStream extends AbstractComparableStream<LocalDateTime>
      * @return A non-null LocalDateTimeStream.
      */
     public static LocalDateTimeStream fromNow() {
-        return new LocalDateTimeStream(LocalDateTime.now());
+        final LocalDateTimeStream stream = new LocalDateTimeStream(LocalDateTime.now());
+        stream.setRelative();
+        return stream;
     }
 
     /**
@@ -74,6 +89,67 @@ public class LocalDateTimeStream extends AbstractComparableStream<LocalDateTime>
         return new LocalDateTimeStream(from);
     }
 
+    /**
+     * Merge LocalDateTimeStreams into a single stream, in order, such as to combine many schedules
+     * into one timeline. Each stream is already in order, so only its next element is held,
+     * rather than buffering and sorting everything, and unbounded streams can be merged.
+     *
+     * @param distinct true to produce each date-time only once.
+     * @param streams  The non-null streams to merge, which must all move in the same direction.
+     * @return A non-null Stream of LocalDateTime, which is infinite if any of the streams are.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public static Stream<LocalDateTime> merge(final boolean distinct,
+                                              final LocalDateTimeStream... streams) {
+        return merge(streams, Comparator.naturalOrder(), distinct);
+    }
+
+    /**
+     * Produce each date-time of this stream that is also in every one of the others, lazily. Every stream is
+     * already sorted and distinct, so they are walked together rather than collected into a set, and a
+     * stream with a fixed step jumps over the gaps between matches instead of stepping through them.
+     *
+     * @param others The non-null streams to intersect with, which must move in the same direction as this one.
+     * @return A non-null Stream of LocalDateTime, which is infinite only if every stream is.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<LocalDateTime> intersect(final LocalDateTimeStream... others) {
+        return intersection(this, others, Comparator.naturalOrder());
+    }
+
+    /**
+     * Produce each date-time of this stream that is in none of the others, lazily, walking the streams together
+     * in the same way as intersect().
+     *
+     * <pre>
+     * {@code
+     * final Stream<LocalDateTime> ticks = LocalDateTimeStream
+     *     .from(start)
+     *     .until(end)
+     *     .every(1, ChronoUnit.HOURS)
+     *     .except(maintenanceWindows);
+     * }
+     * </pre>
+     *
+     * @param others The non-null streams to leave out, which must move in the same direction as this one.
+     * @return A non-null Stream of LocalDateTime, which is infinite if this stream is.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<LocalDateTime> except(final LocalDateTimeStream... others) {
+        return difference(this, others, Comparator.naturalOrder());
+    }
+
+    /**
+     * Produce each date-time that is in this stream or any of the others, in order and only once, by merging them.
+     *
+     * @param others The non-null streams to add, which must move in the same direction as this one.
+     * @return A non-null Stream of LocalDateTime, which is infinite if any of the streams are.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<LocalDateTime> union(final LocalDateTimeStream... others) {
+        return union(this, others, Comparator.naturalOrder());
+    }
+
     /**
      * Set the inclusive end point of the stream, using an absolute LocalDateTime.
      *
@@ -146,30 +222,411 @@ public class LocalDateTimeStream extends AbstractComparableStream<LocalDateTime>
         if (this.amount == 0) {
             throw new IllegalArgumentException("Amount must be non-zero");
         }
+        keepBusinessHours();
         return this;
     }
 
     /**
      * Set the duration between successive elements produced by the stream. The default
-     * for this builder is 1 Second.
+     * for this builder is 1 Second. Durations are used to the nanosecond.
      *
      * @param duration The interval to use when calculating the next element of the stream.
      * @return A non-null LocalDateTimeStream.
-     * @throws java.time.temporal.UnsupportedTemporalTypeException if the unit is not supported.
-     * @see ChronoUnit
+     * @throws ArithmeticException if the duration is too long to measure at its precision.
      */
     public LocalDateTimeStream every(final Duration duration) {
-        Objects.requireNonNull(unit);
-        this.unit = ChronoUnit.SECONDS;
-        this.amount = Math.abs(duration.get(this.unit));
+        Objects.requireNonNull(duration);
+        this.unit = EpochStep.unitOf(duration);
+        this.amount = EpochStep.amountOf(duration, this.unit);
         if (this.amount == 0) {
             throw new IllegalArgumentException("Effective amount must be non-zero (Duration resolves to zero duration)");
         }
+        keepBusinessHours();
+        return this;
+    }
+
+    /**
+     * Step through the business days, at the time of day that the stream starts, skipping
+     * over the weekend. If the stream starts on the weekend, the first element is on the
+     * nearest business day in the direction of the stream. Weekends are jumped over
+     * arithmetically rather than filtered out, so counting the elements or getting the nth
+     * one doesn't depend on the length of the stream.
+     *
+     * @param amount       The number of business days between elements.
+     * @param businessDays The non-null definition of a business day.
+     * @return A non-null LocalDateTimeStream.
+     * @see BusinessDays#withWeekend(java.time.DayOfWeek...)
+     */
+    public LocalDateTimeStream every(int amount,
+                                     final BusinessDays businessDays) {
+        Objects.requireNonNull(businessDays);
+        this.amount = Math.abs(amount);
+        this.unit = ChronoUnit.DAYS;
+        this.businessDays = businessDays;
+        this.open = null;
+        this.close = null;
+        if (this.amount == 0) {
+            throw new IllegalArgumentException("Amount must be non-zero");
+        }
+        return this;
+    }
+
+    /**
+     * Step through every weekday, Monday to Friday, at the time of day that the stream starts.
+     *
+     * @return A non-null LocalDateTimeStream.
+     * @see #every(int, BusinessDays)
+     */
+    public LocalDateTimeStream everyWeekday() {
+        return every(1, BusinessDays.BUSINESS_DAYS);
+    }
+
+    /**
+     * Only produce elements during business hours, from the opening time (inclusive) to the
+     * closing time (exclusive) of each business day. Each day starts again at the opening time
+     * and steps by the amount set by every(), which must be time-based, so the elements form
+     * a grid of the same times every business day. As with business days, the grid is
+     * calculated rather than filtered, so counting the elements or getting the nth one doesn't
+     * depend on the length of the stream.
+     *
+     * @param open         The non-null time the first element of each day is at.
+     * @param close        The non-null time each day ends before, which must be after open.
+     * @param businessDays The non-null definition of a business day.
+     * @return A non-null LocalDateTimeStream.
+     * @throws IllegalArgumentException if close isn't after open, or the step isn't time-based.
+     */
+    public LocalDateTimeStream duringBusinessHours(final LocalTime open,
+                                                   final LocalTime close,
+                                                   final BusinessDays businessDays) {
+        Objects.requireNonNull(open);
+        Objects.requireNonNull(close);
+        Objects.requireNonNull(businessDays);
+        if (!close.isAfter(open)) {
+            throw new IllegalArgumentException("Business hours must close after they open");
+        }
+        this.businessDays = businessDays;
+        this.open = open;
+        this.close = close;
+        keepBusinessHours();
         return this;
     }
 
+    /**
+     * A new step replaces stepping by business days, but only changes the spacing of business hours.
+     */
+    private void keepBusinessHours() {
+        if (open == null) {
+            businessDays = null;
+        } else if (!unit.isTimeBased()) {
+            throw new IllegalArgumentException("Business hours must step by a time-based unit");
+        }
+    }
+
+    /**
+     * Produce a stream of the number of seconds from the epoch of 1970-01-01T00:00:00Z
+     * to each element of this stream, at the given offset. When the step is a fixed length
+     * of time, the values are calculated directly, without creating any LocalDateTime objects.
+     *
+     * @param offset The non-null offset of each element from UTC.
+     * @return A non-null LongStream of epoch seconds.
+     */
+    public LongStream epochSecondStream(final ZoneOffset offset) {
+        Objects.requireNonNull(offset);
+        return epochStream(offset, EpochStep.SECONDS);
+    }
+
+    /**
+     * Produce a stream of the number of milliseconds from the epoch of 1970-01-01T00:00:00Z
+     * to each element of this stream, at the given offset. When the step is a fixed length
+     * of time, the values are calculated directly, without creating any LocalDateTime objects.
+     *
+     * @param offset The non-null offset of each element from UTC.
+     * @return A non-null LongStream of epoch milliseconds.
+     */
+    public LongStream epochMilliStream(final ZoneOffset offset) {
+        Objects.requireNonNull(offset);
+        return epochStream(offset, EpochStep.MILLIS);
+    }
+
+    /**
+     * Produce a stream of the number of nanoseconds from the epoch of 1970-01-01T00:00:00Z
+     * to each element of this stream, at the given offset. When the step is a fixed length
+     * of time, the values are calculated directly, without creating any LocalDateTime objects.
+     *
+     * @param offset The non-null offset of each element from UTC.
+     * @return A non-null LongStream of epoch nanoseconds.
+     * @throws ArithmeticException if an element is too far from the epoch to fit in a long.
+     */
+    public LongStream epochNanoStream(final ZoneOffset offset) {
+        Objects.requireNonNull(offset);
+        return epochStream(offset, EpochStep.NANOS);
+    }
+
+    /**
+     * Produce the intervals between successive elements (see intervals()) as epoch milliseconds
+     * at the given offset, packed into pairs: the start of each interval followed by its end.
+     *
+     * @param offset The non-null offset of each element from UTC.
+     * @return A non-null LongStream of interval start and end points, in epoch milliseconds.
+     */
+    public LongStream epochMilliIntervalStream(final ZoneOffset offset) {
+        Objects.requireNonNull(offset);
+        return packedIntervals(
+                epochMilliStream(offset),
+                date -> EpochStep.epochMilli(date.toEpochSecond(offset), date.getNano()));
+    }
+
+    private LongStream epochStream(final ZoneOffset offset,
+                                   final EpochStep.Converter converter) {
+        final EpochStep step = epochStep(offset);
+        return step == null
+                ? stream().mapToLong(date -> converter.convert(date.toEpochSecond(offset), date.getNano()))
+                : indexedLongStream(index -> step.valueAt(index, converter));
+    }
+
+    /**
+     * Epoch milliseconds are calculated by index along the epochStep().
+     *
+     * @param offset The non-null offset of each element from UTC.
+     * @return A function from index to epoch millisecond, or null if the step isn't fixed.
+     */
+    private LongUnaryOperator epochMilliIndexer(final ZoneOffset offset) {
+        final EpochStep step = epochStep(offset);
+        return step == null ? null : index -> step.valueAt(index, EpochStep.MILLIS);
+    }
+
+    /**
+     * With a fixed offset, everything up to weeks is a fixed length of time.
+     * Months and longer, and business days, have to be calculated from each element.
+     *
+     * @param offset The non-null offset of each element from UTC.
+     * @return The step along the epoch time-line, or null if it isn't fixed.
+     */
+    private EpochStep epochStep(final ZoneOffset offset) {
+        if (businessDays != null) {
+            return null;
+        }
+        if (unit.isTimeBased() || unit == ChronoUnit.DAYS || unit == ChronoUnit.WEEKS) {
+            return new EpochStep(
+                    getFrom().toEpochSecond(offset),
+                    getFrom().getNano(),
+                    unit.getDuration().multipliedBy(amount),
+                    isForward());
+        }
+        return null;
+    }
+
+    /**
+     * Produce the elements of this stream in arrays of the given size, ready to be handed
+     * to something that works in batches, such as a JDBC batch insert. The last array holds
+     * whatever is left over, so may be shorter. When the step is fixed, each batch is
+     * calculated from its index, so a parallel stream splits the batches evenly.
+     *
+     * @param size The positive number of elements in each batch.
+     * @return A non-null Stream of LocalDateTime arrays, which is infinite if this stream is.
+     * @throws IllegalArgumentException if size is not positive.
+     */
+    public Stream<LocalDateTime[]> batches(final int size) {
+        return batches(size, LocalDateTime[]::new);
+    }
+
+    /**
+     * Produce the epoch millisecond of each element of this stream, at the given offset, in
+     * arrays of the given size, the last of which may be shorter. When the step is fixed, each
+     * batch is calculated from its index, so a parallel stream splits the batches evenly.
+     *
+     * @param size   The positive number of values in each batch.
+     * @param offset The non-null offset of each element from UTC.
+     * @return A non-null Stream of long arrays, which is infinite if this stream is.
+     * @throws IllegalArgumentException if size is not positive.
+     * @see #epochMilliStream(ZoneOffset)
+     */
+    public Stream<long[]> epochMilliBatches(final int size,
+                                            final ZoneOffset offset) {
+        Objects.requireNonNull(offset);
+        return longBatches(size, epochMilliIndexer(offset), () -> epochMilliStream(offset));
+    }
+
+    /**
+     * Gather every element of this stream into an array. When the step is fixed, the length
+     * is worked out from the end points and the step, so the array is allocated once and
+     * filled directly, rather than grown as the stream is consumed.
+     *
+     * @return A non-null array of LocalDateTime.
+     * @throws IllegalStateException if the stream is infinite or too long to fit in an array.
+     */
+    public LocalDateTime[] toArray() {
+        return toArray(LocalDateTime[]::new);
+    }
+
+    /**
+     * Gather the epoch millisecond of every element of this stream, at the given offset, into
+     * an array. When the step is fixed, the array is allocated at exactly the right length and
+     * filled directly, without creating any LocalDateTime objects.
+     *
+     * @param offset The non-null offset of each element from UTC.
+     * @return A non-null array of epoch milliseconds.
+     * @throws IllegalStateException if the stream is infinite or too long to fit in an array.
+     * @see #epochMilliStream(ZoneOffset)
+     */
+    public long[] toEpochMilliArray(final ZoneOffset offset) {
+        Objects.requireNonNull(offset);
+        return toLongArray(epochMilliIndexer(offset), () -> epochMilliStream(offset));
+    }
+
+    /**
+     * Produce a reusable cursor that moves through the elements of this stream in place,
+     * without creating a LocalDateTime for each one. epochSecond() treats each element
+     * as being at UTC.
+     *
+     * @return A non-null TimeCursor, positioned before the first element.
+     * @throws java.time.temporal.UnsupportedTemporalTypeException if the unit can't be stepped by.
+     */
+    public TimeCursor<LocalDateTime> cursor() {
+        if (businessDays != null) {
+            throw new UnsupportedTemporalTypeException("Cursors can't step by " + businessDays);
+        }
+        return TimeCursor.of(
+                getFrom().atZone(ZoneOffset.UTC),
+                getTo() == null ? null : getTo().atZone(ZoneOffset.UTC),
+                isForward() ? amount : 0 - amount,
+                unit,
+                canTake(),
+                cursor -> LocalDateTime.of(cursor.year(), cursor.month(), cursor.day(),
+                        cursor.hour(), cursor.minute(), cursor.second(), cursor.nano()));
+    }
+
+    /**
+     * Describe this stream for a SeriesCache.
+     *
+     * @return A non-null key.
+     */
+    List<Object> seriesKey() {
+        return seriesKey(amount, Arrays.asList(unit, businessDays, open, close), null);
+    }
+
+    /**
+     * Gather this stream for a SeriesCache, as epoch seconds at UTC.
+     *
+     * @return A non-null series.
+     */
+    CachedSeries<LocalDateTime> materialize() {
+        return CachedSeries.ofEpochSeconds(
+                toArray(),
+                date -> date.toEpochSecond(ZoneOffset.UTC),
+                LocalDateTime::getNano,
+                (second, nano) -> LocalDateTime.ofEpochSecond(second, nano, ZoneOffset.UTC));
+    }
+
+    /**
+     * Move a stream from fromNow() back to the start of its day, along with its end point,
+     * so that it is the same stream all day.
+     *
+     * @return A non-null LocalDateTimeStream, which is this one if it isn't from fromNow().
+     */
+    LocalDateTimeStream anchoredToDay() {
+        if (!isRelative()) {
+            return this;
+        }
+        final Duration sinceMidnight = Duration.between(getFrom().toLocalDate().atStartOfDay(), getFrom());
+        final LocalDateTimeStream anchored = new LocalDateTimeStream(getFrom().minus(sinceMidnight));
+        anchored.amount = amount;
+        anchored.unit = unit;
+        anchored.businessDays = businessDays;
+        anchored.open = open;
+        anchored.close = close;
+        return withEndOf(anchored, end -> end.minus(sinceMidnight));
+    }
+
+    /**
+     * Business days are a grid with a single slot each day, at the time the stream starts.
+     *
+     * @return The non-null grid the elements are on.
+     */
+    private BusinessGrid grid() {
+        return open == null
+                ? BusinessGrid.daily(businessDays, getFrom().toLocalTime())
+                : BusinessGrid.hours(businessDays, open, close, unit.getDuration().multipliedBy(amount));
+    }
+
+    /**
+     * @return The number of grid slots between elements.
+     */
+    private long slotStep() {
+        final long slots = open == null ? amount : 1;
+        return isForward() ? slots : 0 - slots;
+    }
+
+    /**
+     * The first element is the nearest slot to the start, in the direction of the stream.
+     *
+     * @return The grid slot of the first element.
+     */
+    private long firstSlot(final BusinessGrid grid) {
+        return isForward() ? grid.ceiling(getFrom()) : grid.floor(getFrom());
+    }
+
+    @Override
+    LocalDateTimeStream copy() {
+        final LocalDateTimeStream copy = new LocalDateTimeStream(getFrom());
+        copy.amount = amount;
+        copy.unit = unit;
+        copy.businessDays = businessDays;
+        copy.open = open;
+        copy.close = close;
+        return withEndOf(copy, UnaryOperator.identity());
+    }
+
     @Override
     UnaryOperator<LocalDateTime> next() {
+        if (businessDays != null) {
+            final BusinessGrid grid = grid();
+            final long step = slotStep();
+            return step > 0
+                    ? date -> grid.at(Math.addExact(grid.floor(date), step))
+                    : date -> grid.at(Math.addExact(grid.ceiling(date), step));
+        }
         return date -> date.plus(isForward() ? amount : 0 - amount, unit);
     }
+
+    @Override
+    boolean hasFixedStep() {
+        return businessDays != null || unit.isTimeBased() || isFixedDateStep(unit, getFrom().getDayOfMonth());
+    }
+
+    @Override
+    LongFunction<LocalDateTime> indexer() {
+        if (businessDays != null) {
+            final BusinessGrid grid = grid();
+            final long first = firstSlot(grid);
+            final long step = slotStep();
+            return index -> grid.at(Math.addExact(first, Math.multiplyExact(index, step)));
+        }
+        // Steps up to weeks are a fixed number of nanoseconds, so run a counter on the
+        // UTC time-line and only turn it back into a LocalDateTime for each element.
+        final EpochStep epochStep = epochStep(ZoneOffset.UTC);
+        if (epochStep != null) {
+            return index -> LocalDateTime.ofEpochSecond(epochStep.epochSecondAt(index), epochStep.nanoAt(index), ZoneOffset.UTC);
+        }
+        final LocalDateTime from = getFrom();
+        final long step = isForward() ? amount : 0 - amount;
+        final ChronoUnit unit = this.unit;
+        return index -> from.plus(Math.multiplyExact(index, step), unit);
+    }
+
+    @Override
+    long estimateIndexOf(final LocalDateTime value) {
+        if (businessDays != null) {
+            final BusinessGrid grid = grid();
+            final long first = firstSlot(grid);
+            final long slots = isForward() ? grid.floor(value) - first : first - grid.ceiling(value);
+            return Math.max(0, slots) / Math.abs(slotStep());
+        }
+        final EpochStep epochStep = epochStep(ZoneOffset.UTC);
+        if (epochStep != null) {
+            // Measuring in fine units such as nanos can overflow, so count whole steps exactly.
+            return epochStep.stepsTo(value.toEpochSecond(ZoneOffset.UTC), value.getNano());
+        }
+        return Math.abs(unit.between(getFrom(), value)) / amount;
+    }
 }
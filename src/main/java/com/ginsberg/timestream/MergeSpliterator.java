@@ -0,0 +1,192 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Merges spliterators that are each already sorted into a single sorted spliterator, lazily.
+ * Only the next element of each source is held, in a binary heap ordered by the given
+ * comparator, so memory doesn't grow with the length of the sources and unbounded sources
+ * can be merged. Elements that compare as equal come out in the order of their sources,
+ * or only once if duplicates are dropped.
+ *
+ * @param <T> Type that the comparator and spliterators handle.
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+public final class MergeSpliterator<T> implements Spliterator<T> {
+
+    private final List<Spliterator<? extends T>> sources;
+    private final Comparator<? super T> comparator;
+    private final boolean distinct;
+    private final List<T> heads;
+    private final int[] heap;
+    private int size = -1;
+    private T taken;
+    private final Consumer<T> take = value -> taken = value;
+    private T last;
+
+    /**
+     * Create a Spliterator that merges the given sorted spliterators.
+     *
+     * @param comparator The non-null order that every source is sorted in.
+     * @param distinct   true to drop elements that compare as equal to the one before them.
+     * @param sources    The non-null spliterators to merge, which are not advanced until this one is.
+     * @param <T>        Type that the comparator and spliterators handle.
+     * @return A non-null MergeSpliterator.
+     */
+    public static <T> MergeSpliterator<T> of(final Comparator<? super T> comparator,
+                                             final boolean distinct,
+                                             final List<? extends Spliterator<? extends T>> sources) {
+        Objects.requireNonNull(comparator);
+        Objects.requireNonNull(sources);
+        return new MergeSpliterator<>(comparator, distinct, sources);
+    }
+
+    private MergeSpliterator(final Comparator<? super T> comparator,
+                             final boolean distinct,
+                             final List<? extends Spliterator<? extends T>> sources) {
+        this.comparator = comparator;
+        this.distinct = distinct;
+        this.sources = new ArrayList<>(sources);
+        this.heads = new ArrayList<>(sources.size());
+        this.heap = new int[sources.size()];
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) {
+        if (size < 0) {
+            start();
+        }
+        while (size > 0) {
+            final int source = heap[0];
+            final T value = heads.get(source);
+            if (advance(source)) {
+                siftDown(0);
+            } else {
+                heap[0] = heap[--size];
+                siftDown(0);
+            }
+            if (!distinct || last == null || comparator.compare(value, last) != 0) {
+                last = value;
+                action.accept(value);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merging can only be done in order, so this doesn't split.
+     */
+    @Override
+    public Spliterator<T> trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        long estimate = Math.max(size, 0);
+        for (Spliterator<? extends T> source : sources) {
+            estimate += source.estimateSize();
+            if (estimate < 0) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return distinct ? ORDERED | NONNULL | DISTINCT : ORDERED | NONNULL;
+    }
+
+    /**
+     * Take the first element of every source and build the heap.
+     */
+    private void start() {
+        size = 0;
+        for (int source = 0; source < sources.size(); source++) {
+            heads.add(null);
+            if (advance(source)) {
+                heap[size++] = source;
+            }
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Move a source on to its next element.
+     *
+     * @return false if the source has no more elements.
+     */
+    private boolean advance(final int source) {
+        taken = null;
+        if (sources.get(source).tryAdvance(take)) {
+            heads.set(source, taken);
+            return true;
+        }
+        // Let go of the last element, and of the source, now that it is done.
+        heads.set(source, null);
+        sources.set(source, Spliterators.emptySpliterator());
+        return false;
+    }
+
+    private void siftDown(final int from) {
+        int parent = from;
+        while (true) {
+            final int left = 2 * parent + 1;
+            if (left >= size) {
+                return;
+            }
+            final int right = left + 1;
+            final int child = right < size && before(heap[right], heap[left]) ? right : left;
+            if (!before(heap[child], heap[parent])) {
+                return;
+            }
+            final int swap = heap[parent];
+            heap[parent] = heap[child];
+            heap[child] = swap;
+            parent = child;
+        }
+    }
+
+    /**
+     * Equal elements are ordered by their source, so the merge is stable.
+     */
+    private boolean before(final int source,
+                           final int other) {
+        final int compare = comparator.compare(heads.get(source), heads.get(other));
+        return compare < 0 || (compare == 0 && source < other);
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ginsberg.timestream;
+
+import java.time.Instant;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Releases the elements of a series as a clock reaches each of them, and only as fast as they
+ * are asked for, which is the engine behind a real-time publisher. Each element is scheduled for
+ * its own instant, rather than after a delay from the element before it, so lateness in one
+ * wakeup isn't carried into the next. When none are wanted, the next element is taken and held,
+ * so that the end of the series is signalled as soon as the last element is released, rather than
+ * when more are asked for. A held element is scheduled once more are asked for, and released
+ * straight away if the clock has already reached it.
+ * <p>
+ * Only one element is held or scheduled at a time, and it is passed on from whichever thread runs
+ * it, so elements are passed on one at a time, in order. Asking for more while an element is being
+ * passed on is allowed, and is picked up when it returns. So is asking for a number that isn't
+ * positive, which is an error that is passed on once the element has been, so that signals never
+ * overlap.
+ *
+ * @param <T> The type of element.
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class PacedEmitter<T> {
+    private final Spliterator<T> source;
+    private final Function<? super T, Instant> instantOf;
+    private final TickScheduler scheduler;
+    private final Consumer<? super T> onNext;
+    private final Consumer<? super Throwable> onError;
+    private final Runnable onComplete;
+    private long demand;
+    private boolean busy;
+    private boolean emitting;
+    private boolean done;
+    private Throwable failure;
+    private TickScheduler.Timeout timeout;
+    private T held;
+    private T taken;
+
+    /**
+     * @param source     The elements to release, in order.
+     * @param instantOf  Finds the instant to release an element at.
+     * @param scheduler  Runs each release when the clock reaches it.
+     * @param onNext     Receives each element.
+     * @param onError    Receives anything that goes wrong, after which nothing more is released.
+     * @param onComplete Runs after the last element.
+     */
+    PacedEmitter(final Spliterator<T> source,
+                 final Function<? super T, Instant> instantOf,
+                 final TickScheduler scheduler,
+                 final Consumer<? super T> onNext,
+                 final Consumer<? super Throwable> onError,
+                 final Runnable onComplete) {
+        this.source = source;
+        this.instantOf = instantOf;
+        this.scheduler = scheduler;
+        this.onNext = onNext;
+        this.onError = onError;
+        this.onComplete = onComplete;
+    }
+
+    /**
+     * Ask for more elements, which are released as the clock reaches them.
+     *
+     * @param count The number of elements wanted, which is an error if not positive.
+     */
+    void request(final long count) {
+        if (count <= 0) {
+            final IllegalArgumentException error =
+                    new IllegalArgumentException("Number of elements requested must be positive: " + count);
+            synchronized (this) {
+                if (emitting) {
+                    // Passed on by release(), once onNext returns.
+                    if (failure == null) {
+                        failure = error;
+                    }
+                    return;
+                }
+            }
+            fail(error);
+            return;
+        }
+        final boolean start;
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            demand = demand + count < 0 ? Long.MAX_VALUE : demand + count;
+            start = !busy;
+            busy = true;
+        }
+        if (start) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Stop releasing elements. Nothing more is passed on, not even completion.
+     */
+    synchronized void cancel() {
+        done = true;
+        if (timeout != null) {
+            timeout.cancel();
+            timeout = null;
+        }
+    }
+
+    /**
+     * Take the next element and schedule its release. Only called by whoever set busy.
+     */
+    private void scheduleNext() {
+        final T next;
+        final Instant at;
+        try {
+            next = held != null ? held : take();
+            held = null;
+            at = next == null ? null : instantOf.apply(next);
+        } catch (RuntimeException e) {
+            fail(e);
+            return;
+        }
+        if (next == null) {
+            complete();
+            return;
+        }
+        ArithmeticException tooFar = null;
+        synchronized (this) {
+            if (!done) {
+                try {
+                    timeout = scheduler.schedule(at, () -> release(next));
+                } catch (ArithmeticException e) {
+                    tooFar = e;
+                }
+            }
+        }
+        if (tooFar != null) {
+            fail(tooFar);
+        }
+    }
+
+    private void release(final T element) {
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            timeout = null;
+            emitting = true;
+        }
+        try {
+            onNext.accept(element);
+        } catch (RuntimeException e) {
+            // A subscriber that throws has broken its contract, so treat it as cancelled.
+            cancel();
+            return;
+        }
+        final boolean more;
+        final Throwable error;
+        synchronized (this) {
+            emitting = false;
+            if (demand != Long.MAX_VALUE) {
+                demand--;
+            }
+            if (done) {
+                return;
+            }
+            error = failure;
+            more = demand > 0;
+        }
+        if (error != null) {
+            fail(error);
+        } else if (more) {
+            scheduleNext();
+        } else {
+            holdNext();
+        }
+    }
+
+    /**
+     * Nothing more is wanted, so take the next element and hold it until it is, completing
+     * straight away if there isn't one. Only called by whoever set busy, which is given up
+     * unless more was asked for in the meantime.
+     */
+    private void holdNext() {
+        final T next;
+        try {
+            next = take();
+        } catch (RuntimeException e) {
+            fail(e);
+            return;
+        }
+        if (next == null) {
+            complete();
+            return;
+        }
+        final boolean asked;
+        synchronized (this) {
+            held = next;
+            asked = !done && demand > 0;
+            busy = asked;
+        }
+        if (asked) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * @return The next element of the source, or null if there are no more.
+     */
+    private T take() {
+        taken = null;
+        return source.tryAdvance(value -> taken = value) ? taken : null;
+    }
+
+    private void complete() {
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            done = true;
+        }
+        onComplete.run();
+    }
+
+    private void fail(final Throwable error) {
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+        }
+        onError.accept(error);
+    }
+}
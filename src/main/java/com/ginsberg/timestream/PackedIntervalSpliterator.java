@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+
+/**
+ * Turns a spliterator of primitive values into the intervals between them, packed
+ * as pairs of values: the start of each interval followed by its end. Intervals
+ * follow the same rules as IntervalSpliterator, except that a final interval of
+ * zero length is dropped.
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class PackedIntervalSpliterator extends Spliterators.AbstractLongSpliterator {
+    private final Spliterator.OfLong source;
+    private final boolean bounded;
+    private final long end;
+    private final LongConsumer setPending = value -> pending = value;
+    private boolean hasPending = false;
+    private long pending;
+    private boolean hasEnd = false;
+    private long intervalEnd;
+
+    /**
+     * @param source  The values to take intervals between.
+     * @param bounded true if the series has an end point.
+     * @param end     The end point of the series, if bounded.
+     */
+    PackedIntervalSpliterator(final Spliterator.OfLong source,
+                              final boolean bounded,
+                              final long end) {
+        super(saturatedDouble(source.estimateSize()), ORDERED | NONNULL | IMMUTABLE);
+        this.source = source;
+        this.bounded = bounded;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(final LongConsumer action) {
+        if (hasEnd) {
+            hasEnd = false;
+            action.accept(intervalEnd);
+            return true;
+        }
+        if (!hasPending && !source.tryAdvance(setPending)) {
+            return false;
+        }
+        final long start = pending;
+        hasPending = source.tryAdvance(setPending);
+        if (hasPending) {
+            intervalEnd = pending;
+        } else if (bounded && start != end) {
+            intervalEnd = end;
+        } else {
+            return false;
+        }
+        hasEnd = true;
+        action.accept(start);
+        return true;
+    }
+
+    private static long saturatedDouble(final long size) {
+        return size > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : size * 2;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * A Spliterator over a bounded, fixed-step range, where each element is
+ * computed directly from its index rather than from the element before it.
+ *
+ * Because the number of elements is known up front, this reports itself as
+ * SIZED and SUBSIZED and splits by halving the remaining index range, which
+ * gives parallel streams evenly sized chunks of work.
+ *
+ * @param <T> Type of element produced.
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class RangeSpliterator<T> implements Spliterator<T> {
+
+    private static final int CHARACTERISTICS = SIZED | SUBSIZED | ORDERED | SORTED | DISTINCT | NONNULL | IMMUTABLE;
+
+    private final LongFunction<? extends T> indexer;
+    private final Comparator<? super T> comparator;
+    private final long fence;
+    private long index;
+
+    /**
+     * @param indexer    Computes the element at a given index.
+     * @param index      The first index to produce (inclusive).
+     * @param fence      The last index to produce (exclusive).
+     * @param comparator The order the elements are sorted in, or null for natural order.
+     */
+    RangeSpliterator(final LongFunction<? extends T> indexer,
+                     final long index,
+                     final long fence,
+                     final Comparator<? super T> comparator) {
+        this.indexer = indexer;
+        this.index = index;
+        this.fence = fence;
+        this.comparator = comparator;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> consumer) {
+        if (index < fence) {
+            consumer.accept(indexer.apply(index++));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super T> consumer) {
+        final long end = fence;
+        long i = index;
+        index = end;
+        for (; i < end; i++) {
+            consumer.accept(indexer.apply(i));
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        final long low = index;
+        final long mid = (low + fence) >>> 1;
+        if (low >= mid) {
+            return null;
+        }
+        index = mid;
+        return new RangeSpliterator<>(indexer, low, mid, comparator);
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+        return comparator;
+    }
+}
@@ -0,0 +1,429 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable recurrence rule, parsed from the RRULE syntax of RFC 5545 (iCalendar), such as
+ * {@code FREQ=MONTHLY;BYDAY=2TU} for the second Tuesday of each month. The start of the stream
+ * the rule is given to plays the part of DTSTART: it is where the periods of the rule are
+ * counted from, where any missing parts of the rule are taken from, and nothing before it
+ * is produced.
+ * <p>
+ * Rules are not evaluated by testing each day or minute. The matching days of each period
+ * (year, month, week or day) are calculated directly, and combined with the matching times
+ * of day, so the cost of a stream depends on the number of periods and occurrences, not on
+ * the number of days they are spread over.
+ * <p>
+ * <pre>
+ * {@code
+ * // The last weekday of each quarter of 2016.
+ * LocalDateStream
+ *     .from(LocalDate.of(2016, 1, 1))
+ *     .to(LocalDate.of(2016, 12, 31))
+ *     .recurring(RecurrenceRule.parse("FREQ=MONTHLY;BYMONTH=3,6,9,12;BYDAY=MO,TU,WE,TH,FR;BYSETPOS=-1"))
+ *     .stream();
+ * }
+ * </pre>
+ * <p>
+ * The frequencies YEARLY, MONTHLY, WEEKLY and DAILY are supported, along with INTERVAL, COUNT,
+ * UNTIL, BYMONTH, BYMONTHDAY, BYYEARDAY, BYDAY, BYHOUR, BYMINUTE, BYSECOND, BYSETPOS and WKST.
+ * BYWEEKNO and the frequencies of less than a day are not.
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ * @see LocalDateStream#recurring(RecurrenceRule)
+ * @see ZonedDateTimeStream#recurring(RecurrenceRule)
+ */
+public final class RecurrenceRule {
+    /**
+     * The parts of a rule that are understood, in the order they are written by toString().
+     */
+    private static final List<String> PARTS = Arrays.asList(
+            "FREQ", "UNTIL", "COUNT", "INTERVAL", "BYSECOND", "BYMINUTE", "BYHOUR",
+            "BYDAY", "BYMONTHDAY", "BYYEARDAY", "BYMONTH", "BYSETPOS", "WKST");
+
+    /**
+     * The two letter codes of the days of the week, starting on Monday.
+     */
+    private static final List<String> DAYS = Arrays.asList("MO", "TU", "WE", "TH", "FR", "SA", "SU");
+
+    private static final Pattern UNTIL = Pattern.compile("(\\d{8})(?:T(\\d{2})(\\d{2})(\\d{2})(Z?))?");
+    private static final Pattern WEEKDAY = Pattern.compile("([+-]?\\d{1,2})?([A-Z]{2})");
+    private static final int[] NONE = new int[0];
+
+    private final String text;
+    private final ChronoUnit frequency;
+    private final int interval;
+    private final long count;
+    private final LocalDateTime until;
+    private final boolean untilUtc;
+    private final int months;
+    private final int[] monthDays;
+    private final int[] yearDays;
+    private final int weekdays;
+    private final int[] ordinals;
+    private final int[] ordinalDays;
+    private final int[] setPositions;
+    private final int[] hours;
+    private final int[] minutes;
+    private final int[] seconds;
+    private final DayOfWeek weekStart;
+
+    private RecurrenceRule(final String text,
+                           final Map<String, String> parts) {
+        this.text = text;
+        this.frequency = frequency(parts.get("FREQ"));
+        this.interval = (int) number(parts, "INTERVAL", 1, Integer.MAX_VALUE, 1);
+        this.count = number(parts, "COUNT", 1, Long.MAX_VALUE, 0);
+        if (count > 0 && parts.containsKey("UNTIL")) {
+            throw new IllegalArgumentException("COUNT and UNTIL can't both be used");
+        }
+        final Matcher until = parts.containsKey("UNTIL") ? UNTIL.matcher(parts.get("UNTIL")) : null;
+        if (until != null && !until.matches()) {
+            throw new IllegalArgumentException("Malformed UNTIL: " + parts.get("UNTIL"));
+        }
+        this.until = until == null ? null : until(until);
+        this.untilUtc = until != null && "Z".equals(until.group(5));
+        int months = 0;
+        for (int month : numbers(parts, "BYMONTH", 1, 12, false)) {
+            months |= 1 << month;
+        }
+        this.months = months;
+        this.monthDays = numbers(parts, "BYMONTHDAY", 1, 31, true);
+        this.yearDays = numbers(parts, "BYYEARDAY", 1, 366, true);
+        this.setPositions = numbers(parts, "BYSETPOS", 1, 366, true);
+        this.hours = numbers(parts, "BYHOUR", 0, 23, false);
+        this.minutes = numbers(parts, "BYMINUTE", 0, 59, false);
+        this.seconds = numbers(parts, "BYSECOND", 0, 59, false);
+        this.weekStart = parts.containsKey("WKST") ? day(parts.get("WKST")) : DayOfWeek.MONDAY;
+
+        int weekdays = 0;
+        final String[] byDay = parts.containsKey("BYDAY") ? parts.get("BYDAY").split(",") : new String[0];
+        final int[] ordinals = new int[byDay.length];
+        final int[] ordinalDays = new int[byDay.length];
+        int ordinalCount = 0;
+        for (String day : byDay) {
+            final Matcher matcher = WEEKDAY.matcher(day.trim());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Malformed BYDAY: " + day);
+            }
+            final int dayOfWeek = day(matcher.group(2)).ordinal();
+            if (matcher.group(1) == null) {
+                weekdays |= 1 << dayOfWeek;
+            } else {
+                final int ordinal = Integer.parseInt(matcher.group(1));
+                if (ordinal == 0 || Math.abs(ordinal) > 53) {
+                    throw new IllegalArgumentException("BYDAY ordinal out of range: " + day);
+                }
+                ordinals[ordinalCount] = ordinal;
+                ordinalDays[ordinalCount++] = dayOfWeek;
+            }
+        }
+        this.weekdays = weekdays;
+        this.ordinals = Arrays.copyOf(ordinals, ordinalCount);
+        this.ordinalDays = Arrays.copyOf(ordinalDays, ordinalCount);
+
+        if (yearDays.length > 0 && frequency != ChronoUnit.YEARS) {
+            throw new IllegalArgumentException("BYYEARDAY can only be used with FREQ=YEARLY");
+        }
+        if (monthDays.length > 0 && frequency == ChronoUnit.WEEKS) {
+            throw new IllegalArgumentException("BYMONTHDAY can't be used with FREQ=WEEKLY");
+        }
+        if (ordinalCount > 0 && frequency != ChronoUnit.YEARS && frequency != ChronoUnit.MONTHS) {
+            throw new IllegalArgumentException("BYDAY can only have an ordinal with FREQ=MONTHLY or FREQ=YEARLY");
+        }
+    }
+
+    /**
+     * Parse a recurrence rule, with or without the leading "RRULE:". Parts may be in any order,
+     * and names and values are not case sensitive.
+     *
+     * @param rule The non-null rule, such as "FREQ=WEEKLY;BYDAY=MO,WE,FR;BYHOUR=9,17".
+     * @return A non-null RecurrenceRule.
+     * @throws IllegalArgumentException if the rule is malformed, or uses a part that isn't supported.
+     */
+    public static RecurrenceRule parse(final String rule) {
+        Objects.requireNonNull(rule);
+        String text = rule.trim();
+        if (text.regionMatches(true, 0, "RRULE:", 0, 6)) {
+            text = text.substring(6);
+        }
+        final Map<String, String> parts = new HashMap<>();
+        for (String part : text.split(";")) {
+            if (part.trim().isEmpty()) {
+                continue;
+            }
+            final int equals = part.indexOf('=');
+            if (equals < 1) {
+                throw new IllegalArgumentException("Malformed rule part: " + part);
+            }
+            final String name = part.substring(0, equals).trim().toUpperCase(Locale.ROOT);
+            if (!PARTS.contains(name)) {
+                throw new IllegalArgumentException("Unsupported rule part: " + name);
+            }
+            if (parts.put(name, part.substring(equals + 1).trim().toUpperCase(Locale.ROOT)) != null) {
+                throw new IllegalArgumentException("Rule part used more than once: " + name);
+            }
+        }
+        final StringJoiner canonical = new StringJoiner(";");
+        for (String name : PARTS) {
+            if (parts.containsKey(name)) {
+                canonical.add(name + "=" + parts.get(name));
+            }
+        }
+        return new RecurrenceRule(canonical.toString(), parts);
+    }
+
+    ChronoUnit getFrequency() {
+        return frequency;
+    }
+
+    int getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return The maximum number of occurrences, or zero if there is no COUNT.
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Find the last local time an occurrence may be at. An UNTIL in UTC is moved to the
+     * given zone, otherwise it is already local.
+     *
+     * @param zone The zone of the occurrences, or null if they don't have one.
+     * @return The UNTIL of this rule, or null if there is none.
+     */
+    LocalDateTime getUntil(final ZoneId zone) {
+        if (until == null || !untilUtc || zone == null) {
+            return until;
+        }
+        return until.atOffset(ZoneOffset.UTC).atZoneSameInstant(zone).toLocalDateTime();
+    }
+
+    /**
+     * @return The months of BYMONTH, with bit n set for month n, or zero if there is no BYMONTH.
+     */
+    int getMonths() {
+        return months;
+    }
+
+    int[] getMonthDays() {
+        return monthDays;
+    }
+
+    int[] getYearDays() {
+        return yearDays;
+    }
+
+    /**
+     * @return The days of BYDAY without an ordinal, with bit n set for DayOfWeek.values()[n].
+     */
+    int getWeekdays() {
+        return weekdays;
+    }
+
+    /**
+     * @return The ordinals of the days of BYDAY that have one, such as -1 for -1FR.
+     */
+    int[] getOrdinals() {
+        return ordinals;
+    }
+
+    /**
+     * @return The days of BYDAY that have an ordinal, as DayOfWeek ordinals.
+     */
+    int[] getOrdinalDays() {
+        return ordinalDays;
+    }
+
+    int[] getSetPositions() {
+        return setPositions;
+    }
+
+    int[] getHours() {
+        return hours;
+    }
+
+    int[] getMinutes() {
+        return minutes;
+    }
+
+    int[] getSeconds() {
+        return seconds;
+    }
+
+    DayOfWeek getWeekStart() {
+        return weekStart;
+    }
+
+    /**
+     * @return true if the rule has a BYHOUR, BYMINUTE or BYSECOND.
+     */
+    boolean hasTimes() {
+        return hours.length > 0 || minutes.length > 0 || seconds.length > 0;
+    }
+
+    private static ChronoUnit frequency(final String frequency) {
+        if (frequency == null) {
+            throw new IllegalArgumentException("FREQ is required");
+        }
+        switch (frequency) {
+            case "YEARLY":
+                return ChronoUnit.YEARS;
+            case "MONTHLY":
+                return ChronoUnit.MONTHS;
+            case "WEEKLY":
+                return ChronoUnit.WEEKS;
+            case "DAILY":
+                return ChronoUnit.DAYS;
+            default:
+                throw new IllegalArgumentException("Unsupported frequency: " + frequency);
+        }
+    }
+
+    private static DayOfWeek day(final String day) {
+        final int index = DAYS.indexOf(day);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown day of the week: " + day);
+        }
+        return DayOfWeek.values()[index];
+    }
+
+    /**
+     * A date UNTIL is the last day of the rule, so it runs to the end of that day.
+     */
+    private static LocalDateTime until(final Matcher until) {
+        try {
+            final LocalDate date = LocalDate.parse(until.group(1), DateTimeFormatter.BASIC_ISO_DATE);
+            if (until.group(2) == null) {
+                return date.atTime(23, 59, 59);
+            }
+            return date.atTime(LocalTime.of(
+                    Integer.parseInt(until.group(2)),
+                    Integer.parseInt(until.group(3)),
+                    Integer.parseInt(until.group(4))));
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Malformed UNTIL: " + until.group(), e);
+        }
+    }
+
+    private static long number(final Map<String, String> parts,
+                               final String name,
+                               final long min,
+                               final long max,
+                               final long missing) {
+        final String value = parts.get(name);
+        if (value == null) {
+            return missing;
+        }
+        final long number;
+        try {
+            number = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed " + name + ": " + value, e);
+        }
+        if (number < min || number > max) {
+            throw new IllegalArgumentException(name + " out of range: " + value);
+        }
+        return number;
+    }
+
+    /**
+     * Parse a list of numbers, which come back sorted and without duplicates.
+     *
+     * @param signed true if the numbers may also be negative, counting back from the end.
+     */
+    private static int[] numbers(final Map<String, String> parts,
+                                 final String name,
+                                 final int min,
+                                 final int max,
+                                 final boolean signed) {
+        final String value = parts.get(name);
+        if (value == null) {
+            return NONE;
+        }
+        final String[] items = value.split(",");
+        final int[] numbers = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            final int number;
+            try {
+                number = Integer.parseInt(items[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed " + name + ": " + value, e);
+            }
+            final int magnitude = signed ? Math.abs(number) : number;
+            if (magnitude < min || magnitude > max) {
+                throw new IllegalArgumentException(name + " out of range: " + value);
+            }
+            numbers[i] = number;
+        }
+        return Arrays.stream(numbers).sorted().distinct().toArray();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return text.equals(((RecurrenceRule) o).text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+
+    /**
+     * @return The rule, with its parts in a standard order, without the leading "RRULE:".
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * A RecurrenceRule, resolved against the start of a stream. The periods of the rule are numbered
+ * (by year, proleptic month, week or epoch day) and the occurrences in any one of them are found
+ * directly: each part of the rule is turned into a bitset of the days of the period it allows,
+ * by setting days at known positions rather than testing each day, and the bitsets are
+ * intersected. The matching times of day are applied to each matching day, and BYSETPOS picks
+ * positions out of the result.
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class RecurrenceSchedule {
+    /**
+     * Enough 64-bit words for the days of the longest period, a leap year.
+     */
+    private static final int WORDS = 6;
+
+    private final ChronoUnit frequency;
+    private final long interval;
+    private final long origin;
+    private final long weekOffset;
+    private final int months;
+    private final int[] monthDays;
+    private final int[] yearDays;
+    private final int weekdays;
+    private final int[] ordinals;
+    private final int[] ordinalDays;
+    private final int[] setPositions;
+    private final int[] times;
+
+    /**
+     * @param rule  The non-null rule.
+     * @param start The start of the stream, as DTSTART, which any missing parts of the rule are taken from.
+     */
+    RecurrenceSchedule(final RecurrenceRule rule,
+                       final LocalDateTime start) {
+        this.frequency = rule.getFrequency();
+        this.interval = rule.getInterval();
+        this.setPositions = rule.getSetPositions();
+        this.ordinals = rule.getOrdinals();
+        this.ordinalDays = rule.getOrdinalDays();
+        // Epoch day 0 is a Thursday, so weeks that start on Monday start 3 days after a multiple of 7.
+        this.weekOffset = Math.floorMod(rule.getWeekStart().ordinal() - 3, 7);
+
+        final boolean hasDays = rule.getMonthDays().length > 0
+                || rule.getYearDays().length > 0
+                || rule.getWeekdays() != 0
+                || ordinals.length > 0;
+        final int[] startDay = {start.getDayOfMonth()};
+        int months = rule.getMonths();
+        int[] monthDays = rule.getMonthDays();
+        int weekdays = rule.getWeekdays();
+        if (!hasDays) {
+            switch (frequency) {
+                case YEARS:
+                    months = months == 0 ? 1 << start.getMonthValue() : months;
+                    monthDays = startDay;
+                    break;
+                case MONTHS:
+                    monthDays = startDay;
+                    break;
+                case WEEKS:
+                    weekdays = 1 << start.getDayOfWeek().ordinal();
+                    break;
+                default:
+                    break;
+            }
+        }
+        this.months = months;
+        this.monthDays = monthDays;
+        this.yearDays = rule.getYearDays();
+        this.weekdays = weekdays;
+        this.times = times(
+                rule.getHours().length > 0 ? rule.getHours() : new int[]{start.getHour()},
+                rule.getMinutes().length > 0 ? rule.getMinutes() : new int[]{start.getMinute()},
+                rule.getSeconds().length > 0 ? rule.getSeconds() : new int[]{start.getSecond()});
+        this.origin = periodOf(start.toLocalDate().toEpochDay());
+    }
+
+    /**
+     * The scratch space for expanding one period at a time, which is reused from one period to the next.
+     */
+    static final class Period {
+        private final long[] candidates = new long[WORDS];
+        private final long[] part = new long[WORDS];
+        private final int[] days = new int[WORDS * 64];
+        private int[] positions;
+        private long start;
+        private int dayCount;
+        private long size;
+
+        /**
+         * @return The number of occurrences in the period.
+         */
+        long size() {
+            return size;
+        }
+    }
+
+    Period newPeriod() {
+        final Period period = new Period();
+        period.positions = new int[setPositions.length];
+        return period;
+    }
+
+    /**
+     * The number of periods between the start of the schedule and the given period.
+     *
+     * @param period  A period number.
+     * @param forward true to count forward through time.
+     * @return The number of whole intervals, which is rounded down.
+     */
+    long positionOf(final long period,
+                    final boolean forward) {
+        return Math.floorDiv(forward ? period - origin : origin - period, interval);
+    }
+
+    /**
+     * @param position The number of intervals from the start of the schedule.
+     * @param forward  true to count forward through time.
+     * @return The period number.
+     */
+    long periodAt(final long position,
+                  final boolean forward) {
+        final long periods = Math.multiplyExact(position, interval);
+        return forward ? Math.addExact(origin, periods) : Math.subtractExact(origin, periods);
+    }
+
+    /**
+     * A pattern of days always repeats after 400 years, so if there is nothing in that many
+     * periods in a row, there never will be.
+     *
+     * @return The number of periods in 400 years.
+     */
+    long periodsPerCycle() {
+        switch (frequency) {
+            case YEARS:
+                return 400;
+            case MONTHS:
+                return 4_800;
+            case WEEKS:
+                return 20_871;
+            default:
+                return 146_097;
+        }
+    }
+
+    /**
+     * Find the period that contains the given day.
+     *
+     * @param epochDay The number of days since 1970-01-01.
+     * @return The period number.
+     */
+    long periodOf(final long epochDay) {
+        switch (frequency) {
+            case YEARS:
+                return Math.floorDiv(CalendarMath.prolepticMonthOf(epochDay), 12);
+            case MONTHS:
+                return CalendarMath.prolepticMonthOf(epochDay);
+            case WEEKS:
+                return Math.floorDiv(epochDay - weekOffset, 7);
+            default:
+                return epochDay;
+        }
+    }
+
+    /**
+     * Find the occurrences in the given period.
+     *
+     * @param number The period number.
+     * @param period The scratch space to expand the period into.
+     * @throws java.time.DateTimeException if the period is outside of the range of LocalDate.
+     */
+    void expand(final long number,
+                final Period period) {
+        final long start;
+        final int length;
+        switch (frequency) {
+            case YEARS:
+                start = CalendarMath.epochDay(Math.multiplyExact(number, 12), 1);
+                length = CalendarMath.isLeapYear(number) ? 366 : 365;
+                break;
+            case MONTHS:
+                start = CalendarMath.epochDay(number, 1);
+                length = CalendarMath.lengthOfMonth(number);
+                break;
+            case WEEKS:
+                start = ChronoField.EPOCH_DAY.checkValidValue(Math.addExact(Math.multiplyExact(number, 7), weekOffset));
+                length = 7;
+                break;
+            default:
+                start = ChronoField.EPOCH_DAY.checkValidValue(number);
+                length = 1;
+                break;
+        }
+        final long[] candidates = period.candidates;
+        final long[] part = period.part;
+        Arrays.fill(candidates, 0);
+        setRange(candidates, 0, length);
+        if (months != 0) {
+            Arrays.fill(part, 0);
+            long month = CalendarMath.prolepticMonthOf(start);
+            for (long first = CalendarMath.epochDay(month, 1); first < start + length; month++) {
+                final int days = CalendarMath.lengthOfMonth(month);
+                if ((months & 1 << (Math.floorMod(month, 12) + 1)) != 0) {
+                    setRange(part, (int) Math.max(first - start, 0), (int) Math.min(first + days - start, length));
+                }
+                first += days;
+            }
+            and(candidates, part);
+        }
+        if (yearDays.length > 0) {
+            Arrays.fill(part, 0);
+            for (int yearDay : yearDays) {
+                set(part, yearDay > 0 ? yearDay - 1 : length + yearDay, length);
+            }
+            and(candidates, part);
+        }
+        if (monthDays.length > 0) {
+            Arrays.fill(part, 0);
+            long month = CalendarMath.prolepticMonthOf(start);
+            for (long first = CalendarMath.epochDay(month, 1); first < start + length; month++) {
+                final int days = CalendarMath.lengthOfMonth(month);
+                for (int monthDay : monthDays) {
+                    final int day = monthDay > 0 ? monthDay - 1 : days + monthDay;
+                    if (day >= 0 && day < days) {
+                        set(part, first - start + day, length);
+                    }
+                }
+                first += days;
+            }
+            and(candidates, part);
+        }
+        if (weekdays != 0 || ordinals.length > 0) {
+            Arrays.fill(part, 0);
+            final int firstDay = dayOfWeek(start);
+            for (int day = 0; day < 7; day++) {
+                if ((weekdays & 1 << day) != 0) {
+                    for (int i = Math.floorMod(day - firstDay, 7); i < length; i += 7) {
+                        part[i >>> 6] |= 1L << i;
+                    }
+                }
+            }
+            if (ordinals.length > 0) {
+                if (frequency == ChronoUnit.YEARS && months != 0) {
+                    // Ordinals count within each month of BYMONTH, rather than within the year.
+                    for (int month = 0; month < 12; month++) {
+                        if ((months & 1 << (month + 1)) != 0) {
+                            final long first = CalendarMath.epochDay(number * 12 + month, 1);
+                            setOrdinals(part, start, first - start, first - start + CalendarMath.lengthOfMonth(number * 12 + month));
+                        }
+                    }
+                } else {
+                    setOrdinals(part, start, 0, length);
+                }
+            }
+            and(candidates, part);
+        }
+
+        int dayCount = 0;
+        for (int word = 0; word < WORDS; word++) {
+            for (long bits = candidates[word]; bits != 0; bits &= bits - 1) {
+                period.days[dayCount++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        period.start = start;
+        period.dayCount = dayCount;
+        final long total = (long) dayCount * times.length;
+        if (setPositions.length == 0) {
+            period.size = total;
+            return;
+        }
+        int size = 0;
+        for (int position : setPositions) {
+            final long index = position > 0 ? position - 1 : total + position;
+            if (index >= 0 && index < total) {
+                period.positions[size++] = (int) index;
+            }
+        }
+        Arrays.sort(period.positions, 0, size);
+        // Positions from the start and from the end can pick the same occurrence.
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || period.positions[i] != period.positions[distinct - 1]) {
+                period.positions[distinct++] = period.positions[i];
+            }
+        }
+        period.size = distinct;
+    }
+
+    /**
+     * Calculate an occurrence of an expanded period.
+     *
+     * @param period The expanded period.
+     * @param index  The index of the occurrence, which is less than the size of the period.
+     * @return The occurrence, in seconds since 1970-01-01T00:00 on the local time-line.
+     */
+    long at(final Period period,
+            final long index) {
+        final long occurrence = setPositions.length == 0 ? index : period.positions[(int) index];
+        final int day = period.days[(int) (occurrence / times.length)];
+        return (period.start + day) * CalendarMath.SECONDS_PER_DAY + times[(int) (occurrence % times.length)];
+    }
+
+    /**
+     * Set the days picked out by ordinal days of the week, such as 2TU or -1FR, within a range.
+     */
+    private void setOrdinals(final long[] part,
+                             final long start,
+                             final long from,
+                             final long to) {
+        final int firstDay = dayOfWeek(start + from);
+        final int lastDay = dayOfWeek(start + to - 1);
+        for (int i = 0; i < ordinals.length; i++) {
+            final long day = ordinals[i] > 0
+                    ? from + Math.floorMod(ordinalDays[i] - firstDay, 7) + 7L * (ordinals[i] - 1)
+                    : to - 1 - Math.floorMod(lastDay - ordinalDays[i], 7) + 7L * (ordinals[i] + 1);
+            if (day >= from && day < to) {
+                part[(int) (day >>> 6)] |= 1L << day;
+            }
+        }
+    }
+
+    /**
+     * The times of day are every combination of the hours, minutes and seconds, which are
+     * already sorted, so the combinations come out sorted as well.
+     */
+    private static int[] times(final int[] hours,
+                               final int[] minutes,
+                               final int[] seconds) {
+        final int[] times = new int[hours.length * minutes.length * seconds.length];
+        int i = 0;
+        for (int hour : hours) {
+            for (int minute : minutes) {
+                for (int second : seconds) {
+                    times[i++] = hour * 3_600 + minute * 60 + second;
+                }
+            }
+        }
+        return times;
+    }
+
+    /**
+     * @return The day of the week, as a DayOfWeek ordinal.
+     */
+    private static int dayOfWeek(final long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7);
+    }
+
+    private static void set(final long[] bits,
+                            final long index,
+                            final int length) {
+        if (index >= 0 && index < length) {
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    private static void setRange(final long[] bits,
+                                 final int from,
+                                 final int to) {
+        int i = from;
+        while (i < to) {
+            final int end = Math.min(to, (i | 63) + 1);
+            bits[i >>> 6] |= (end - i == 64 ? -1L : (1L << (end - i)) - 1) << i;
+            i = end;
+        }
+    }
+
+    private static void and(final long[] bits,
+                            final long[] other) {
+        for (int word = 0; word < WORDS; word++) {
+            bits[word] &= other[word];
+        }
+    }
+}
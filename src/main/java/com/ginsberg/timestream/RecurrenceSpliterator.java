@@ -0,0 +1,401 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * A Spliterator over the occurrences of a RecurrenceRule, which expands one period of the
+ * rule at a time. Occurrences are calculated on the local time-line, as seconds, and only
+ * turned into elements as they are produced.
+ *
+ * A bounded series knows which periods it covers, so it splits by halving the range of
+ * periods, and counts the occurrences of whole periods without creating any elements. A
+ * COUNT in the rule is turned into a bound up front, by counting the occurrences of each
+ * period until it is reached.
+ *
+ * In a zone with transitions, a time in a gap is moved later by the length of the gap, which
+ * can land it on or past a time that follows it. Those elements are only produced once, in
+ * order, and such a series is counted element by element.
+ *
+ * @param <T> Type of element produced.
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class RecurrenceSpliterator<T extends Comparable<? super T>> implements Spliterator<T> {
+    private static final long NONE = Long.MIN_VALUE;
+    private static final long UNBOUNDED = Long.MAX_VALUE;
+
+    /**
+     * The number of periods added to each split of an unbounded series.
+     */
+    private static final int BATCH = 64;
+
+    private final RecurrenceSchedule schedule;
+    private final LongFunction<T> decode;
+    private final Predicate<? super T> canTake;
+    private final boolean forward;
+    private final boolean distinct;
+    private final long low;
+    private final long high;
+    private final long fence;
+    private final long limitPosition;
+    private final long limit;
+    private final RecurrenceSchedule.Period period;
+    private long position;
+    private long next;
+    private long last;
+    private long empty;
+    private long batch;
+    private boolean ended;
+    private T previous;
+
+    /**
+     * @param schedule      The rule, resolved against the start of the series.
+     * @param decode        Turns an occurrence, in local seconds, into an element.
+     * @param canTake       Whether an element is before the end point.
+     * @param forward       true to move forward through time.
+     * @param distinct      true if every occurrence decodes to a different element, in order.
+     * @param low           The earliest occurrence to produce, in local seconds.
+     * @param high          The latest occurrence to produce, in local seconds.
+     * @param position      The first period to expand, counted in intervals from the start.
+     * @param fence         The period to stop before, or UNBOUNDED.
+     * @param limitPosition The period where COUNT is reached, or -1 if there isn't one.
+     * @param limit         The number of occurrences of that period that are produced.
+     */
+    private RecurrenceSpliterator(final RecurrenceSchedule schedule,
+                                  final LongFunction<T> decode,
+                                  final Predicate<? super T> canTake,
+                                  final boolean forward,
+                                  final boolean distinct,
+                                  final long low,
+                                  final long high,
+                                  final long position,
+                                  final long fence,
+                                  final long limitPosition,
+                                  final long limit) {
+        this.schedule = schedule;
+        this.decode = decode;
+        this.canTake = canTake;
+        this.forward = forward;
+        this.distinct = distinct;
+        this.low = low;
+        this.high = high;
+        this.position = position;
+        this.fence = fence;
+        this.limitPosition = limitPosition;
+        this.limit = limit;
+        this.period = schedule.newPeriod();
+    }
+
+    /**
+     * Create a Spliterator over the occurrences of a rule, from the start of a series to its end.
+     *
+     * @param rule    The non-null rule.
+     * @param from    The start of the series, on the local time-line.
+     * @param to      The end of the series, on the local time-line, or null if it has none.
+     * @param zone    The zone of the series, or null if it doesn't have one.
+     * @param forward true if the series moves forward through time.
+     * @param decode  Turns an occurrence, in local seconds, into an element.
+     * @param canTake Whether an element is before the end point.
+     * @param <T>     Type of element produced.
+     * @return A non-null RecurrenceSpliterator.
+     */
+    static <T extends Comparable<? super T>> RecurrenceSpliterator<T> of(final RecurrenceRule rule,
+                                                                         final LocalDateTime from,
+                                                                         final LocalDateTime to,
+                                                                         final ZoneId zone,
+                                                                         final boolean forward,
+                                                                         final LongFunction<T> decode,
+                                                                         final Predicate<? super T> canTake) {
+        final RecurrenceSchedule schedule = new RecurrenceSchedule(rule, from);
+        final LocalDateTime until = rule.getUntil(zone);
+        final long start = localSecond(from);
+        final long low;
+        final long high;
+        long fence = UNBOUNDED;
+        if (forward) {
+            low = from.getNano() > 0 ? start + 1 : start;
+            high = until == null ? Long.MAX_VALUE : localSecond(until);
+            if (until != null) {
+                fence = fenceAt(schedule, high, true);
+            }
+        } else {
+            low = Long.MIN_VALUE;
+            high = until == null ? start : Math.min(start, localSecond(until));
+        }
+        if (to != null) {
+            // A day either side allows for an end point that moves across midnight between offsets.
+            final long end = localSecond(to) + (forward ? CalendarMath.SECONDS_PER_DAY : 0 - CalendarMath.SECONDS_PER_DAY);
+            fence = Math.min(fence, fenceAt(schedule, end, forward));
+        }
+        final RecurrenceSpliterator<T> spliterator =
+                new RecurrenceSpliterator<>(schedule, decode, canTake, forward, zone == null || zone.getRules().isFixedOffset(),
+                        low, high, 0, fence, -1, 0);
+        return rule.getCount() > 0 ? spliterator.limitedTo(rule.getCount()) : spliterator;
+    }
+
+    /**
+     * Find the first occurrence of a schedule after the given time, in the given direction,
+     * whether or not it is part of a series. This is what follows the last element of a series.
+     *
+     * @param schedule The non-null schedule.
+     * @param after    The time to start after, on the local time-line.
+     * @param forward  true to move forward through time.
+     * @return The next occurrence, or the given time if there isn't one.
+     */
+    static LocalDateTime following(final RecurrenceSchedule schedule,
+                                   final LocalDateTime after,
+                                   final boolean forward) {
+        final long second = localSecond(after);
+        final long position = schedule.positionOf(schedule.periodOf(Math.floorDiv(second, CalendarMath.SECONDS_PER_DAY)), forward);
+        final RecurrenceSpliterator<LocalDateTime> spliterator = new RecurrenceSpliterator<>(
+                schedule,
+                null,
+                null,
+                forward,
+                true,
+                forward ? second + 1 : Long.MIN_VALUE,
+                forward ? Long.MAX_VALUE : after.getNano() > 0 ? second : second - 1,
+                Math.max(position, 0),
+                UNBOUNDED,
+                -1,
+                0);
+        final long following = spliterator.nextValue();
+        return following == NONE ? after : LocalDateTime.ofEpochSecond(following, 0, ZoneOffset.UTC);
+    }
+
+    private static long localSecond(final LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static long fenceAt(final RecurrenceSchedule schedule,
+                                final long second,
+                                final boolean forward) {
+        final long period = schedule.periodOf(Math.floorDiv(second, CalendarMath.SECONDS_PER_DAY));
+        return Math.max(schedule.positionOf(period, forward) + 1, 0);
+    }
+
+    /**
+     * Turn a COUNT into a bound, by counting the occurrences of each period until it is reached.
+     */
+    private RecurrenceSpliterator<T> limitedTo(final long count) {
+        final RecurrenceSpliterator<T> scan = copy(position, fence);
+        long taken = 0;
+        while (scan.load()) {
+            final long size = scan.last - scan.next;
+            if (size >= count - taken) {
+                final long at = scan.position - 1;
+                return new RecurrenceSpliterator<>(schedule, decode, canTake, forward, distinct, low, high, position, at + 1, at, count - taken);
+            }
+            taken += size;
+        }
+        return this;
+    }
+
+    /**
+     * Create another Spliterator over the occurrences that this one started with, sharing its
+     * schedule, so that a series can be streamed again without resolving its rule. This one
+     * must not have been advanced.
+     *
+     * @return A non-null RecurrenceSpliterator.
+     */
+    RecurrenceSpliterator<T> copy() {
+        return copy(position, fence);
+    }
+
+    private RecurrenceSpliterator<T> copy(final long position,
+                                          final long fence) {
+        return new RecurrenceSpliterator<>(schedule, decode, canTake, forward, distinct, low, high, position, fence, limitPosition, limit);
+    }
+
+    /**
+     * @return true if the series has an end, from an end point, UNTIL or COUNT.
+     */
+    boolean isBounded() {
+        return fence != UNBOUNDED;
+    }
+
+    /**
+     * Count the remaining elements of a bounded series. The end point can only fall in the
+     * last two periods, so the others are counted without creating any elements, as long as
+     * each occurrence is a distinct element.
+     *
+     * @return The number of elements.
+     */
+    long count() {
+        long count = 0;
+        while (distinct && !ended) {
+            if (next == last && !load()) {
+                ended = true;
+            } else if (position - 1 >= fence - 2) {
+                break;
+            } else {
+                count += last - next;
+                next = last;
+            }
+        }
+        while (tryAdvance(value -> { })) {
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) {
+        T value;
+        do {
+            final long second = nextValue();
+            if (second == NONE) {
+                return false;
+            }
+            value = decode.apply(second);
+        } while (!distinct && previous != null && !follows(value));
+        if (!canTake.test(value)) {
+            ended = true;
+            next = last;
+            return false;
+        }
+        previous = value;
+        action.accept(value);
+        return true;
+    }
+
+    private boolean follows(final T value) {
+        final int compare = value.compareTo(previous);
+        return forward ? compare > 0 : compare < 0;
+    }
+
+    /**
+     * Splits off the first half of the remaining periods, or for an unbounded series, a batch
+     * of periods that grows with each split. A period that has already been started isn't split.
+     */
+    @Override
+    public Spliterator<T> trySplit() {
+        if (ended || next < last) {
+            return null;
+        }
+        final long mid;
+        if (fence == UNBOUNDED) {
+            batch += BATCH;
+            mid = position + batch;
+        } else {
+            mid = (position + fence) >>> 1;
+            if (mid <= position) {
+                return null;
+            }
+        }
+        final RecurrenceSpliterator<T> prefix = copy(position, mid);
+        position = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence == UNBOUNDED ? Long.MAX_VALUE : last - next + fence - position;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * @return The next occurrence, in local seconds, or NONE if there are no more.
+     */
+    private long nextValue() {
+        if (next == last && (ended || !load())) {
+            ended = true;
+            return NONE;
+        }
+        return schedule.at(period, forward ? next++ : --last);
+    }
+
+    /**
+     * Expand periods until one of them has occurrences between low and high.
+     *
+     * @return false if there are no more periods.
+     */
+    private boolean load() {
+        while (position < fence) {
+            final long at = position++;
+            try {
+                schedule.expand(schedule.periodAt(at, forward), period);
+            } catch (DateTimeException | ArithmeticException e) {
+                // Past the limits of LocalDate, so certainly past the end.
+                return false;
+            }
+            long first = 0;
+            long end = period.size();
+            if (end > 0 && schedule.at(period, 0) < low) {
+                first = indexOf(low);
+            }
+            if (end > first && schedule.at(period, end - 1) > high) {
+                end = indexOf(high + 1);
+            }
+            if (at == limitPosition) {
+                if (forward) {
+                    end = Math.min(end, first + limit);
+                } else {
+                    first = Math.max(first, end - limit);
+                }
+            }
+            if (first < end) {
+                next = first;
+                last = end;
+                empty = 0;
+                return true;
+            }
+            if (fence == UNBOUNDED && ++empty > schedule.periodsPerCycle()) {
+                // The pattern repeats every 400 years, so it will never match again.
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The index of the first occurrence of the period at or after the given second.
+     */
+    private long indexOf(final long second) {
+        long lowIndex = 0;
+        long highIndex = period.size();
+        while (lowIndex < highIndex) {
+            final long mid = (lowIndex + highIndex) >>> 1;
+            if (schedule.at(period, mid) < second) {
+                lowIndex = mid + 1;
+            } else {
+                highIndex = mid;
+            }
+        }
+        return lowIndex;
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ginsberg.timestream;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Replays a plan faster than real time, such as a year of minute ticks in a few hours, to backfill
+ * or load-test whatever consumes them. Each element is released once the real time elapsed since
+ * the replay started reaches its distance from the first element, divided by the speed factor.
+ * The distance is the same whichever way the plan moves, so a plan that moves backward through
+ * time is replayed at the same pace as one that moves forward.
+ * <p>
+ * Rather than sleeping until each element, the replay wakes at most once per batch, and releases
+ * everything that is due. A gap between elements that is longer than a batch is slept through in
+ * one wakeup. Wakeups are run by a TickScheduler, so the rate is measured by its clock, and a
+ * replay can be tested against a clock that is moved by hand.
+ * <p>
+ * A replay can be paused and resumed, and resumes where it left off, as if the pause never
+ * happened. The lag reports how late the last wakeup was for the earliest element it released,
+ * which shows whether the consumer is keeping up. If the consumer throws, the replay stops, and
+ * keeps what was thrown, so that a replay that failed can be told apart from one that finished.
+ * <p>
+ * <pre>
+ * {@code
+ * final Replay<LocalDateTime> replay = Replay.of(
+ *     LocalDateTimeStream.from(start).until(1, ChronoUnit.YEARS).every(1, ChronoUnit.MINUTES).build(),
+ *     time -> time.toInstant(ZoneOffset.UTC),
+ *     1000,
+ *     Duration.ofMillis(50),
+ *     scheduler,
+ *     loadGenerator::send);
+ * replay.start();
+ * }
+ * </pre>
+ * This class is thread-safe. Elements are passed on one at a time, in order.
+ *
+ * @param <T> The type of element.
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+public final class Replay<T extends Comparable<? super T>> {
+    private enum State { READY, RUNNING, PAUSED, FINISHED }
+
+    private final Spliterator<T> source;
+    private final Function<? super T, Instant> instantOf;
+    private final double speed;
+    private final long batch;
+    private final TickScheduler scheduler;
+    private final Consumer<? super T> consumer;
+    private final Object releasing = new Object();
+    private State state = State.READY;
+    private long generation;
+    private Instant origin;
+    private Instant pausedAt;
+    private TickScheduler.Timeout timeout;
+    private Instant firstInstant;
+    private T pending;
+    private long pendingDue;
+    private T taken;
+    private volatile long released;
+    private volatile long lag;
+    private volatile RuntimeException failure;
+
+    private Replay(final TimeStreamPlan<T> plan,
+                   final Function<? super T, Instant> instantOf,
+                   final double speed,
+                   final Duration batch,
+                   final TickScheduler scheduler,
+                   final Consumer<? super T> consumer) {
+        this.source = plan.stream().spliterator();
+        this.instantOf = instantOf;
+        this.speed = speed;
+        this.batch = batch.toNanos();
+        this.scheduler = scheduler;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Create a replay of a plan, which is started by start().
+     *
+     * @param plan      The non-null plan to replay.
+     * @param instantOf The non-null function that places each element on the time-line.
+     * @param speed     How many times faster than real time to replay, which must be positive.
+     * @param batch     The shortest real time between wakeups, which must be positive.
+     * @param scheduler The non-null scheduler that runs each wakeup, by its clock.
+     * @param consumer  The non-null consumer of each element.
+     * @param <T>       The type of element.
+     * @return A non-null Replay.
+     * @throws IllegalArgumentException if the speed or batch is not positive.
+     */
+    public static <T extends Comparable<? super T>> Replay<T> of(final TimeStreamPlan<T> plan,
+                                                                 final Function<? super T, Instant> instantOf,
+                                                                 final double speed,
+                                                                 final Duration batch,
+                                                                 final TickScheduler scheduler,
+                                                                 final Consumer<? super T> consumer) {
+        Objects.requireNonNull(plan);
+        Objects.requireNonNull(instantOf);
+        Objects.requireNonNull(batch);
+        Objects.requireNonNull(scheduler);
+        Objects.requireNonNull(consumer);
+        if (!(speed > 0) || Double.isInfinite(speed)) {
+            throw new IllegalArgumentException("Speed must be positive");
+        }
+        if (batch.isNegative() || batch.isZero()) {
+            throw new IllegalArgumentException("Batch must be positive");
+        }
+        return new Replay<>(plan, instantOf, speed, batch, scheduler, consumer);
+    }
+
+    /**
+     * Start the replay, with the first element released straight away.
+     *
+     * @throws IllegalStateException if the replay has already been started.
+     */
+    public synchronized void start() {
+        if (state != State.READY) {
+            throw new IllegalStateException("Replay has already been started");
+        }
+        origin = scheduler.getClock().instant();
+        state = State.RUNNING;
+        wakeAt(origin);
+    }
+
+    /**
+     * Stop releasing elements until resume() is called. An element that is being released when
+     * this is called is the last one until then. Does nothing if the replay isn't running.
+     */
+    public synchronized void pause() {
+        if (state == State.RUNNING) {
+            state = State.PAUSED;
+            pausedAt = scheduler.getClock().instant();
+            cancelWakeup();
+        }
+    }
+
+    /**
+     * Carry on from where the replay was paused, with the time spent paused left out of the
+     * schedule. Does nothing if the replay isn't paused.
+     */
+    public synchronized void resume() {
+        if (state == State.PAUSED) {
+            final Instant now = scheduler.getClock().instant();
+            origin = origin.plus(Duration.between(pausedAt, now));
+            state = State.RUNNING;
+            wakeAt(now);
+        }
+    }
+
+    /**
+     * Stop the replay for good. Does nothing if it has already finished.
+     */
+    public synchronized void cancel() {
+        state = State.FINISHED;
+        cancelWakeup();
+    }
+
+    /**
+     * @return true once every element has been released, or the replay has been cancelled or has failed.
+     * @see #getFailure()
+     */
+    public synchronized boolean isFinished() {
+        return state == State.FINISHED;
+    }
+
+    /**
+     * @return true if the replay is paused.
+     */
+    public synchronized boolean isPaused() {
+        return state == State.PAUSED;
+    }
+
+    /**
+     * Get whatever stopped the replay, if the consumer, or the function that places elements on
+     * the time-line, threw. The replay is then finished, but not every element was released.
+     *
+     * @return The exception that stopped the replay, or null if nothing has gone wrong.
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Get the number of elements released so far.
+     *
+     * @return The non-negative number of elements released.
+     */
+    public long getReleased() {
+        return released;
+    }
+
+    /**
+     * Get how far behind its due time the earliest element of the last wakeup was released, in
+     * real time. This is about a batch when the consumer keeps up, and grows when it doesn't.
+     *
+     * @return The non-null, non-negative lag, which is zero before anything is released.
+     */
+    public Duration getLag() {
+        return Duration.ofNanos(lag);
+    }
+
+    private void wakeAt(final Instant at) {
+        final long wakeup = ++generation;
+        timeout = scheduler.schedule(at, () -> wake(wakeup));
+    }
+
+    private void cancelWakeup() {
+        generation++;
+        if (timeout != null) {
+            timeout.cancel();
+            timeout = null;
+        }
+    }
+
+    /**
+     * Release everything that is due, then sleep until the next element is due, but for at least
+     * a batch. Wakeups from before a pause are ignored, and only one wakeup releases at a time.
+     */
+    private void wake(final long wakeup) {
+        synchronized (releasing) {
+            final Instant now;
+            synchronized (this) {
+                if (state != State.RUNNING || wakeup != generation) {
+                    return;
+                }
+                now = scheduler.getClock().instant();
+            }
+            final long elapsed = Duration.between(originNow(), now).toNanos();
+            boolean earliest = true;
+            try {
+                while (true) {
+                    if (pending == null && !takeNext()) {
+                        finish(wakeup);
+                        return;
+                    }
+                    if (pendingDue > elapsed) {
+                        break;
+                    }
+                    synchronized (this) {
+                        if (state != State.RUNNING || wakeup != generation) {
+                            return;
+                        }
+                    }
+                    final T element = pending;
+                    pending = null;
+                    if (earliest) {
+                        // The earliest element of each wakeup has waited the longest.
+                        lag = elapsed - pendingDue;
+                        earliest = false;
+                    }
+                    consumer.accept(element);
+                    released++;
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            synchronized (this) {
+                if (state == State.RUNNING && wakeup == generation) {
+                    wakeAt(originNow().plusNanos(Math.max(pendingDue, elapsed + batch)));
+                }
+            }
+        }
+    }
+
+    private synchronized Instant originNow() {
+        return origin;
+    }
+
+    /**
+     * Take the next element from the plan, and work out how long after the start of the replay it is due.
+     *
+     * @return false if there are no more elements.
+     */
+    private boolean takeNext() {
+        taken = null;
+        if (!source.tryAdvance(value -> taken = value)) {
+            return false;
+        }
+        final Instant instant = instantOf.apply(taken);
+        if (firstInstant == null) {
+            firstInstant = instant;
+        }
+        pending = taken;
+        pendingDue = (long) (Duration.between(firstInstant, instant).abs().toNanos() / speed);
+        return true;
+    }
+
+    /**
+     * Stop for good, even if paused in the meantime, keeping the exception rather than throwing
+     * it into the scheduler, which would have nowhere to report it.
+     */
+    private synchronized void fail(final RuntimeException e) {
+        failure = e;
+        state = State.FINISHED;
+        cancelWakeup();
+    }
+
+    private synchronized void finish(final long wakeup) {
+        if (wakeup == generation) {
+            state = State.FINISHED;
+            timeout = null;
+        }
+    }
+}
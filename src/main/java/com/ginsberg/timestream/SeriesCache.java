@@ -0,0 +1,237 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A cache of materialized series, for when the same series is built over and over again,
+ * such as "the last 90 days" on every request of a reporting service. Each series is found
+ * by its type, end points, step and zone, and is gathered into an immutable CachedSeries the
+ * first time it is asked for. The least recently used series are evicted to keep within a
+ * number of entries and an approximate number of bytes.
+ * <p>
+ * A series from fromNow() (or anything relative to it) is anchored to the start of its day,
+ * so that it is the same series all day and rolls over at midnight. For example:
+ * <p>
+ * <pre>
+ * {@code
+ * // Every hour of today, shared by every call made today.
+ * CachedSeries<ZonedDateTime> hours = cache.get(ZonedDateTimeStream
+ *     .fromNow()
+ *     .until(1, ChronoUnit.DAYS)
+ *     .every(1, ChronoUnit.HOURS));
+ * }
+ * </pre>
+ * Dates and months from fromNow() are already whole days, so they are unchanged.
+ * <p>
+ * This class is thread-safe. Series are gathered outside of the lock, so two threads
+ * missing on the same series at the same time may both gather it, but only one is kept.
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+public final class SeriesCache {
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Map<List<Object>, CachedSeries<?>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Create an empty cache.
+     *
+     * @param maxEntries The positive number of series to keep.
+     * @param maxBytes   The positive number of bytes of series to keep. A series bigger than this is never kept.
+     * @throws IllegalArgumentException if either limit is not positive.
+     */
+    public SeriesCache(final int maxEntries,
+                       final long maxBytes) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Maximum entries must be positive");
+        }
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Maximum bytes must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the series described by the given builder, gathering it if it isn't cached.
+     *
+     * @param series A non-null, bounded LocalDateStream.
+     * @return The non-null series.
+     * @throws IllegalStateException if the series is infinite or too long to fit in an array.
+     */
+    public CachedSeries<LocalDate> get(final LocalDateStream series) {
+        Objects.requireNonNull(series);
+        return get(series.seriesKey(), series::materialize);
+    }
+
+    /**
+     * Get the series described by the given builder, gathering it if it isn't cached.
+     *
+     * @param series A non-null, bounded YearMonthStream.
+     * @return The non-null series.
+     * @throws IllegalStateException if the series is infinite or too long to fit in an array.
+     */
+    public CachedSeries<YearMonth> get(final YearMonthStream series) {
+        Objects.requireNonNull(series);
+        return get(series.seriesKey(), series::materialize);
+    }
+
+    /**
+     * Get the series described by the given builder, gathering it if it isn't cached.
+     *
+     * @param series A non-null, bounded LocalDateTimeStream.
+     * @return The non-null series.
+     * @throws IllegalStateException if the series is infinite or too long to fit in an array.
+     */
+    public CachedSeries<LocalDateTime> get(final LocalDateTimeStream series) {
+        final LocalDateTimeStream anchored = Objects.requireNonNull(series).anchoredToDay();
+        return get(anchored.seriesKey(), anchored::materialize);
+    }
+
+    /**
+     * Get the series described by the given builder, gathering it if it isn't cached.
+     *
+     * @param series A non-null, bounded ZonedDateTimeStream.
+     * @return The non-null series.
+     * @throws IllegalStateException if the series is infinite or too long to fit in an array.
+     */
+    public CachedSeries<ZonedDateTime> get(final ZonedDateTimeStream series) {
+        final ZonedDateTimeStream anchored = Objects.requireNonNull(series).anchoredToDay();
+        return get(anchored.seriesKey(), anchored::materialize);
+    }
+
+    /**
+     * Get the series described by the given builder, gathering it if it isn't cached.
+     * Series from fromNow() are anchored to the start of the day at UTC.
+     *
+     * @param series A non-null, bounded InstantStream.
+     * @return The non-null series.
+     * @throws IllegalStateException if the series is infinite or too long to fit in an array.
+     */
+    public CachedSeries<Instant> get(final InstantStream series) {
+        final InstantStream anchored = Objects.requireNonNull(series).anchoredToDay();
+        return get(anchored.seriesKey(), anchored::materialize);
+    }
+
+    /**
+     * The key includes the type of builder, so the series found for it is always of the right type.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CachedSeries<T> get(final List<Object> key,
+                                    final Supplier<CachedSeries<T>> loader) {
+        synchronized (this) {
+            final CachedSeries<?> cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return (CachedSeries<T>) cached;
+            }
+            misses++;
+        }
+        final CachedSeries<T> series = loader.get();
+        synchronized (this) {
+            final CachedSeries<?> raced = entries.get(key);
+            if (raced != null) {
+                return (CachedSeries<T>) raced;
+            }
+            if (series.byteSize() <= maxBytes) {
+                entries.put(key, series);
+                bytes += series.byteSize();
+                evict();
+            }
+        }
+        return series;
+    }
+
+    /**
+     * Remove the least recently used entries until the cache is within its limits.
+     */
+    private void evict() {
+        final Iterator<CachedSeries<?>> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= eldest.next().byteSize();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Remove every series from the cache. The counters are not reset.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return The number of series in the cache.
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return The approximate number of bytes held by the series in the cache.
+     */
+    public synchronized long getByteCount() {
+        return bytes;
+    }
+
+    /**
+     * @return The number of times a series was found in the cache.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return The number of times a series had to be gathered.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return The number of series removed to keep the cache within its limits.
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ginsberg.timestream;
+
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * Finds the elements of one sorted, distinct series that are (or are not) in other series,
+ * lazily and without holding any of them in memory. Each series is read through a Seeker,
+ * which moves forward to the first element at or past a target. A series with a fixed step
+ * jumps straight to the index of the target, so long gaps in the other series are skipped
+ * rather than walked, and any other series steps forward one element at a time.
+ *
+ * @param <T> The type of element.
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class SetOperationSpliterator<T extends Comparable<? super T>> implements Spliterator<T> {
+    private static final long MAX_STEP = 1L << 62;
+
+    private final Comparator<? super T> order;
+    private final List<Seeker<T>> seekers;
+    private final boolean intersect;
+
+    /**
+     * Create a Spliterator over the elements of the first stream that are in every other stream.
+     *
+     * @param order   The non-null order that every stream moves in.
+     * @param streams The non-null streams, the first of which the elements are taken from.
+     * @param <T>     The type of element.
+     * @return A non-null SetOperationSpliterator.
+     */
+    static <T extends Comparable<? super T>> SetOperationSpliterator<T> intersect(final Comparator<? super T> order,
+                                                                                  final List<? extends AbstractComparableStream<T>> streams) {
+        return new SetOperationSpliterator<>(order, streams, true);
+    }
+
+    /**
+     * Create a Spliterator over the elements of the first stream that are in none of the other streams.
+     *
+     * @param order   The non-null order that every stream moves in.
+     * @param streams The non-null streams, the first of which the elements are taken from.
+     * @param <T>     The type of element.
+     * @return A non-null SetOperationSpliterator.
+     */
+    static <T extends Comparable<? super T>> SetOperationSpliterator<T> except(final Comparator<? super T> order,
+                                                                               final List<? extends AbstractComparableStream<T>> streams) {
+        return new SetOperationSpliterator<>(order, streams, false);
+    }
+
+    private <S extends AbstractComparableStream<T>> SetOperationSpliterator(final Comparator<? super T> order,
+                                                                            final List<S> streams,
+                                                                            final boolean intersect) {
+        this.order = order;
+        this.intersect = intersect;
+        this.seekers = new ArrayList<>(streams.size());
+        for (S stream : streams) {
+            seekers.add(stream.hasFixedStep() ? new IndexedSeeker<>(stream, order) : new SteppingSeeker<>(stream.spliterator(), order));
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) {
+        final T value = intersect ? nextCommon() : nextMissing();
+        if (value == null) {
+            return false;
+        }
+        action.accept(value);
+        return true;
+    }
+
+    /**
+     * Leapfrog through the series: each one in turn seeks the latest candidate, and a
+     * series that lands past it offers a new candidate, until every series agrees.
+     *
+     * @return The next element of the first series found in every other, or null if there are no more.
+     */
+    private T nextCommon() {
+        T candidate = seekers.get(0).advance();
+        int agreed = 1;
+        for (int i = 1 % seekers.size(); candidate != null && agreed < seekers.size(); i = (i + 1) % seekers.size()) {
+            final T value = seekers.get(i).seek(candidate);
+            if (value == null) {
+                return null;
+            }
+            if (order.compare(value, candidate) == 0) {
+                agreed++;
+            } else {
+                candidate = value;
+                agreed = 1;
+            }
+        }
+        // Equal isn't always identical (such as the same instant in another zone), so answer with the first series.
+        return candidate == null ? null : seekers.get(0).current;
+    }
+
+    /**
+     * @return The next element of the first series found in none of the others, or null if there are no more.
+     */
+    private T nextMissing() {
+        for (T value = seekers.get(0).advance(); value != null; value = seekers.get(0).advance()) {
+            if (!inOthers(value)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private boolean inOthers(final T value) {
+        for (int i = 1; i < seekers.size(); i++) {
+            final T found = seekers.get(i).seek(value);
+            if (found != null && order.compare(found, value) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Set operations can only be done in order, so this doesn't split.
+     */
+    @Override
+    public Spliterator<T> trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * A position in a sorted, distinct series, which only ever moves forward.
+     */
+    private abstract static class Seeker<T> {
+        final Comparator<? super T> order;
+        T current;
+        boolean finished;
+
+        Seeker(final Comparator<? super T> order) {
+            this.order = order;
+        }
+
+        /**
+         * Move to the next element.
+         *
+         * @return The next element, or null if there are no more.
+         */
+        abstract T advance();
+
+        /**
+         * Move to the first element at or past the target, staying put if already there.
+         *
+         * @param target The non-null element to seek.
+         * @return The element moved to, or null if there are none at or past the target.
+         */
+        abstract T seek(T target);
+
+        T finish() {
+            finished = true;
+            current = null;
+            return null;
+        }
+    }
+
+    /**
+     * Reads a series that can't be indexed, one element at a time.
+     */
+    private static final class SteppingSeeker<T> extends Seeker<T> {
+        private final Spliterator<T> source;
+        private final Consumer<T> take = value -> current = value;
+
+        SteppingSeeker(final Spliterator<T> source,
+                       final Comparator<? super T> order) {
+            super(order);
+            this.source = source;
+        }
+
+        @Override
+        T advance() {
+            if (finished || !source.tryAdvance(take)) {
+                return finish();
+            }
+            return current;
+        }
+
+        @Override
+        T seek(final T target) {
+            T value = current == null && !finished ? advance() : current;
+            while (value != null && order.compare(value, target) < 0) {
+                value = advance();
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Reads a series with a fixed step by index. Seeking starts from an estimate of the
+     * index of the target and gallops away from it in growing steps until it is passed,
+     * then searches back, so an estimate that is off costs a handful of steps.
+     */
+    private static final class IndexedSeeker<T extends Comparable<? super T>> extends Seeker<T> {
+        private final AbstractComparableStream<T> stream;
+        private final LongFunction<T> indexer;
+        private final Predicate<T> canTake;
+        private long index = -1;
+
+        IndexedSeeker(final AbstractComparableStream<T> stream,
+                      final Comparator<? super T> order) {
+            super(order);
+            this.stream = stream;
+            this.indexer = stream.indexer();
+            this.canTake = stream.canTake();
+        }
+
+        @Override
+        T advance() {
+            return finished ? null : moveTo(index + 1);
+        }
+
+        @Override
+        T seek(final T target) {
+            if (finished || (current != null && order.compare(current, target) >= 0)) {
+                return current;
+            }
+            // Everything up to low is before the target, and everything from high on reaches it.
+            long low = index;
+            long high = Math.max(index + 1, estimate(target));
+            long step = 1;
+            if (reaches(high, target)) {
+                while (high - low > 1) {
+                    final long probe = high - low > step ? high - step : low + 1;
+                    if (!reaches(probe, target)) {
+                        low = probe;
+                        break;
+                    }
+                    high = probe;
+                    step = Math.min(step << 1, MAX_STEP);
+                }
+            } else {
+                do {
+                    if (high == Long.MAX_VALUE) {
+                        return finish();
+                    }
+                    low = high;
+                    high = Long.MAX_VALUE - high > step ? high + step : Long.MAX_VALUE;
+                    step = Math.min(step << 1, MAX_STEP);
+                } while (!reaches(high, target));
+            }
+            while (high - low > 1) {
+                final long middle = low + (high - low) / 2;
+                if (reaches(middle, target)) {
+                    high = middle;
+                } else {
+                    low = middle;
+                }
+            }
+            return moveTo(high);
+        }
+
+        private long estimate(final T target) {
+            try {
+                return order.compare(target, stream.getFrom()) <= 0 ? 0 : stream.estimateIndexOf(target);
+            } catch (DateTimeException | ArithmeticException e) {
+                return 0;
+            }
+        }
+
+        /**
+         * Positions past the end of the series reach every target, which keeps this monotonic.
+         */
+        private boolean reaches(final long position,
+                                final T target) {
+            final T value = valueAt(position);
+            return value == null || order.compare(value, target) >= 0;
+        }
+
+        private T moveTo(final long position) {
+            final T value = valueAt(position);
+            if (value == null) {
+                return finish();
+            }
+            index = position;
+            current = value;
+            return value;
+        }
+
+        private T valueAt(final long position) {
+            final T value;
+            try {
+                value = indexer.apply(position);
+            } catch (DateTimeException | ArithmeticException e) {
+                // Past the limits of the type, so certainly past the end.
+                return null;
+            }
+            return canTake.test(value) ? value : null;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ginsberg.timestream;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs tasks when a Clock reaches them, for streams that are paced in real time. Tasks are kept in
+ * a hashed timer wheel: a ring of slots, one for each tick of the given resolution, so scheduling
+ * and running a task costs the same no matter how many are waiting, and thousands of schedules can
+ * share a handful of threads. A task is never run before the clock reaches it, and at most one
+ * tick after.
+ * <p>
+ * A started scheduler has a thread that turns the wheel, which wakes at the start of each tick as
+ * measured by the clock, rather than sleeping for a tick at a time, so it doesn't drift. Due tasks
+ * are run on a pool of threads. A manual scheduler has no threads, and runs due tasks when asked,
+ * which along with a clock that is moved by hand allows paced streams to be tested without waiting.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+public final class TickScheduler implements AutoCloseable {
+    private static final int SLOTS = 512;
+    private static final int MASK = SLOTS - 1;
+
+    private final Clock clock;
+    private final long resolution;
+    private final long origin;
+    private final List<List<Timeout>> wheel = new ArrayList<>(SLOTS);
+    private final ArrayDeque<Runnable> ready = new ArrayDeque<>();
+    private final ExecutorService workers;
+    private final Thread driver;
+    private long tick;
+    private volatile boolean closed;
+
+    private TickScheduler(final Clock clock,
+                          final Duration resolution,
+                          final int threads) {
+        Objects.requireNonNull(clock);
+        Objects.requireNonNull(resolution);
+        if (resolution.toMillis() < 1) {
+            throw new IllegalArgumentException("Resolution must be at least a millisecond");
+        }
+        this.clock = clock;
+        this.resolution = resolution.toMillis();
+        this.origin = clock.millis();
+        for (int i = 0; i < SLOTS; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        if (threads > 0) {
+            this.workers = Executors.newFixedThreadPool(threads, task -> daemon(task, "timestream-tick-worker"));
+            this.driver = daemon(this::turn, "timestream-tick-wheel");
+            this.driver.start();
+        } else {
+            this.workers = null;
+            this.driver = null;
+        }
+    }
+
+    /**
+     * Start a scheduler that runs on its own threads.
+     *
+     * @param clock      The non-null clock that decides when tasks are due.
+     * @param resolution The length of each tick of the wheel, which must be at least a millisecond.
+     * @param threads    The positive number of threads that run due tasks.
+     * @return A non-null, running TickScheduler.
+     * @throws IllegalArgumentException if the resolution is less than a millisecond, or threads is not positive.
+     */
+    public static TickScheduler start(final Clock clock,
+                                      final Duration resolution,
+                                      final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be positive");
+        }
+        return new TickScheduler(clock, resolution, threads);
+    }
+
+    /**
+     * Create a scheduler without any threads, which only runs due tasks when runDue() is called.
+     *
+     * @param clock      The non-null clock that decides when tasks are due, usually one that is moved by hand.
+     * @param resolution The length of each tick of the wheel, which must be at least a millisecond.
+     * @return A non-null TickScheduler.
+     * @throws IllegalArgumentException if the resolution is less than a millisecond.
+     */
+    public static TickScheduler manual(final Clock clock,
+                                       final Duration resolution) {
+        return new TickScheduler(clock, resolution, 0);
+    }
+
+    /**
+     * Get the clock that decides when tasks are due.
+     *
+     * @return The non-null clock.
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Run every task that the clock has reached, on this thread, including any that they schedule
+     * for a time that has already been reached.
+     *
+     * @return The number of tasks run.
+     * @throws IllegalStateException if the scheduler has its own threads.
+     */
+    public int runDue() {
+        if (workers != null) {
+            throw new IllegalStateException("Only a manual scheduler can be run by hand");
+        }
+        final List<Runnable> due = advance(tickAt(clock.millis()));
+        int run = 0;
+        synchronized (wheel) {
+            ready.addAll(due);
+        }
+        for (Runnable task = nextReady(); task != null; task = nextReady()) {
+            task.run();
+            run++;
+        }
+        return run;
+    }
+
+    /**
+     * Stop the threads of the scheduler. Tasks that are waiting are never run.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (driver != null) {
+            driver.interrupt();
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Run a task when the clock reaches the given instant, or as soon as possible if it already has.
+     *
+     * @param at   The non-null instant to run the task at.
+     * @param task The non-null task.
+     * @return A non-null Timeout, which can cancel the task.
+     * @throws ArithmeticException if the instant is too far away to be measured in milliseconds.
+     */
+    Timeout schedule(final Instant at,
+                     final Runnable task) {
+        final long deadline = Math.floorDiv(at.toEpochMilli() - origin + resolution - 1, resolution);
+        final Timeout timeout = new Timeout(deadline, task);
+        // The wheel rounds the deadline up to a tick, so a time the clock has already reached within
+        // the current tick would wait for the next one, rather than running straight away.
+        final boolean reached = !at.isAfter(clock.instant());
+        synchronized (wheel) {
+            if (deadline > tick && !reached) {
+                wheel.get((int) (deadline & MASK)).add(timeout);
+                return timeout;
+            }
+            if (workers == null) {
+                ready.add(timeout);
+                return timeout;
+            }
+        }
+        execute(timeout);
+        return timeout;
+    }
+
+    private long tickAt(final long millis) {
+        return Math.floorDiv(millis - origin, resolution);
+    }
+
+    /**
+     * Move the wheel on to the given tick, taking out every task that is then due. Each slot
+     * is visited at most once, even if the wheel has been left for more than a turn.
+     */
+    private List<Runnable> advance(final long now) {
+        final List<Runnable> due = new ArrayList<>();
+        synchronized (wheel) {
+            final long last = Math.min(now, tick + SLOTS);
+            for (long visit = tick + 1; visit <= last; visit++) {
+                final Iterator<Timeout> timeouts = wheel.get((int) (visit & MASK)).iterator();
+                while (timeouts.hasNext()) {
+                    final Timeout timeout = timeouts.next();
+                    if (timeout.cancelled) {
+                        timeouts.remove();
+                    } else if (timeout.deadline <= now) {
+                        timeouts.remove();
+                        due.add(timeout);
+                    }
+                }
+            }
+            tick = Math.max(tick, now);
+        }
+        return due;
+    }
+
+    private Runnable nextReady() {
+        synchronized (wheel) {
+            return ready.poll();
+        }
+    }
+
+    /**
+     * Turn the wheel until closed, waking at the start of each tick on the clock, so that time
+     * spent running the wheel is taken out of the wait instead of adding up.
+     */
+    private void turn() {
+        while (!closed) {
+            final long now = clock.millis();
+            for (Runnable timeout : advance(tickAt(now))) {
+                execute(timeout);
+            }
+            final long wait = origin + (tickAt(now) + 1) * resolution - clock.millis();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void execute(final Runnable task) {
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Closed, so the task is dropped along with the rest.
+        }
+    }
+
+    private static Thread daemon(final Runnable task,
+                                 final String name) {
+        final Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * A task waiting in the wheel, which is dropped the next time its slot is visited if it is cancelled.
+     */
+    static final class Timeout implements Runnable {
+        private final long deadline;
+        private final Runnable task;
+        private volatile boolean cancelled;
+
+        private Timeout(final long deadline,
+                        final Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void run() {
+            if (!cancelled) {
+                task.run();
+            }
+        }
+    }
+}
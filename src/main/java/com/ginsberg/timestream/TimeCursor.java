@@ -0,0 +1,346 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.UnsupportedTemporalTypeException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A reusable, mutable position in a stream, for loops where creating an object for
+ * every element costs too much. Each call to advance() moves the cursor to the next
+ * element in place, which can then be read through primitive accessors. The java.time
+ * object for an element is only created if get() is called.
+ * <p>
+ * <pre>
+ * {@code
+ * final TimeCursor<LocalDateTime> cursor = LocalDateTimeStream
+ *     .fromNow()
+ *     .to(1, ChronoUnit.DAYS)
+ *     .every(1, ChronoUnit.MINUTES)
+ *     .cursor();
+ * while (cursor.advance()) {
+ *     if (cursor.minute() == 0) {
+ *         keep(cursor.get());
+ *     }
+ * }
+ * }
+ * </pre>
+ * <p>
+ * A cursor is not thread-safe, and the accessors may only be called after advance()
+ * has returned true. Types without a zone or offset are treated as being at UTC.
+ *
+ * @param <T> The type of element the cursor moves through.
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+public final class TimeCursor<T> {
+    private static final long NANOS_PER_SECOND = EpochStep.NANOS_PER_SECOND;
+    private static final long TIMELINE_DAYS = 400;
+
+    private final ZoneId zone;
+    private final boolean forward;
+    private final long stepSeconds;
+    private final int stepNanos;
+    private final long stepDays;
+    private final long stepMonths;
+    private final boolean timeBased;
+    private final boolean bounded;
+    private final long toSecond;
+    private final int toNano;
+    private final Predicate<T> canTake;
+    private final Function<TimeCursor<T>, T> factory;
+    private ZoneTimeline timeline;
+    private long localSecond;
+    private int nano;
+    private ZoneOffset offset;
+    private boolean started = false;
+    private boolean ended = false;
+    private long cachedEpochDay;
+    private int year;
+    private int month;
+    private int day;
+
+    private TimeCursor(final ZonedDateTime from,
+                       final ZonedDateTime to,
+                       final Duration timeStep,
+                       final long stepDays,
+                       final long stepMonths,
+                       final boolean forward,
+                       final Predicate<T> canTake,
+                       final Function<TimeCursor<T>, T> factory) {
+        this.zone = from.getZone();
+        this.forward = forward;
+        this.timeBased = timeStep != null;
+        this.stepSeconds = timeBased ? timeStep.getSeconds() : 0;
+        this.stepNanos = timeBased ? timeStep.getNano() : 0;
+        this.stepDays = stepDays;
+        this.stepMonths = stepMonths;
+        this.bounded = to != null;
+        this.toSecond = bounded ? to.toEpochSecond() : 0;
+        this.toNano = bounded ? to.getNano() : 0;
+        this.canTake = canTake;
+        this.factory = factory;
+        this.timeline = ZoneTimeline.of(
+                zone,
+                from.toEpochSecond(),
+                bounded ? to.toEpochSecond() : window(from.toEpochSecond(), TIMELINE_DAYS));
+        this.localSecond = from.toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+        this.nano = from.getNano();
+        this.offset = from.getOffset();
+        this.cachedEpochDay = Long.MIN_VALUE;
+    }
+
+    /**
+     * Create a cursor that steps by an amount of a unit.
+     *
+     * @param from    The first element, as a ZonedDateTime.
+     * @param to      The end point, as a ZonedDateTime, or null if there is none.
+     * @param amount  The number of units to step by, negative to move backward.
+     * @param unit    The unit to step by. Time-based units step along the instant
+     *                time-line, days and longer step along the local time-line.
+     * @param canTake Decides if an element that compares equal to the end point is taken.
+     * @param factory Creates the element that the cursor is on.
+     * @param <T>     The type of element.
+     * @return A non-null TimeCursor.
+     * @throws UnsupportedTemporalTypeException if the unit can't be stepped by.
+     */
+    static <T> TimeCursor<T> of(final ZonedDateTime from,
+                                final ZonedDateTime to,
+                                final long amount,
+                                final ChronoUnit unit,
+                                final Predicate<T> canTake,
+                                final Function<TimeCursor<T>, T> factory) {
+        if (unit.isTimeBased()) {
+            return of(from, to, unit.getDuration().multipliedBy(amount), canTake, factory);
+        } else if (unit == ChronoUnit.DAYS || unit == ChronoUnit.WEEKS) {
+            final long days = unit == ChronoUnit.WEEKS ? Math.multiplyExact(amount, 7) : amount;
+            return new TimeCursor<>(from, to, null, days, 0, amount > 0, canTake, factory);
+        } else if (AbstractComparableStream.isMonthBased(unit)) {
+            final long months = Math.multiplyExact(amount, CalendarMath.monthsIn(unit));
+            return new TimeCursor<>(from, to, null, 0, months, amount > 0, canTake, factory);
+        }
+        throw new UnsupportedTemporalTypeException("Cursors can't step by " + unit);
+    }
+
+    /**
+     * Create a cursor that steps along the instant time-line by a duration.
+     *
+     * @param from    The first element, as a ZonedDateTime.
+     * @param to      The end point, as a ZonedDateTime, or null if there is none.
+     * @param step    The non-zero duration to step by, negative to move backward.
+     * @param canTake Decides if an element that compares equal to the end point is taken.
+     * @param factory Creates the element that the cursor is on.
+     * @param <T>     The type of element.
+     * @return A non-null TimeCursor.
+     */
+    static <T> TimeCursor<T> of(final ZonedDateTime from,
+                                final ZonedDateTime to,
+                                final Duration step,
+                                final Predicate<T> canTake,
+                                final Function<TimeCursor<T>, T> factory) {
+        return new TimeCursor<>(from, to, step, 0, 0, !step.isNegative(), canTake, factory);
+    }
+
+    /**
+     * Move to the next element. The first call moves to the first element.
+     *
+     * @return true if the cursor is on an element, false if the stream has ended.
+     * @throws java.time.DateTimeException if the next element is outside of the supported range.
+     */
+    public boolean advance() {
+        if (ended) {
+            return false;
+        }
+        if (started) {
+            step();
+        }
+        started = true;
+        if (!canTake()) {
+            ended = true;
+        }
+        return !ended;
+    }
+
+    /**
+     * Create the java.time object for the current element.
+     *
+     * @return The non-null element the cursor is on.
+     */
+    public T get() {
+        return factory.apply(this);
+    }
+
+    /**
+     * @return The year, which may be negative.
+     */
+    public int year() {
+        updateDate();
+        return year;
+    }
+
+    /**
+     * @return The month of the year, from 1 to 12.
+     */
+    public int month() {
+        updateDate();
+        return month;
+    }
+
+    /**
+     * @return The day of the month, from 1 to 31.
+     */
+    public int day() {
+        updateDate();
+        return day;
+    }
+
+    /**
+     * @return The hour of the day, from 0 to 23.
+     */
+    public int hour() {
+        return (int) (secondOfDay() / 3_600);
+    }
+
+    /**
+     * @return The minute of the hour, from 0 to 59.
+     */
+    public int minute() {
+        return (int) (secondOfDay() / 60 % 60);
+    }
+
+    /**
+     * @return The second of the minute, from 0 to 59.
+     */
+    public int second() {
+        return (int) (secondOfDay() % 60);
+    }
+
+    /**
+     * @return The nano of the second, from 0 to 999,999,999.
+     */
+    public int nano() {
+        return nano;
+    }
+
+    /**
+     * @return The number of seconds from the epoch of 1970-01-01T00:00:00Z.
+     */
+    public long epochSecond() {
+        return localSecond - offset.getTotalSeconds();
+    }
+
+    ZoneOffset offset() {
+        return offset;
+    }
+
+    ZoneId zone() {
+        return zone;
+    }
+
+    private void step() {
+        if (timeBased) {
+            long epochSecond = Math.addExact(epochSecond(), stepSeconds);
+            int next = nano + stepNanos;
+            if (next >= NANOS_PER_SECOND) {
+                next -= NANOS_PER_SECOND;
+                epochSecond = Math.addExact(epochSecond, 1);
+            }
+            loadTimeline(epochSecond + offset.getTotalSeconds());
+            offset = timeline.offsetAt(epochSecond);
+            localSecond = epochSecond + offset.getTotalSeconds();
+            nano = next;
+        } else {
+            final long epochDay = Math.floorDiv(localSecond, CalendarMath.SECONDS_PER_DAY);
+            final long secondOfDay = Math.floorMod(localSecond, CalendarMath.SECONDS_PER_DAY);
+            final long nextDay = stepMonths == 0
+                    ? ChronoField.EPOCH_DAY.checkValidValue(Math.addExact(epochDay, stepDays))
+                    : CalendarMath.plusMonths(epochDay, stepMonths);
+            final long next = nextDay * CalendarMath.SECONDS_PER_DAY + secondOfDay;
+            loadTimeline(next);
+            localSecond = timeline.validLocal(next);
+            offset = timeline.offsetAtLocal(localSecond, offset);
+        }
+    }
+
+    /**
+     * Once the cursor leaves the span of time that offsets have been loaded for,
+     * load the next stretch of time in the direction it is moving.
+     */
+    private void loadTimeline(final long nextLocalSecond) {
+        if (!timeline.covers(nextLocalSecond)) {
+            final long epochSecond = nextLocalSecond - offset.getTotalSeconds();
+            timeline = ZoneTimeline.of(zone, window(epochSecond, -2), window(epochSecond, TIMELINE_DAYS));
+        }
+    }
+
+    private long window(final long epochSecond,
+                        final long days) {
+        final long seconds = (forward ? days : 0 - days) * CalendarMath.SECONDS_PER_DAY;
+        try {
+            return Math.addExact(epochSecond, seconds);
+        } catch (ArithmeticException e) {
+            return seconds > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Elements at a different instant to the end point are compared by instant. Otherwise,
+     * the element is created and compared the same way that a stream would compare it.
+     */
+    private boolean canTake() {
+        if (!bounded) {
+            return true;
+        }
+        int compare = Long.compare(epochSecond(), toSecond);
+        if (compare == 0) {
+            compare = Integer.compare(nano, toNano);
+        }
+        if (compare == 0) {
+            return canTake.test(get());
+        }
+        return forward ? compare < 0 : compare > 0;
+    }
+
+    private long secondOfDay() {
+        return Math.floorMod(localSecond, CalendarMath.SECONDS_PER_DAY);
+    }
+
+    private void updateDate() {
+        final long epochDay = Math.floorDiv(localSecond, CalendarMath.SECONDS_PER_DAY);
+        if (epochDay != cachedEpochDay) {
+            final long prolepticMonth = CalendarMath.prolepticMonthOf(epochDay);
+            year = (int) Math.floorDiv(prolepticMonth, 12);
+            month = (int) Math.floorMod(prolepticMonth, 12) + 1;
+            day = (int) (epochDay - CalendarMath.epochDay(prolepticMonth, 1)) + 1;
+            cachedEpochDay = epochDay;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ginsberg.timestream;
+
+import java.util.Comparator;
+import java.util.OptionalLong;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A stream that has been built, from a snapshot of its builder. Builders are changed by every call
+ * made on them, so they can't be shared, and each stream they produce works out its size and step
+ * again. A plan is immutable and thread-safe, so it can be kept in a constant and streamed from any
+ * number of threads at once. Its direction, size and the way each element is found are worked out
+ * once, when it is built, so producing a stream only creates the spliterator that backs it.
+ * <p>
+ * <pre>
+ * {@code
+ * private static final TimeStreamPlan<LocalDate> QUARTER = LocalDateStream
+ *     .from(LocalDate.of(2016, 1, 1))
+ *     .until(LocalDate.of(2016, 4, 1))
+ *     .build();
+ * }
+ * </pre>
+ *
+ * @param <T> The type of element.
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+public final class TimeStreamPlan<T extends Comparable<? super T>> {
+    private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+
+    private final T from;
+    private final boolean forward;
+    private final OptionalLong size;
+    private final Comparator<? super T> comparator;
+    private final LongFunction<T> indexer;
+    private final UnaryOperator<T> next;
+    private final Predicate<T> canTake;
+    private final RecurrenceSpliterator<T> recurrence;
+
+    /**
+     * @param series A copy of a builder, which nothing else holds, so it never changes.
+     */
+    TimeStreamPlan(final AbstractComparableStream<T> series) {
+        this.from = series.getFrom();
+        this.forward = series.isForward();
+        this.size = series.size();
+        this.comparator = series.comparator();
+        this.indexer = series.hasFixedStep() ? series.indexer() : null;
+        this.next = series.next();
+        this.canTake = series.canTake();
+        this.recurrence = series.recurrenceSpliterator();
+    }
+
+    /**
+     * Produce a stream of the elements of the plan.
+     *
+     * @return A non-null stream of time/date.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Produce a parallel stream of the elements of the plan. Bounded plans know their size, so they split evenly.
+     *
+     * @return A non-null parallel stream of time/date.
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Get the number of elements in the plan, which was counted when it was built.
+     *
+     * @return The number of elements, or empty if the plan is infinite.
+     */
+    public OptionalLong size() {
+        return size;
+    }
+
+    /**
+     * Determine which way through time the plan moves.
+     *
+     * @return true if each element is the same as or later than the one before it.
+     */
+    public boolean isForward() {
+        return forward;
+    }
+
+    /**
+     * Get the element at the given index of the plan. When the step is fixed this
+     * is calculated directly, otherwise it is found by walking the stream.
+     *
+     * @param index The non-negative index of the element to get.
+     * @return The non-null element at the given index.
+     * @throws IndexOutOfBoundsException if index is negative or past the end of the plan.
+     */
+    public T get(final long index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index must not be negative: " + index);
+        }
+        if (size.isPresent() && index >= size.getAsLong()) {
+            throw new IndexOutOfBoundsException("Index is past the end of the stream: " + index);
+        }
+        if (indexer != null) {
+            return indexer.apply(index);
+        }
+        return stream()
+                .skip(index)
+                .findFirst()
+                .orElseThrow(() -> new IndexOutOfBoundsException("Index is past the end of the stream: " + index));
+    }
+
+    /**
+     * A bounded plan with a fixed step is indexed. Any other plan with a size is stepped through,
+     * but reports its size so that terminal operations such as count() don't have to walk it.
+     */
+    private Spliterator<T> spliterator() {
+        if (recurrence != null) {
+            return recurrence.copy();
+        }
+        if (indexer != null && size.isPresent()) {
+            return new RangeSpliterator<>(indexer, 0, size.getAsLong(), comparator);
+        }
+        final T first = indexer == null ? from : indexer.apply(0);
+        final Spliterator<T> stepped = Steps.of(first, next, canTake);
+        if (size.isPresent()) {
+            return Spliterators.spliterator(Spliterators.iterator(stepped), size.getAsLong(), CHARACTERISTICS);
+        }
+        return stepped;
+    }
+}
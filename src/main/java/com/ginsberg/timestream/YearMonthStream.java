@@ -26,9 +26,18 @@ package com.ginsberg.timestream;
 
 import java.time.Period;
 import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoField;
 import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
 import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 /**
  * A builder that creates a stream of YearMonth objects.
@@ -61,7 +70,9 @@ public class YearMonthStream extends AbstractComparableStream<YearMonth> {
      * @return A non-null YearMonthStream.
      */
     public static YearMonthStream fromNow() {
-        return new YearMonthStream(YearMonth.now());
+        final YearMonthStream stream = new YearMonthStream(YearMonth.now());
+        stream.setRelative();
+        return stream;
     }
 
     /**
@@ -74,6 +85,57 @@ public class YearMonthStream extends AbstractComparableStream<YearMonth> {
         return new YearMonthStream(from);
     }
 
+    /**
+     * Merge YearMonthStreams into a single stream, in order, such as to combine many schedules
+     * into one timeline. Each stream is already in order, so only its next element is held,
+     * rather than buffering and sorting everything, and unbounded streams can be merged.
+     *
+     * @param distinct true to produce each month only once.
+     * @param streams  The non-null streams to merge, which must all move in the same direction.
+     * @return A non-null Stream of YearMonth, which is infinite if any of the streams are.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public static Stream<YearMonth> merge(final boolean distinct,
+                                          final YearMonthStream... streams) {
+        return merge(streams, Comparator.naturalOrder(), distinct);
+    }
+
+    /**
+     * Produce each month of this stream that is also in every one of the others, lazily. Every stream is
+     * already sorted and distinct, so they are walked together rather than collected into a set, and a
+     * stream with a fixed step jumps over the gaps between matches instead of stepping through them.
+     *
+     * @param others The non-null streams to intersect with, which must move in the same direction as this one.
+     * @return A non-null Stream of YearMonth, which is infinite only if every stream is.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<YearMonth> intersect(final YearMonthStream... others) {
+        return intersection(this, others, Comparator.naturalOrder());
+    }
+
+    /**
+     * Produce each month of this stream that is in none of the others, lazily, walking the streams together
+     * in the same way as intersect().
+     *
+     * @param others The non-null streams to leave out, which must move in the same direction as this one.
+     * @return A non-null Stream of YearMonth, which is infinite if this stream is.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<YearMonth> except(final YearMonthStream... others) {
+        return difference(this, others, Comparator.naturalOrder());
+    }
+
+    /**
+     * Produce each month that is in this stream or any of the others, in order and only once, by merging them.
+     *
+     * @param others The non-null streams to add, which must move in the same direction as this one.
+     * @return A non-null Stream of YearMonth, which is infinite if any of the streams are.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<YearMonth> union(final YearMonthStream... others) {
+        return union(this, others, Comparator.naturalOrder());
+    }
+
     /**
      * Set the inclusive end point of the stream, using an absolute YearMonth.
      *
@@ -169,8 +231,167 @@ public class YearMonthStream extends AbstractComparableStream<YearMonth> {
         return this;
     }
 
+    /**
+     * Produce a stream of the proleptic month (year * 12 + month - 1) of each element
+     * of this stream. When the step is fixed, the values are calculated directly,
+     * without creating any YearMonth objects.
+     *
+     * @return A non-null LongStream of proleptic months.
+     */
+    public LongStream prolepticMonthStream() {
+        final LongUnaryOperator indexer = prolepticMonthIndexer();
+        return indexer == null
+                ? stream().mapToLong(date -> date.getLong(ChronoField.PROLEPTIC_MONTH))
+                : indexedLongStream(indexer);
+    }
+
+    /**
+     * Produce a stream of the proleptic month (year * 12 + month - 1) of each element
+     * of this stream, as ints.
+     *
+     * @return A non-null IntStream of proleptic months.
+     * @throws ArithmeticException if a proleptic month does not fit in an int.
+     * @see #prolepticMonthStream()
+     */
+    public IntStream prolepticMonthIntStream() {
+        return prolepticMonthStream().mapToInt(Math::toIntExact);
+    }
+
+    /**
+     * Produce a stream of each element of this stream packed into an int as
+     * year * 100 + month, so 2016-04 becomes 201604. When the step is fixed, the
+     * values are calculated directly, without creating any YearMonth objects.
+     *
+     * @return A non-null IntStream of packed year and month values.
+     * @throws ArithmeticException if a packed value does not fit in an int.
+     */
+    public IntStream packedYearMonthStream() {
+        return prolepticMonthStream().mapToInt(month -> Math.toIntExact(
+                Math.addExact(Math.multiplyExact(Math.floorDiv(month, 12), 100), Math.floorMod(month, 12) + 1)));
+    }
+
+    /**
+     * Every fixed step is a whole number of months.
+     *
+     * @return A function from index to proleptic month, or null if the step isn't fixed.
+     */
+    private LongUnaryOperator prolepticMonthIndexer() {
+        if (!hasFixedStep()) {
+            return null;
+        }
+        final long prolepticMonth = getFrom().getLong(ChronoField.PROLEPTIC_MONTH);
+        final long months = (isForward() ? amount : 0 - amount) * CalendarMath.monthsIn(unit);
+        return index -> ChronoField.PROLEPTIC_MONTH.checkValidValue(
+                Math.addExact(prolepticMonth, Math.multiplyExact(index, months)));
+    }
+
+    /**
+     * Produce the elements of this stream in arrays of the given size, ready to be handed
+     * to something that works in batches, such as a JDBC batch insert. The last array holds
+     * whatever is left over, so may be shorter. When the step is fixed, each batch is
+     * calculated from its index, so a parallel stream splits the batches evenly.
+     *
+     * @param size The positive number of elements in each batch.
+     * @return A non-null Stream of YearMonth arrays, which is infinite if this stream is.
+     * @throws IllegalArgumentException if size is not positive.
+     */
+    public Stream<YearMonth[]> batches(final int size) {
+        return batches(size, YearMonth[]::new);
+    }
+
+    /**
+     * Produce the proleptic month of each element of this stream in arrays of the given size, the
+     * last of which may be shorter. When the step is fixed, each batch is calculated from its
+     * index, so a parallel stream splits the batches evenly.
+     *
+     * @param size The positive number of values in each batch.
+     * @return A non-null Stream of long arrays, which is infinite if this stream is.
+     * @throws IllegalArgumentException if size is not positive.
+     * @see #prolepticMonthStream()
+     */
+    public Stream<long[]> prolepticMonthBatches(final int size) {
+        return longBatches(size, prolepticMonthIndexer(), this::prolepticMonthStream);
+    }
+
+    /**
+     * Gather every element of this stream into an array. When the step is fixed, the length
+     * is worked out from the end points and the step, so the array is allocated once and
+     * filled directly, rather than grown as the stream is consumed.
+     *
+     * @return A non-null array of YearMonth.
+     * @throws IllegalStateException if the stream is infinite or too long to fit in an array.
+     */
+    public YearMonth[] toArray() {
+        return toArray(YearMonth[]::new);
+    }
+
+    /**
+     * Produce a reusable cursor that moves through the elements of this stream in place,
+     * without creating a YearMonth for each one. The cursor is on the first day of each
+     * month, and epochSecond() is the start of that day at UTC.
+     *
+     * @return A non-null TimeCursor, positioned before the first element.
+     * @throws java.time.temporal.UnsupportedTemporalTypeException if the unit can't be stepped by.
+     */
+    public TimeCursor<YearMonth> cursor() {
+        return TimeCursor.of(
+                getFrom().atDay(1).atStartOfDay(ZoneOffset.UTC),
+                getTo() == null ? null : getTo().atDay(1).atStartOfDay(ZoneOffset.UTC),
+                isForward() ? amount : 0 - amount,
+                unit,
+                canTake(),
+                cursor -> YearMonth.of(cursor.year(), cursor.month()));
+    }
+
+    /**
+     * Describe this stream for a SeriesCache.
+     *
+     * @return A non-null key.
+     */
+    List<Object> seriesKey() {
+        return seriesKey(amount, unit, null);
+    }
+
+    /**
+     * Gather this stream for a SeriesCache, as proleptic months.
+     *
+     * @return A non-null series.
+     */
+    CachedSeries<YearMonth> materialize() {
+        return new CachedSeries<>(
+                toLongArray(prolepticMonthIndexer(), this::prolepticMonthStream),
+                null,
+                (month, nano) -> YearMonth.of(Math.toIntExact(Math.floorDiv(month, 12)), (int) Math.floorMod(month, 12) + 1));
+    }
+
+    @Override
+    YearMonthStream copy() {
+        final YearMonthStream copy = new YearMonthStream(getFrom());
+        copy.amount = amount;
+        copy.unit = unit;
+        return withEndOf(copy, UnaryOperator.identity());
+    }
+
     @Override
     UnaryOperator<YearMonth> next() {
         return date -> date.plus(isForward() ? amount : 0 - amount, unit);
     }
+
+    @Override
+    boolean hasFixedStep() {
+        return isMonthBased(unit);
+    }
+
+    @Override
+    LongFunction<YearMonth> indexer() {
+        final YearMonth from = getFrom();
+        final long step = isForward() ? amount : 0 - amount;
+        final ChronoUnit unit = this.unit;
+        return index -> from.plus(Math.multiplyExact(index, step), unit);
+    }
+
+    @Override
+    long estimateIndexOf(final YearMonth value) {
+        return Math.abs(unit.between(getFrom(), value)) / amount;
+    }
 }
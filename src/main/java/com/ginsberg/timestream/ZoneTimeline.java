@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The offsets of a zone over a span of time, loaded from its rules once so that
+ * offsets can be found by searching a few arrays rather than asking the rules
+ * for every element of a stream. Questions about times outside of the span are
+ * passed on to the rules.
+ *
+ * Local times are expressed as seconds on the local time-line, which is the epoch
+ * second that the local date-time would have if it were at UTC.
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class ZoneTimeline {
+    private static final long MAX_OFFSET_SECONDS = 18 * 60 * 60;
+
+    private final ZoneRules rules;
+    private final long start;
+    private final long end;
+    private final long[] transitions;
+    private final long[] localStarts;
+    private final long[] localEnds;
+    private final ZoneOffset[] offsets;
+
+    private ZoneTimeline(final ZoneRules rules,
+                         final long start,
+                         final long end,
+                         final List<ZoneOffsetTransition> transitions) {
+        this.rules = rules;
+        this.start = start;
+        this.end = end;
+        final int size = transitions.size();
+        this.transitions = new long[size];
+        this.localStarts = new long[size];
+        this.localEnds = new long[size];
+        this.offsets = new ZoneOffset[size + 1];
+        this.offsets[0] = rules.getOffset(Instant.ofEpochSecond(start));
+        for (int i = 0; i < size; i++) {
+            final ZoneOffsetTransition transition = transitions.get(i);
+            final long epochSecond = transition.toEpochSecond();
+            final long before = epochSecond + transition.getOffsetBefore().getTotalSeconds();
+            final long after = epochSecond + transition.getOffsetAfter().getTotalSeconds();
+            this.transitions[i] = epochSecond;
+            this.localStarts[i] = Math.min(before, after);
+            this.localEnds[i] = Math.max(before, after);
+            this.offsets[i + 1] = transition.getOffsetAfter();
+        }
+    }
+
+    /**
+     * Load the transitions of a zone that happen between two points in time.
+     *
+     * @param zone  The non-null zone.
+     * @param start The epoch second to start at.
+     * @param end   The epoch second to end at, which may be before start.
+     * @return A non-null ZoneTimeline.
+     */
+    static ZoneTimeline of(final ZoneId zone,
+                           final long start,
+                           final long end) {
+        final ZoneRules rules = zone.getRules();
+        final long first = Math.max(Math.min(start, end), Instant.MIN.getEpochSecond());
+        final long last = Math.min(Math.max(start, end), Instant.MAX.getEpochSecond());
+        final List<ZoneOffsetTransition> transitions = new ArrayList<>();
+        if (!rules.isFixedOffset()) {
+            ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochSecond(first));
+            while (transition != null && transition.toEpochSecond() <= last) {
+                transitions.add(transition);
+                transition = rules.nextTransition(transition.getInstant());
+            }
+        }
+        return new ZoneTimeline(rules, first, last, transitions);
+    }
+
+    /**
+     * Find the offset in effect at an instant.
+     *
+     * @param epochSecond The instant, as an epoch second.
+     * @return The non-null offset.
+     */
+    ZoneOffset offsetAt(final long epochSecond) {
+        if (epochSecond < start || epochSecond > end) {
+            return rules.getOffset(Instant.ofEpochSecond(epochSecond));
+        }
+        // Count the transitions at or before the instant.
+        int low = 0;
+        int high = transitions.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (transitions[mid] <= epochSecond) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return offsets[low];
+    }
+
+    /**
+     * Move a local time that falls in a gap forward by the length of the gap, the
+     * way that ZonedDateTime.ofLocal() does. Other local times are returned as-is.
+     *
+     * @param localSecond The local time.
+     * @return A local time that is valid in the zone.
+     */
+    long validLocal(final long localSecond) {
+        if (!covers(localSecond)) {
+            final ZoneOffsetTransition transition = rules.getTransition(toLocalDateTime(localSecond));
+            return transition != null && transition.isGap()
+                    ? localSecond + transition.getDuration().getSeconds()
+                    : localSecond;
+        }
+        final int index = windowIndex(localSecond);
+        if (inWindow(index, localSecond) && isGap(index)) {
+            return localSecond + offsets[index + 1].getTotalSeconds() - offsets[index].getTotalSeconds();
+        }
+        return localSecond;
+    }
+
+    /**
+     * Find the offset of a valid local time. In an overlap, the preferred offset is
+     * used if it is one of the two valid offsets, otherwise the earlier offset is,
+     * the way that ZonedDateTime.ofLocal() does.
+     *
+     * @param localSecond A local time that is not in a gap.
+     * @param preferred   The offset to use in an overlap, if valid. May be null.
+     * @return The non-null offset.
+     */
+    ZoneOffset offsetAtLocal(final long localSecond,
+                             final ZoneOffset preferred) {
+        if (!covers(localSecond)) {
+            final List<ZoneOffset> valid = rules.getValidOffsets(toLocalDateTime(localSecond));
+            return valid.contains(preferred) ? preferred : valid.get(0);
+        }
+        final int index = windowIndex(localSecond);
+        if (inWindow(index, localSecond)) {
+            // An overlap, a gap has been moved out of by validLocal().
+            final ZoneOffset before = offsets[index];
+            final ZoneOffset after = offsets[index + 1];
+            return after.equals(preferred) ? after : before;
+        }
+        return offsets[index];
+    }
+
+    /**
+     * Determine if every instant that a local time could refer to is within the span,
+     * in which case questions about it are answered without asking the rules.
+     *
+     * @param localSecond The local time.
+     * @return true if the local time is covered by the span.
+     */
+    boolean covers(final long localSecond) {
+        return localSecond - MAX_OFFSET_SECONDS >= start && localSecond + MAX_OFFSET_SECONDS <= end;
+    }
+
+    /**
+     * Count the transitions whose gap or overlap is entirely at or before the local time.
+     */
+    private int windowIndex(final long localSecond) {
+        int low = 0;
+        int high = localEnds.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (localEnds[mid] <= localSecond) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private boolean inWindow(final int index,
+                             final long localSecond) {
+        return index < localStarts.length && localSecond >= localStarts[index];
+    }
+
+    private boolean isGap(final int index) {
+        return offsets[index + 1].getTotalSeconds() > offsets[index].getTotalSeconds();
+    }
+
+    private static LocalDateTime toLocalDateTime(final long localSecond) {
+        return LocalDateTime.ofEpochSecond(localSecond, 0, ZoneOffset.UTC);
+    }
+}
@@ -25,10 +25,22 @@
 package com.ginsberg.timestream;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.chrono.ChronoZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.time.temporal.UnsupportedTemporalTypeException;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
 import java.util.function.UnaryOperator;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A builder that creates a stream of ZonedDateTime objects.
@@ -50,6 +62,7 @@ import java.util.function.UnaryOperator;
 public class ZonedDateTimeStream extends AbstractComparableStream<ZonedDateTime> {
     private long amount = 1;
     private ChronoUnit unit = ChronoUnit.SECONDS;
+    private RecurrenceRule recurrence;
 
     private ZonedDateTimeStream(final ZonedDateTime from) {
         super(from);
@@ -61,7 +74,9 @@ public class ZonedDateTimeStream extends AbstractComparableStream<ZonedDateTime>
      * @return A non-null ZonedDateTimeStream.
      */
     public static ZonedDateTimeStream fromNow() {
-        return new ZonedDateTimeStream(ZonedDateTime.now());
+        final ZonedDateTimeStream stream = new ZonedDateTimeStream(ZonedDateTime.now());
+        stream.setRelative();
+        return stream;
     }
 
     /**
@@ -74,6 +89,61 @@ public class ZonedDateTimeStream extends AbstractComparableStream<ZonedDateTime>
         return new ZonedDateTimeStream(from);
     }
 
+    /**
+     * Merge ZonedDateTimeStreams into a single stream, in order along the instant time-line, such
+     * as to combine many schedules into one timeline. Each stream is already in order, so only its
+     * next element is held, rather than buffering and sorting everything, and unbounded streams
+     * can be merged.
+     *
+     * @param distinct true to produce each instant only once, even if it is in more than one zone.
+     * @param streams  The non-null streams to merge, which must all move in the same direction.
+     * @return A non-null Stream of ZonedDateTime, which is infinite if any of the streams are.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public static Stream<ZonedDateTime> merge(final boolean distinct,
+                                              final ZonedDateTimeStream... streams) {
+        return merge(streams, ChronoZonedDateTime.timeLineOrder(), distinct);
+    }
+
+    /**
+     * Produce each instant of this stream that is also in every one of the others, lazily. Every stream is
+     * already sorted and distinct, so they are walked together rather than collected into a set, and a
+     * stream with a fixed step jumps over the gaps between matches instead of stepping through them.
+     * Elements are compared along the instant time-line, so the same instant in another zone is a
+     * match, and matches are produced in the zone of this stream.
+     *
+     * @param others The non-null streams to intersect with, which must move in the same direction as this one.
+     * @return A non-null Stream of ZonedDateTime, which is infinite only if every stream is.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<ZonedDateTime> intersect(final ZonedDateTimeStream... others) {
+        return intersection(this, others, ChronoZonedDateTime.timeLineOrder());
+    }
+
+    /**
+     * Produce each instant of this stream that is in none of the others, lazily, walking the streams together
+     * in the same way as intersect(). Elements are compared along the instant time-line, so the same
+     * instant in another zone is a match, and matches are produced in the zone of this stream.
+     *
+     * @param others The non-null streams to leave out, which must move in the same direction as this one.
+     * @return A non-null Stream of ZonedDateTime, which is infinite if this stream is.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<ZonedDateTime> except(final ZonedDateTimeStream... others) {
+        return difference(this, others, ChronoZonedDateTime.timeLineOrder());
+    }
+
+    /**
+     * Produce each instant that is in this stream or any of the others, in order and only once, by merging them.
+     *
+     * @param others The non-null streams to add, which must move in the same direction as this one.
+     * @return A non-null Stream of ZonedDateTime, which is infinite if any of the streams are.
+     * @throws IllegalArgumentException if some streams move forward through time and others move backward.
+     */
+    public Stream<ZonedDateTime> union(final ZonedDateTimeStream... others) {
+        return union(this, others, ChronoZonedDateTime.timeLineOrder());
+    }
+
     /**
      * Set the inclusive end point of the stream, using an absolute ZonedDateTime.
      *
@@ -143,6 +213,7 @@ public class ZonedDateTimeStream extends AbstractComparableStream<ZonedDateTime>
         Objects.requireNonNull(unit);
         this.amount = Math.abs(amount);
         this.unit = unit;
+        this.recurrence = null;
         if (this.amount == 0) {
             throw new IllegalArgumentException("Amount must be non-zero");
         }
@@ -151,24 +222,358 @@ public class ZonedDateTimeStream extends AbstractComparableStream<ZonedDateTime>
 
     /**
      * Set the duration between successive elements produced by the stream. The default
-     * for this builder is 1 Second.
+     * for this builder is 1 Second. Durations are used to the nanosecond.
      *
+     * @param duration The interval to use when calculating the next element of the stream.
      * @return A non-null ZonedDateTimeStream.
-     * @throws java.time.temporal.UnsupportedTemporalTypeException if the unit is not supported.
-     * @see ChronoUnit
+     * @throws ArithmeticException if the duration is too long to measure at its precision.
      */
     public ZonedDateTimeStream every(final Duration duration) {
-        Objects.requireNonNull(unit);
-        this.unit = ChronoUnit.SECONDS;
-        this.amount = Math.abs(duration.get(this.unit));
+        Objects.requireNonNull(duration);
+        this.unit = EpochStep.unitOf(duration);
+        this.amount = EpochStep.amountOf(duration, this.unit);
+        this.recurrence = null;
         if (this.amount == 0) {
             throw new IllegalArgumentException("Effective amount must be non-zero (Duration resolves to zero duration)");
         }
         return this;
     }
 
+    /**
+     * Produce the date-times that match a recurrence rule, such as 09:00 and 17:00 on the second
+     * Tuesday of each month. The start of the stream is the DTSTART of the rule, so its time of
+     * day is used unless the rule has a BYHOUR, BYMINUTE or BYSECOND, and the rule is followed
+     * in its zone. Times that fall in a gap in the local time-line are moved later by the length
+     * of the gap, and times that happen twice use the earlier offset. The matching days of each
+     * period of the rule are calculated directly, so the stream doesn't visit the days in
+     * between, and a bounded stream can be counted and split by period.
+     *
+     * @param rule The non-null rule.
+     * @return A non-null ZonedDateTimeStream.
+     */
+    public ZonedDateTimeStream recurring(final RecurrenceRule rule) {
+        Objects.requireNonNull(rule);
+        this.amount = 1;
+        this.unit = ChronoUnit.SECONDS;
+        this.recurrence = rule;
+        return this;
+    }
+
+    /**
+     * Produce a stream of the number of seconds from the epoch of 1970-01-01T00:00:00Z
+     * to each element of this stream. When the step is a fixed length of time, the values
+     * are calculated directly, without creating any ZonedDateTime objects.
+     *
+     * @return A non-null LongStream of epoch seconds.
+     */
+    public LongStream epochSecondStream() {
+        return epochStream(EpochStep.SECONDS);
+    }
+
+    /**
+     * Produce a stream of the number of milliseconds from the epoch of 1970-01-01T00:00:00Z
+     * to each element of this stream. When the step is a fixed length of time, the values
+     * are calculated directly, without creating any ZonedDateTime objects.
+     *
+     * @return A non-null LongStream of epoch milliseconds.
+     */
+    public LongStream epochMilliStream() {
+        return epochStream(EpochStep.MILLIS);
+    }
+
+    /**
+     * Produce a stream of the number of nanoseconds from the epoch of 1970-01-01T00:00:00Z
+     * to each element of this stream. When the step is a fixed length of time, the values
+     * are calculated directly, without creating any ZonedDateTime objects.
+     *
+     * @return A non-null LongStream of epoch nanoseconds.
+     * @throws ArithmeticException if an element is too far from the epoch to fit in a long.
+     */
+    public LongStream epochNanoStream() {
+        return epochStream(EpochStep.NANOS);
+    }
+
+    /**
+     * Produce the intervals between successive elements (see intervals()) as epoch milliseconds,
+     * packed into pairs: the start of each interval followed by its end. No ZonedDateTime objects
+     * are created when the epochMilliStream() doesn't need them.
+     *
+     * @return A non-null LongStream of interval start and end points, in epoch milliseconds.
+     */
+    public LongStream epochMilliIntervalStream() {
+        return packedIntervals(epochMilliStream(), date -> EpochStep.epochMilli(date.toEpochSecond(), date.getNano()));
+    }
+
+    /**
+     * Fixed steps are calculated by index. Days, weeks and months over a bounded range
+     * step through the transitions of the zone, which are loaded once for the range.
+     * Anything else is calculated from each element.
+     */
+    private LongStream epochStream(final EpochStep.Converter converter) {
+        final EpochStep step = epochStep();
+        if (step != null) {
+            return indexedLongStream(index -> step.valueAt(index, converter));
+        }
+        if (getTo() != null && recurrence == null && ZonedStepSpliterator.supports(unit)) {
+            return StreamSupport.longStream(
+                    new ZonedStepSpliterator(
+                            getFrom(),
+                            getTo(),
+                            isForward() ? amount : 0 - amount,
+                            unit,
+                            canTake(),
+                            converter,
+                            estimateIndexOf(getTo()) + 1),
+                    false);
+        }
+        return stream().mapToLong(date -> converter.convert(date.toEpochSecond(), date.getNano()));
+    }
+
+    /**
+     * Epoch milliseconds are calculated by index along the epochStep().
+     *
+     * @return A function from index to epoch millisecond, or null if the step isn't fixed.
+     */
+    private LongUnaryOperator epochMilliIndexer() {
+        final EpochStep step = epochStep();
+        return step == null ? null : index -> step.valueAt(index, EpochStep.MILLIS);
+    }
+
+    /**
+     * Time-based units are always a fixed length of time, and days and weeks are
+     * as long as the offset never changes. Anything else (such as days across a
+     * daylight savings transition) has to be calculated from each element.
+     *
+     * @return The step along the epoch time-line, or null if it isn't fixed.
+     */
+    private EpochStep epochStep() {
+        if (recurrence != null) {
+            return null;
+        }
+        final boolean fixedDays = (unit == ChronoUnit.DAYS || unit == ChronoUnit.WEEKS)
+                && getFrom().getZone().getRules().isFixedOffset();
+        if (unit.isTimeBased() || fixedDays) {
+            return new EpochStep(
+                    getFrom().toEpochSecond(),
+                    getFrom().getNano(),
+                    unit.getDuration().multipliedBy(amount),
+                    isForward());
+        }
+        return null;
+    }
+
+    /**
+     * Produce the elements of this stream in arrays of the given size, ready to be handed
+     * to something that works in batches, such as a JDBC batch insert. The last array holds
+     * whatever is left over, so may be shorter. When the step is fixed, each batch is
+     * calculated from its index, so a parallel stream splits the batches evenly.
+     *
+     * @param size The positive number of elements in each batch.
+     * @return A non-null Stream of ZonedDateTime arrays, which is infinite if this stream is.
+     * @throws IllegalArgumentException if size is not positive.
+     */
+    public Stream<ZonedDateTime[]> batches(final int size) {
+        return batches(size, ZonedDateTime[]::new);
+    }
+
+    /**
+     * Produce the epoch millisecond of each element of this stream in arrays of the given size, the
+     * last of which may be shorter. When the step is fixed, each batch is calculated from its
+     * index, so a parallel stream splits the batches evenly.
+     *
+     * @param size The positive number of values in each batch.
+     * @return A non-null Stream of long arrays, which is infinite if this stream is.
+     * @throws IllegalArgumentException if size is not positive.
+     * @see #epochMilliStream()
+     */
+    public Stream<long[]> epochMilliBatches(final int size) {
+        return longBatches(size, epochMilliIndexer(), this::epochMilliStream);
+    }
+
+    /**
+     * Gather every element of this stream into an array. When the step is fixed, the length
+     * is worked out from the end points and the step, so the array is allocated once and
+     * filled directly, rather than grown as the stream is consumed.
+     *
+     * @return A non-null array of ZonedDateTime.
+     * @throws IllegalStateException if the stream is infinite or too long to fit in an array.
+     */
+    public ZonedDateTime[] toArray() {
+        return toArray(ZonedDateTime[]::new);
+    }
+
+    /**
+     * Gather the epoch millisecond of every element of this stream into an array. When the step is
+     * fixed, the array is allocated at exactly the right length and filled directly, without
+     * creating any ZonedDateTime objects.
+     *
+     * @return A non-null array of epoch milliseconds.
+     * @throws IllegalStateException if the stream is infinite or too long to fit in an array.
+     * @see #epochMilliStream()
+     */
+    public long[] toEpochMilliArray() {
+        return toLongArray(epochMilliIndexer(), this::epochMilliStream);
+    }
+
+    /**
+     * Produce a reusable cursor that moves through the elements of this stream in place,
+     * without creating a ZonedDateTime for each one. Offsets are found from transitions
+     * that are loaded for a stretch of time at once, rather than from the rules of the
+     * zone for each element.
+     *
+     * @return A non-null TimeCursor, positioned before the first element.
+     * @throws java.time.temporal.UnsupportedTemporalTypeException if the stream can't be stepped by a unit.
+     */
+    public TimeCursor<ZonedDateTime> cursor() {
+        if (recurrence != null) {
+            throw new UnsupportedTemporalTypeException("Cursors can't follow " + recurrence);
+        }
+        return TimeCursor.of(
+                getFrom(),
+                getTo(),
+                isForward() ? amount : 0 - amount,
+                unit,
+                canTake(),
+                cursor -> ZonedDateTime.ofLocal(
+                        LocalDateTime.of(cursor.year(), cursor.month(), cursor.day(),
+                                cursor.hour(), cursor.minute(), cursor.second(), cursor.nano()),
+                        cursor.zone(),
+                        cursor.offset()));
+    }
+
+    /**
+     * Describe this stream for a SeriesCache.
+     *
+     * @return A non-null key.
+     */
+    List<Object> seriesKey() {
+        return seriesKey(amount, recurrence == null ? unit : recurrence, getFrom().getZone());
+    }
+
+    /**
+     * Gather this stream for a SeriesCache, as epoch seconds. Each element is restored
+     * in the zone of the start of the stream, which finds the same offset it had.
+     *
+     * @return A non-null series.
+     */
+    CachedSeries<ZonedDateTime> materialize() {
+        final ZoneId zone = getFrom().getZone();
+        return CachedSeries.ofEpochSeconds(
+                toArray(),
+                ZonedDateTime::toEpochSecond,
+                ZonedDateTime::getNano,
+                (second, nano) -> ZonedDateTime.ofInstant(Instant.ofEpochSecond(second, nano), zone));
+    }
+
+    /**
+     * Move a stream from fromNow() back to the start of its day, along with its end point,
+     * so that it is the same stream all day. The end point is moved by the same local time,
+     * so a stream that ends a day from now ends at midnight tomorrow.
+     *
+     * A recurrence rule takes its defaults from the start of the stream, so moving the start would
+     * change the stream, and it is left alone.
+     *
+     * @return A non-null ZonedDateTimeStream, which is this one if it isn't from fromNow().
+     */
+    ZonedDateTimeStream anchoredToDay() {
+        if (!isRelative() || recurrence != null) {
+            return this;
+        }
+        final ZonedDateTime from = getFrom();
+        final Duration sinceMidnight = Duration.between(from.toLocalDate().atStartOfDay(), from.toLocalDateTime());
+        final ZonedDateTimeStream anchored = new ZonedDateTimeStream(from.toLocalDate().atStartOfDay(from.getZone()));
+        anchored.amount = amount;
+        anchored.unit = unit;
+        return withEndOf(anchored, end -> ZonedDateTime.ofLocal(
+                end.toLocalDateTime().minus(sinceMidnight),
+                end.getZone(),
+                end.getOffset()));
+    }
+
+    @Override
+    ZonedDateTimeStream copy() {
+        final ZonedDateTimeStream copy = new ZonedDateTimeStream(getFrom());
+        copy.amount = amount;
+        copy.unit = unit;
+        copy.recurrence = recurrence;
+        return withEndOf(copy, UnaryOperator.identity());
+    }
+
     @Override
     UnaryOperator<ZonedDateTime> next() {
+        if (recurrence != null) {
+            final ZoneId zone = getFrom().getZone();
+            final RecurrenceSchedule schedule = new RecurrenceSchedule(recurrence, getFrom().toLocalDateTime());
+            final boolean forward = isForward();
+            return date -> ZonedDateTime.ofLocal(
+                    RecurrenceSpliterator.following(schedule, date.withZoneSameInstant(zone).toLocalDateTime(), forward),
+                    zone,
+                    null);
+        }
         return date -> date.plus(isForward() ? amount : 0 - amount, unit);
     }
+
+    @Override
+    boolean hasFixedStep() {
+        // Time-based units step along the instant time-line, but date-based units
+        // step along the local time-line, which is only fixed when the offset is.
+        // Recurrence rules aren't stepped at all.
+        return recurrence == null
+                && (unit.isTimeBased()
+                || (getFrom().getZone().getRules().isFixedOffset() && isFixedDateStep(unit, getFrom().getDayOfMonth())));
+    }
+
+    @Override
+    RecurrenceSpliterator<ZonedDateTime> recurrenceSpliterator() {
+        if (recurrence == null) {
+            return null;
+        }
+        final ZoneId zone = getFrom().getZone();
+        return RecurrenceSpliterator.of(
+                recurrence,
+                getFrom().toLocalDateTime(),
+                getTo() == null ? null : getTo().withZoneSameInstant(zone).toLocalDateTime(),
+                zone,
+                isForward(),
+                second -> ZonedDateTime.ofLocal(LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC), zone, null),
+                canTake());
+    }
+
+    @Override
+    LongFunction<ZonedDateTime> indexer() {
+        final EpochStep epochStep = epochStep();
+        if (epochStep != null) {
+            return epochIndexer(epochStep, getFrom().getZone());
+        }
+        final ZonedDateTime from = getFrom();
+        final long step = isForward() ? amount : 0 - amount;
+        final ChronoUnit unit = this.unit;
+        return index -> from.plus(Math.multiplyExact(index, step), unit);
+    }
+
+    /**
+     * Elements on a fixed step are placed on the instant time-line directly. A zone that
+     * is an offset can build its elements without consulting any rules at all.
+     */
+    private static LongFunction<ZonedDateTime> epochIndexer(final EpochStep step,
+                                                            final ZoneId zone) {
+        if (zone instanceof ZoneOffset) {
+            final ZoneOffset offset = (ZoneOffset) zone;
+            return index -> ZonedDateTime.ofLocal(
+                    LocalDateTime.ofEpochSecond(step.epochSecondAt(index), step.nanoAt(index), offset),
+                    offset,
+                    null);
+        }
+        return index -> ZonedDateTime.ofInstant(Instant.ofEpochSecond(step.epochSecondAt(index), step.nanoAt(index)), zone);
+    }
+
+    @Override
+    long estimateIndexOf(final ZonedDateTime value) {
+        final EpochStep epochStep = epochStep();
+        if (epochStep != null) {
+            // Measuring in fine units such as nanos can overflow, so count whole steps exactly.
+            return epochStep.stepsTo(value.toEpochSecond(), value.getNano());
+        }
+        return Math.abs(unit.between(getFrom(), value)) / amount;
+    }
 }
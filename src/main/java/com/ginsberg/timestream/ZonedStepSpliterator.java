@@ -0,0 +1,148 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Steps through a zone by days, weeks or a month-based unit, producing points on the
+ * epoch time-line without creating any ZonedDateTime objects.
+ *
+ * This reproduces ZonedDateTime.plus() for date-based units: the local date-time is
+ * moved, and then resolved in the zone using the offset of the previous element as
+ * the preferred offset. Offsets come from a ZoneTimeline loaded for the range, rather
+ * than from the rules of the zone.
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class ZonedStepSpliterator extends Spliterators.AbstractLongSpliterator {
+    private final ZoneTimeline timeline;
+    private final ZoneId zone;
+    private final long stepDays;
+    private final long stepMonths;
+    private final int nano;
+    private final long toSecond;
+    private final int toNano;
+    private final boolean forward;
+    private final Predicate<ZonedDateTime> canTake;
+    private final EpochStep.Converter converter;
+    private long localSecond;
+    private ZoneOffset offset;
+    private boolean started = false;
+    private boolean ended = false;
+
+    /**
+     * @param from      The non-null first element.
+     * @param to        The non-null end point.
+     * @param step      The number of units between elements, negative to move backward.
+     * @param unit      DAYS, WEEKS or a month-based unit.
+     * @param canTake   Decides if an element at the same instant as the end point is taken.
+     * @param converter Converts each element to the value produced.
+     * @param estimate  An estimate of the number of elements.
+     */
+    ZonedStepSpliterator(final ZonedDateTime from,
+                         final ZonedDateTime to,
+                         final long step,
+                         final ChronoUnit unit,
+                         final Predicate<ZonedDateTime> canTake,
+                         final EpochStep.Converter converter,
+                         final long estimate) {
+        super(estimate, ORDERED | DISTINCT | NONNULL | IMMUTABLE);
+        this.zone = from.getZone();
+        this.timeline = ZoneTimeline.of(zone, from.toEpochSecond(), to.toEpochSecond());
+        this.stepDays = unit == ChronoUnit.WEEKS ? Math.multiplyExact(step, 7) : unit == ChronoUnit.DAYS ? step : 0;
+        this.stepMonths = stepDays == 0 ? Math.multiplyExact(step, CalendarMath.monthsIn(unit)) : 0;
+        this.nano = from.getNano();
+        this.toSecond = to.toEpochSecond();
+        this.toNano = to.getNano();
+        this.forward = step > 0;
+        this.canTake = canTake;
+        this.converter = converter;
+        this.localSecond = from.toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+        this.offset = from.getOffset();
+    }
+
+    /**
+     * Determine if the given unit can be stepped by.
+     *
+     * @param unit A non-null unit.
+     * @return true if the unit is days, weeks or month-based.
+     */
+    static boolean supports(final ChronoUnit unit) {
+        return unit == ChronoUnit.DAYS || unit == ChronoUnit.WEEKS || AbstractComparableStream.isMonthBased(unit);
+    }
+
+    @Override
+    public boolean tryAdvance(final LongConsumer action) {
+        if (ended) {
+            return false;
+        }
+        if (started) {
+            step();
+        }
+        started = true;
+        final long epochSecond = localSecond - offset.getTotalSeconds();
+        if (!canTake(epochSecond)) {
+            ended = true;
+            return false;
+        }
+        action.accept(converter.convert(epochSecond, nano));
+        return true;
+    }
+
+    private void step() {
+        final long epochDay = Math.floorDiv(localSecond, CalendarMath.SECONDS_PER_DAY);
+        final long secondOfDay = Math.floorMod(localSecond, CalendarMath.SECONDS_PER_DAY);
+        final long nextDay = stepMonths == 0
+                ? ChronoField.EPOCH_DAY.checkValidValue(Math.addExact(epochDay, stepDays))
+                : CalendarMath.plusMonths(epochDay, stepMonths);
+        final long next = timeline.validLocal(nextDay * CalendarMath.SECONDS_PER_DAY + secondOfDay);
+        offset = timeline.offsetAtLocal(next, offset);
+        localSecond = next;
+    }
+
+    /**
+     * Elements at a different instant to the end point are compared by instant,
+     * which is what ZonedDateTime.compareTo() does. Otherwise, we have to ask.
+     */
+    private boolean canTake(final long epochSecond) {
+        int compare = Long.compare(epochSecond, toSecond);
+        if (compare == 0) {
+            compare = Integer.compare(nano, toNano);
+        }
+        if (compare == 0) {
+            return canTake.test(ZonedDateTime.ofLocal(LocalDateTime.ofEpochSecond(localSecond, nano, ZoneOffset.UTC), zone, offset));
+        }
+        return forward ? compare < 0 : compare > 0;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ginsberg.timestream;
+
+import java.util.Spliterator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Steps through a series from its first element, one element at a time, for as long as
+ * each element can be taken. This is the Java 9 version, which uses the three-argument
+ * Stream.iterate(), so each element is tested once as it is made, with no wrapping
+ * spliterator or capturing lambda in between.
+ *
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+final class Steps {
+
+    private Steps() {
+    }
+
+    /**
+     * Produce a Spliterator that steps through a series.
+     *
+     * @param first   The first element, which is only produced if it can be taken.
+     * @param next    Produces the element after the given one.
+     * @param canTake Whether an element is before the end of the series.
+     * @param <T>     The type of element.
+     * @return A non-null Spliterator, which ends at the first element that can't be taken.
+     */
+    static <T> Spliterator<T> of(final T first,
+                                 final UnaryOperator<T> next,
+                                 final Predicate<? super T> canTake) {
+        return Stream.iterate(first, canTake, next).spliterator();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ginsberg.timestream;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+
+/**
+ * Publishes the elements of a plan in real time, releasing each one when the clock of a
+ * TickScheduler reaches it, rather than as fast as they are pulled. Subscribers ask for elements
+ * as they are ready for them, and elements that are reached before they are asked for are held
+ * until they are. Every subscriber gets the whole plan, paced from its first element. For example,
+ * to run a job at the top of every hour:
+ * <p>
+ * <pre>
+ * {@code
+ * final TickScheduler scheduler = TickScheduler.start(Clock.systemUTC(), Duration.ofMillis(10), 2);
+ * TickPublisher.of(
+ *     ZonedDateTimeStream.fromNow().every(1, ChronoUnit.HOURS).build(),
+ *     ZonedDateTime::toInstant,
+ *     scheduler).subscribe(jobRunner);
+ * }
+ * </pre>
+ * This class is only available on Java 9 and later.
+ *
+ * @param <T> The type of element.
+ * @author Todd Ginsberg (todd@ginsberg.com)
+ */
+public final class TickPublisher<T extends Comparable<? super T>> implements Flow.Publisher<T> {
+    private final TimeStreamPlan<T> plan;
+    private final Function<? super T, Instant> instantOf;
+    private final TickScheduler scheduler;
+
+    private TickPublisher(final TimeStreamPlan<T> plan,
+                          final Function<? super T, Instant> instantOf,
+                          final TickScheduler scheduler) {
+        this.plan = plan;
+        this.instantOf = instantOf;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Create a publisher of the elements of a plan.
+     *
+     * @param plan      The non-null plan to publish.
+     * @param instantOf The non-null function that finds the instant to release each element at.
+     * @param scheduler The non-null scheduler whose clock the elements are released by.
+     * @param <T>       The type of element.
+     * @return A non-null TickPublisher.
+     */
+    public static <T extends Comparable<? super T>> TickPublisher<T> of(final TimeStreamPlan<T> plan,
+                                                                        final Function<? super T, Instant> instantOf,
+                                                                        final TickScheduler scheduler) {
+        Objects.requireNonNull(plan);
+        Objects.requireNonNull(instantOf);
+        Objects.requireNonNull(scheduler);
+        return new TickPublisher<>(plan, instantOf, scheduler);
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        final PacedEmitter<T> emitter = new PacedEmitter<>(
+                plan.stream().spliterator(),
+                instantOf,
+                scheduler,
+                subscriber::onNext,
+                subscriber::onError,
+                subscriber::onComplete);
+        subscriber.onSubscribe(new Subscription(emitter));
+    }
+
+    private static final class Subscription implements Flow.Subscription {
+        private final PacedEmitter<?> emitter;
+
+        private Subscription(final PacedEmitter<?> emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void request(final long n) {
+            emitter.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            emitter.cancel();
+        }
+    }
+}
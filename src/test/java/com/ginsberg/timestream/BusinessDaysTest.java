@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BusinessDaysTest {
+
+    private final LocalDate friday = LocalDate.of(2016, 4, 1);
+
+    @Test
+    public void addingSkipsWeekend() {
+        assertThat(friday.plus(1, BusinessDays.BUSINESS_DAYS)).isEqualTo(LocalDate.of(2016, 4, 4));
+        assertThat(friday.plus(3, BusinessDays.BUSINESS_DAYS)).isEqualTo(LocalDate.of(2016, 4, 6));
+        assertThat(friday.plus(-5, BusinessDays.BUSINESS_DAYS)).isEqualTo(LocalDate.of(2016, 3, 25));
+    }
+
+    @Test
+    public void addingFromWeekend() {
+        final LocalDate saturday = friday.plusDays(1);
+        assertThat(saturday.plus(1, BusinessDays.BUSINESS_DAYS)).isEqualTo(LocalDate.of(2016, 4, 4));
+        assertThat(saturday.plus(-1, BusinessDays.BUSINESS_DAYS)).isEqualTo(friday);
+    }
+
+    @Test
+    public void customWeekend() {
+        final BusinessDays sundayToThursday = BusinessDays.withWeekend(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY);
+        assertThat(friday.minusDays(1).plus(1, sundayToThursday)).isEqualTo(LocalDate.of(2016, 4, 3));
+        assertThat(sundayToThursday).isEqualTo(BusinessDays.withWeekend(DayOfWeek.SATURDAY, DayOfWeek.FRIDAY));
+    }
+
+    @Test
+    public void betweenCountsBusinessDays() {
+        assertThat(BusinessDays.BUSINESS_DAYS.between(friday, friday.plusDays(7))).isEqualTo(5L);
+        assertThat(BusinessDays.BUSINESS_DAYS.between(friday.plusDays(7), friday)).isEqualTo(-5L);
+        assertThat(BusinessDays.BUSINESS_DAYS.between(LocalDate.of(2000, 1, 1), LocalDate.of(2050, 1, 1))).isEqualTo(13045L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void weekendMustLeaveBusinessDays() {
+        BusinessDays.withWeekend(DayOfWeek.values());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HolidayCalendarTest {
+
+    private Path write(final String suffix,
+                       final String... lines) throws IOException {
+        final Path path = Files.createTempFile("holidays", suffix);
+        path.toFile().deleteOnExit();
+        Files.write(path, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return path;
+    }
+
+    @Test
+    public void loadsFromCsv() throws IOException {
+        final HolidayCalendar holidays = HolidayCalendar.fromCsv(write(".csv",
+                "date,name",
+                "# Observed dates",
+                "2016-01-01,New Year's Day",
+                "",
+                "\"2016-12-26\",Christmas Day"));
+        assertThat(holidays.size()).isEqualTo(2L);
+        assertThat(holidays.isHoliday(LocalDate.of(2016, 1, 1))).isTrue();
+        assertThat(holidays.isHoliday(LocalDate.of(2016, 12, 26))).isTrue();
+        assertThat(holidays.isHoliday(LocalDate.of(2016, 12, 25))).isFalse();
+    }
+
+    @Test
+    public void loadsFromIcs() throws IOException {
+        final HolidayCalendar holidays = HolidayCalendar.fromIcs(write(".ics",
+                "BEGIN:VCALENDAR",
+                "BEGIN:VEVENT",
+                "DTSTART;VALUE=DATE:20160704",
+                "DTEND;VALUE=DATE:20160705",
+                "SUMMARY:Independence Day",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "DTSTART;VALUE=DATE:2016",
+                " 1124",
+                "DTEND;VALUE=DATE:20161126",
+                "SUMMARY:Thanksgiving",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "DTSTART:20161224T090000Z",
+                "DTEND:20161224T130000Z",
+                "SUMMARY:Early close",
+                "END:VEVENT",
+                "END:VCALENDAR"));
+        assertThat(holidays.size()).isEqualTo(4L);
+        assertThat(holidays.isHoliday(LocalDate.of(2016, 7, 4))).isTrue();
+        assertThat(holidays.isHoliday(LocalDate.of(2016, 11, 24))).isTrue();
+        assertThat(holidays.isHoliday(LocalDate.of(2016, 11, 25))).isTrue();
+        assertThat(holidays.isHoliday(LocalDate.of(2016, 11, 26))).isFalse();
+        assertThat(holidays.isHoliday(LocalDate.of(2016, 12, 24))).isTrue();
+    }
+
+    @Test
+    public void holidaysAcrossYears() {
+        final HolidayCalendar holidays = HolidayCalendar.of(
+                LocalDate.of(2015, 12, 31),
+                LocalDate.of(2016, 12, 31),
+                LocalDate.of(2020, 2, 29));
+        assertThat(holidays.isHoliday(LocalDate.of(2016, 12, 31))).isTrue();
+        assertThat(holidays.isHoliday(LocalDate.of(2020, 2, 29))).isTrue();
+        assertThat(holidays.isHoliday(LocalDate.of(2019, 2, 28))).isFalse();
+        assertThat(holidays.isHoliday(LocalDate.of(1999, 1, 1))).isFalse();
+        assertThat(holidays.countBefore(LocalDate.of(2020, 3, 1).toEpochDay())).isEqualTo(3L);
+    }
+
+    @Test
+    public void businessDaysSkipHolidays() {
+        final HolidayCalendar holidays = HolidayCalendar.of(LocalDate.of(2016, 12, 26), LocalDate.of(2017, 1, 2));
+        assertThat(LocalDateStream
+                .from(LocalDate.of(2016, 12, 23))
+                .to(LocalDate.of(2017, 1, 3))
+                .everyBusinessDay(holidays)
+                .stream())
+                .containsExactly(
+                        LocalDate.of(2016, 12, 23),
+                        LocalDate.of(2016, 12, 27),
+                        LocalDate.of(2016, 12, 28),
+                        LocalDate.of(2016, 12, 29),
+                        LocalDate.of(2016, 12, 30),
+                        LocalDate.of(2017, 1, 3));
+    }
+
+    @Test
+    public void businessDaysAcrossFiftyYears() {
+        final Set<LocalDate> holidays = new HashSet<>();
+        for (int year = 2000; year < 2050; year++) {
+            holidays.add(LocalDate.of(year, 1, 1));
+            holidays.add(LocalDate.of(year, 7, 4));
+            holidays.add(LocalDate.of(year, 12, 25));
+        }
+        final LocalDateStream builder = LocalDateStream
+                .from(LocalDate.of(2000, 1, 1))
+                .until(LocalDate.of(2050, 1, 1))
+                .everyBusinessDay(HolidayCalendar.of(holidays));
+        final List<LocalDate> expected = LocalDateStream
+                .from(LocalDate.of(2000, 1, 1))
+                .until(LocalDate.of(2050, 1, 1))
+                .stream()
+                .filter(date -> date.getDayOfWeek().getValue() < DayOfWeek.SATURDAY.getValue())
+                .filter(date -> !holidays.contains(date))
+                .collect(Collectors.toList());
+        assertThat(builder.size()).hasValue((long) expected.size());
+        assertThat(builder.get(5_000)).isEqualTo(expected.get(5_000));
+        assertThat(builder.stream()).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void equalCalendarsMakeEqualBusinessDays() {
+        assertThat(BusinessDays.BUSINESS_DAYS.withHolidays(HolidayCalendar.of(LocalDate.of(2016, 1, 1))))
+                .isEqualTo(BusinessDays.BUSINESS_DAYS.withHolidays(HolidayCalendar.of(LocalDate.of(2016, 1, 1))));
+        assertThat(BusinessDays.BUSINESS_DAYS.withHolidays(HolidayCalendar.of(LocalDate.of(2016, 1, 1))))
+                .isNotEqualTo(BusinessDays.BUSINESS_DAYS);
+    }
+}
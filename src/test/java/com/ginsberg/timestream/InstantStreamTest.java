@@ -0,0 +1,277 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.UnsupportedTemporalTypeException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InstantStreamTest {
+
+    final Instant now = Instant.now();
+
+    @Test
+    public void stopsBeforeUntilDateGivenByChronoUnits() {
+        final Stream<Instant> stream = InstantStream
+                .from(now)
+                .until(2, ChronoUnit.SECONDS)
+                .stream();
+        assertThat(stream)
+                .isNotNull()
+                .containsExactly(now, now.plusSeconds(1));
+    }
+
+    @Test
+    public void stopsBeforeUntilDateGivenByInstant() {
+        final Stream<Instant> stream = InstantStream
+                .from(now)
+                .until(now.plusSeconds(2))
+                .stream();
+        assertThat(stream)
+                .isNotNull()
+                .containsExactly(now, now.plusSeconds(1));
+    }
+
+    @Test
+    public void stopsOnToDateGivenByChronoUnits() {
+        final Stream<Instant> stream = InstantStream
+                .from(now)
+                .to(2, ChronoUnit.SECONDS)
+                .stream();
+        assertThat(stream)
+                .isNotNull()
+                .containsExactly(now, now.plusSeconds(1), now.plusSeconds(2));
+    }
+
+    @Test
+    public void stopsOnToDateGivenByInstant() {
+        final Stream<Instant> stream = InstantStream
+                .from(now)
+                .to(now.plusSeconds(2))
+                .stream();
+        assertThat(stream)
+                .isNotNull()
+                .containsExactly(now, now.plusSeconds(1), now.plusSeconds(2));
+    }
+
+    @Test
+    public void identicalFromAndToCreateOnePointStream() {
+        final Stream<Instant> stream = InstantStream
+                .from(now)
+                .to(now)
+                .stream();
+        assertThat(stream)
+                .isNotNull()
+                .containsExactly(now);
+    }
+
+    @Test
+    public void noToDateRunsForever() {
+        // No real way to test that a stream never ends so we will just make sure that this generates a lot of iterations.
+        final int iterations = 1_000_000;
+        final Stream<Instant> stream = InstantStream
+                .from(now)
+                .stream()
+                .limit(iterations);
+        assertThat(stream)
+                .isNotNull()
+                .endsWith(now.plus(iterations - 1, ChronoUnit.SECONDS))
+                .hasSize(iterations);
+    }
+
+    @Test
+    public void toBeforeFromRunsBackThroughTime() {
+        final Stream<Instant> stream = InstantStream
+                .from(now)
+                .to(-2, ChronoUnit.SECONDS)
+                .stream();
+        assertThat(stream)
+                .isNotNull()
+                .containsExactly(now, now.minusSeconds(1), now.minusSeconds(2));
+    }
+
+    @Test
+    public void everyDurationUsesNanoseconds() {
+        final Stream<Instant> stream = InstantStream
+                .from(now)
+                .to(1, ChronoUnit.MICROS)
+                .every(Duration.ofNanos(300))
+                .stream();
+        assertThat(stream)
+                .isNotNull()
+                .containsExactly(now, now.plusNanos(300), now.plusNanos(600), now.plusNanos(900));
+    }
+
+    @Test
+    public void everyDurationWithSecondsAndNanos() {
+        final Duration step = Duration.ofSeconds(1, 750_000_000);
+        assertThat(InstantStream
+                .from(now)
+                .to(-10, ChronoUnit.SECONDS)
+                .every(step)
+                .stream())
+                .containsExactlyElementsOf(Stream.iterate(now, i -> i.minus(step))
+                        .limit(6)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void negativeEveryDurationStillGoesForward() {
+        final Stream<Instant> stream = InstantStream
+                .from(now)
+                .to(3, ChronoUnit.SECONDS)
+                .every(Duration.parse("-PT2S"))
+                .stream();
+        assertThat(stream)
+                .isNotNull()
+                .containsExactly(now, now.plusSeconds(2));
+    }
+
+    @Test
+    public void positiveEveryUnitStillGoesBackward() {
+        final Stream<Instant> stream = InstantStream
+                .from(now)
+                .to(-3, ChronoUnit.SECONDS)
+                .every(2, ChronoUnit.SECONDS)
+                .stream();
+        assertThat(stream)
+                .isNotNull()
+                .containsExactly(now, now.minusSeconds(2));
+    }
+
+    @Test
+    public void sizeCountsNanosecondSteps() {
+        assertThat(InstantStream
+                .from(now)
+                .until(1, ChronoUnit.SECONDS)
+                .every(Duration.ofNanos(7))
+                .size())
+                .hasValue(142_857_143);
+    }
+
+    @Test
+    public void getCalculatesElementAtIndex() {
+        assertThat(InstantStream
+                .from(now)
+                .every(Duration.ofMillis(250))
+                .get(1_000_000))
+                .isEqualTo(now.plusSeconds(250_000));
+    }
+
+    @Test
+    public void epochNanoStreamMatchesElements() {
+        final InstantStream builder = InstantStream
+                .from(now)
+                .to(-1, ChronoUnit.MILLIS)
+                .every(333, ChronoUnit.NANOS);
+        assertThat(builder.epochNanoStream())
+                .containsExactlyElementsOf(builder.stream()
+                        .map(i -> i.getEpochSecond() * 1_000_000_000L + i.getNano())
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void epochMilliStreamMatchesElements() {
+        final InstantStream builder = InstantStream
+                .from(now)
+                .to(1, ChronoUnit.HOURS)
+                .every(Duration.ofMillis(1500));
+        assertThat(builder.epochMilliStream())
+                .containsExactlyElementsOf(builder.stream()
+                        .map(Instant::toEpochMilli)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void cursorMatchesStream() {
+        final InstantStream builder = InstantStream
+                .from(now)
+                .until(-1, ChronoUnit.SECONDS)
+                .every(Duration.ofNanos(33_333_333));
+        final TimeCursor<Instant> cursor = builder.cursor();
+        final List<Instant> instants = new ArrayList<>();
+        while (cursor.advance()) {
+            instants.add(Instant.ofEpochSecond(cursor.epochSecond(), cursor.nano()));
+        }
+        assertThat(instants).containsExactlyElementsOf(builder.stream().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void intervalsOfUnboundedStream() {
+        assertThat(InstantStream
+                .from(now)
+                .every(Duration.ofMillis(500))
+                .intervals()
+                .limit(2))
+                .containsExactly(
+                        new TimeInterval<>(now, now.plusMillis(500)),
+                        new TimeInterval<>(now.plusMillis(500), now.plusMillis(1000)));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void mustHaveFromDate() {
+        InstantStream.from(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void toByUnitsMustHaveUnit() {
+        InstantStream.fromNow().to(1, null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void untilByUnitsMustHaveUnit() {
+        InstantStream.fromNow().until(1, null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void everyMustHavePeriod() {
+        InstantStream.fromNow().every(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void everyMustHaveNonZeroAmount() {
+        InstantStream.fromNow().every(0, ChronoUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void everyMustHaveNonZeroAmountFromPeriod() {
+        InstantStream.fromNow().every(Duration.ZERO);
+    }
+
+    @Test(expected = UnsupportedTemporalTypeException.class)
+    public void everyMustHaveSupportedUnit() {
+        InstantStream.fromNow().every(1, ChronoUnit.MONTHS);
+    }
+}
@@ -27,10 +27,16 @@ package com.ginsberg.timestream;
 import org.assertj.core.util.Sets;
 import org.junit.Test;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.Period;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import static com.ginsberg.timestream.util.Assertions.expectingChronoUnitException;
@@ -197,11 +203,362 @@ public class LocalDateStreamTest {
                 .containsExactly(now, now.plusDays(15));
     }
 
+    @Test
+    public void monthsFromEndOfMonthKeepClampedDay() {
+        final LocalDate endOfJanuary = LocalDate.of(2015, 1, 31);
+        final Stream<LocalDate> stream = LocalDateStream
+                .from(endOfJanuary)
+                .to(2, ChronoUnit.MONTHS)
+                .every(1, ChronoUnit.MONTHS)
+                .stream();
+        assertThat(stream)
+                .isNotNull()
+                .containsExactly(endOfJanuary, LocalDate.of(2015, 2, 28), LocalDate.of(2015, 3, 28));
+    }
+
+    @Test
+    public void parallelMonthsFromEndOfMonthKeepClampedDay() {
+        final LocalDate endOfJanuary = LocalDate.of(2015, 1, 31);
+        final Stream<LocalDate> stream = LocalDateStream
+                .from(endOfJanuary)
+                .to(2, ChronoUnit.MONTHS)
+                .every(1, ChronoUnit.MONTHS)
+                .parallelStream();
+        assertThat(stream)
+                .isNotNull()
+                .containsExactly(endOfJanuary, LocalDate.of(2015, 2, 28), LocalDate.of(2015, 3, 28));
+    }
+
+    @Test
+    public void sizeWithoutFixedStepIsCounted() {
+        final LocalDateStream builder = LocalDateStream
+                .from(LocalDate.of(2015, 1, 31))
+                .until(LocalDate.of(2016, 1, 28))
+                .every(1, ChronoUnit.MONTHS);
+        assertThat(builder.size()).hasValue(12);
+    }
+
+    @Test
+    public void getAndStreamFromWithoutFixedStep() {
+        final LocalDateStream builder = LocalDateStream
+                .from(LocalDate.of(2015, 1, 31))
+                .every(1, ChronoUnit.MONTHS);
+        assertThat(builder.get(2)).isEqualTo(LocalDate.of(2015, 3, 28));
+        assertThat(builder.streamFrom(1).limit(2)).containsExactly(LocalDate.of(2015, 2, 28), LocalDate.of(2015, 3, 28));
+    }
+
+    @Test
+    public void backwardParallelStreamIsInOrder() {
+        final Stream<LocalDate> stream = LocalDateStream
+                .from(now)
+                .to(-1000, ChronoUnit.DAYS)
+                .stream()
+                .parallel();
+        assertThat(stream)
+                .hasSize(1001)
+                .startsWith(now, now.minusDays(1))
+                .endsWith(now.minusDays(1000));
+    }
+
+    @Test
+    public void sizeOfExclusiveRangeDoesNotIncludeEnd() {
+        assertThat(LocalDateStream.from(now).until(now).size()).hasValue(0);
+        assertThat(LocalDateStream.from(now).until(-10, ChronoUnit.DAYS).every(5, ChronoUnit.DAYS).size()).hasValue(2);
+    }
+
+    @Test
+    public void epochDayStreamByDays() {
+        final LongStream stream = LocalDateStream
+                .from(LocalDate.of(1970, 1, 1))
+                .until(6, ChronoUnit.DAYS)
+                .every(2, ChronoUnit.DAYS)
+                .epochDayStream();
+        assertThat(stream).containsExactly(0L, 2L, 4L);
+    }
+
+    @Test
+    public void epochDayStreamByMonthsMatchesElements() {
+        final LocalDateStream builder = LocalDateStream
+                .from(LocalDate.of(2016, 1, 15))
+                .to(-4, ChronoUnit.YEARS)
+                .every(1, ChronoUnit.MONTHS);
+        assertThat(builder.epochDayStream().toArray())
+                .isEqualTo(builder.stream().mapToLong(LocalDate::toEpochDay).toArray());
+    }
+
+    @Test
+    public void epochDayStreamFromEndOfMonthMatchesElements() {
+        final LocalDateStream builder = LocalDateStream
+                .from(LocalDate.of(2016, 1, 31))
+                .to(2, ChronoUnit.YEARS)
+                .every(1, ChronoUnit.MONTHS);
+        assertThat(builder.epochDayStream().toArray())
+                .isEqualTo(builder.stream().mapToLong(LocalDate::toEpochDay).toArray());
+    }
+
+    @Test
+    public void epochDayIntStreamByWeeks() {
+        final IntStream stream = LocalDateStream
+                .from(LocalDate.of(1970, 1, 15))
+                .to(-2, ChronoUnit.WEEKS)
+                .every(1, ChronoUnit.WEEKS)
+                .epochDayIntStream();
+        assertThat(stream).containsExactly(14, 7, 0);
+    }
+
+    @Test
+    public void cursorMovesThroughElementsInPlace() {
+        final TimeCursor<LocalDate> cursor = LocalDateStream
+                .from(LocalDate.of(2016, 1, 31))
+                .to(LocalDate.of(2016, 4, 30))
+                .every(1, ChronoUnit.MONTHS)
+                .cursor();
+        final List<LocalDate> dates = new ArrayList<>();
+        while (cursor.advance()) {
+            assertThat(cursor.hour()).isEqualTo(0);
+            dates.add(LocalDate.of(cursor.year(), cursor.month(), cursor.day()));
+        }
+        assertThat(dates).containsExactly(
+                LocalDate.of(2016, 1, 31),
+                LocalDate.of(2016, 2, 29),
+                LocalDate.of(2016, 3, 29),
+                LocalDate.of(2016, 4, 29));
+        assertThat(cursor.advance()).isFalse();
+    }
+
+    @Test
+    public void intervalsEndAtNextElement() {
+        final Stream<TimeInterval<LocalDate>> intervals = LocalDateStream
+                .from(LocalDate.of(2016, 1, 1))
+                .to(LocalDate.of(2016, 1, 10))
+                .every(3, ChronoUnit.DAYS)
+                .intervals();
+        assertThat(intervals).containsExactly(
+                new TimeInterval<>(LocalDate.of(2016, 1, 1), LocalDate.of(2016, 1, 4)),
+                new TimeInterval<>(LocalDate.of(2016, 1, 4), LocalDate.of(2016, 1, 7)),
+                new TimeInterval<>(LocalDate.of(2016, 1, 7), LocalDate.of(2016, 1, 10)));
+    }
+
+    @Test
+    public void intervalsClampLastIntervalToEndPoint() {
+        final Stream<TimeInterval<LocalDate>> intervals = LocalDateStream
+                .from(LocalDate.of(2016, 1, 10))
+                .until(LocalDate.of(2016, 1, 2))
+                .every(3, ChronoUnit.DAYS)
+                .intervals();
+        assertThat(intervals).containsExactly(
+                new TimeInterval<>(LocalDate.of(2016, 1, 10), LocalDate.of(2016, 1, 7)),
+                new TimeInterval<>(LocalDate.of(2016, 1, 7), LocalDate.of(2016, 1, 4)),
+                new TimeInterval<>(LocalDate.of(2016, 1, 4), LocalDate.of(2016, 1, 2)));
+    }
+
+    @Test
+    public void parallelIntervalsMatchSequential() {
+        final LocalDateStream builder = LocalDateStream
+                .from(now)
+                .to(10_000, ChronoUnit.DAYS)
+                .every(7, ChronoUnit.DAYS);
+        assertThat(builder.intervals().parallel().collect(Collectors.toList()))
+                .containsExactlyElementsOf(builder.intervals().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void batchesEndWithPartialBatch() {
+        final List<LocalDate[]> batches = LocalDateStream
+                .from(LocalDate.of(2016, 1, 1))
+                .to(LocalDate.of(2016, 1, 5))
+                .batches(2)
+                .collect(Collectors.toList());
+        assertThat(batches.size()).isEqualTo(3);
+        assertThat(batches.get(0)).containsExactly(LocalDate.of(2016, 1, 1), LocalDate.of(2016, 1, 2));
+        assertThat(batches.get(1)).containsExactly(LocalDate.of(2016, 1, 3), LocalDate.of(2016, 1, 4));
+        assertThat(batches.get(2)).containsExactly(LocalDate.of(2016, 1, 5));
+    }
+
+    @Test
+    public void parallelBatchesMatchSequential() {
+        final LocalDateStream builder = LocalDateStream
+                .from(now)
+                .to(10_000, ChronoUnit.DAYS)
+                .every(3, ChronoUnit.DAYS);
+        assertThat(builder.batches(100).parallel().flatMap(Stream::of).collect(Collectors.toList()))
+                .containsExactlyElementsOf(builder.stream().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void batchesWithoutFixedStep() {
+        final List<LocalDate[]> batches = LocalDateStream
+                .from(LocalDate.of(2016, 1, 31))
+                .until(LocalDate.of(2016, 5, 1))
+                .every(1, ChronoUnit.MONTHS)
+                .batches(3)
+                .collect(Collectors.toList());
+        assertThat(batches.size()).isEqualTo(2);
+        assertThat(batches.get(0)).containsExactly(
+                LocalDate.of(2016, 1, 31),
+                LocalDate.of(2016, 2, 29),
+                LocalDate.of(2016, 3, 29));
+        assertThat(batches.get(1)).containsExactly(LocalDate.of(2016, 4, 29));
+    }
+
+    @Test
+    public void epochDayBatches() {
+        final List<long[]> batches = LocalDateStream
+                .from(LocalDate.of(1970, 1, 1))
+                .until(LocalDate.of(1970, 1, 8))
+                .epochDayBatches(4)
+                .collect(Collectors.toList());
+        assertThat(batches.size()).isEqualTo(2);
+        assertThat(batches.get(0)).containsExactly(0L, 1L, 2L, 3L);
+        assertThat(batches.get(1)).containsExactly(4L, 5L, 6L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchesMustHavePositiveSize() {
+        LocalDateStream.fromNow().batches(0);
+    }
+
+    @Test
+    public void toArrayHoldsEveryElement() {
+        final LocalDateStream builder = LocalDateStream
+                .from(now)
+                .until(1_000, ChronoUnit.DAYS)
+                .every(3, ChronoUnit.DAYS);
+        assertThat(builder.toArray()).containsExactlyElementsOf(builder.stream().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void toArrayWithoutFixedStep() {
+        assertThat(LocalDateStream
+                .from(LocalDate.of(2016, 1, 31))
+                .until(LocalDate.of(2016, 5, 1))
+                .every(1, ChronoUnit.MONTHS)
+                .toArray())
+                .containsExactly(
+                        LocalDate.of(2016, 1, 31),
+                        LocalDate.of(2016, 2, 29),
+                        LocalDate.of(2016, 3, 29),
+                        LocalDate.of(2016, 4, 29));
+    }
+
+    @Test
+    public void toEpochDayArray() {
+        assertThat(LocalDateStream
+                .from(LocalDate.of(1970, 1, 10))
+                .to(LocalDate.of(1970, 1, 1))
+                .every(3, ChronoUnit.DAYS)
+                .toEpochDayArray())
+                .containsExactly(9L, 6L, 3L, 0L);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void toArrayMustBeBounded() {
+        LocalDateStream.fromNow().toArray();
+    }
+
+    @Test
+    public void everyWeekdaySkipsWeekend() {
+        assertThat(LocalDateStream
+                .from(LocalDate.of(2016, 4, 1))
+                .to(LocalDate.of(2016, 4, 6))
+                .everyWeekday()
+                .stream())
+                .containsExactly(
+                        LocalDate.of(2016, 4, 1),
+                        LocalDate.of(2016, 4, 4),
+                        LocalDate.of(2016, 4, 5),
+                        LocalDate.of(2016, 4, 6));
+    }
+
+    @Test
+    public void businessDaysBackwardFromWeekend() {
+        assertThat(LocalDateStream
+                .from(LocalDate.of(2016, 4, 10))
+                .to(LocalDate.of(2016, 3, 28))
+                .every(2, BusinessDays.BUSINESS_DAYS)
+                .stream())
+                .containsExactly(
+                        LocalDate.of(2016, 4, 8),
+                        LocalDate.of(2016, 4, 6),
+                        LocalDate.of(2016, 4, 4),
+                        LocalDate.of(2016, 3, 31),
+                        LocalDate.of(2016, 3, 29));
+    }
+
+    @Test
+    public void businessDaysWithCustomWeekend() {
+        assertThat(LocalDateStream
+                .from(LocalDate.of(2016, 4, 7))
+                .until(LocalDate.of(2016, 4, 11))
+                .every(1, BusinessDays.withWeekend(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY))
+                .stream())
+                .containsExactly(
+                        LocalDate.of(2016, 4, 7),
+                        LocalDate.of(2016, 4, 10));
+    }
+
+    @Test
+    public void businessDaysAreCountedAndIndexed() {
+        final LocalDateStream builder = LocalDateStream
+                .from(LocalDate.of(2000, 1, 1))
+                .until(LocalDate.of(2050, 1, 1))
+                .everyWeekday();
+        final List<LocalDate> weekdays = LocalDateStream
+                .from(LocalDate.of(2000, 1, 1))
+                .until(LocalDate.of(2050, 1, 1))
+                .stream()
+                .filter(date -> date.getDayOfWeek().getValue() < DayOfWeek.SATURDAY.getValue())
+                .collect(Collectors.toList());
+        assertThat(builder.size()).hasValue((long) weekdays.size());
+        assertThat(builder.get(10_000)).isEqualTo(weekdays.get(10_000));
+        assertThat(builder.parallelStream()).containsExactlyElementsOf(weekdays);
+    }
+
     @Test(expected = NullPointerException.class)
     public void mustHaveFromDate() {
         LocalDateStream.from(null);
     }
 
+    @Test
+    public void mergeBackward() {
+        final LocalDate start = LocalDate.of(2016, 1, 10);
+        assertThat(LocalDateStream.merge(
+                false,
+                LocalDateStream.from(start).to(start.minusDays(4)).every(2, ChronoUnit.DAYS),
+                LocalDateStream.from(start.minusDays(1)).to(start.minusDays(1)),
+                LocalDateStream.from(start.minusDays(2)).to(start.minusDays(4)).every(2, ChronoUnit.DAYS)))
+                .containsExactly(
+                        start,
+                        start.minusDays(1),
+                        start.minusDays(2),
+                        start.minusDays(2),
+                        start.minusDays(4),
+                        start.minusDays(4));
+    }
+
+    @Test
+    public void intersectWithIrregularSchedule() {
+        final LocalDate start = LocalDate.of(2016, 1, 31);
+        assertThat(LocalDateStream.from(start).to(start.plusYears(1)).everyWeekday()
+                .intersect(LocalDateStream.from(start).to(start.plusMonths(3)).every(1, ChronoUnit.MONTHS)))
+                .containsExactly(
+                        LocalDate.of(2016, 2, 29),
+                        LocalDate.of(2016, 3, 29),
+                        LocalDate.of(2016, 4, 29));
+    }
+
+    @Test
+    public void exceptBackward() {
+        final LocalDate start = LocalDate.of(2016, 1, 10);
+        assertThat(LocalDateStream.from(start).to(start.minusDays(5))
+                .except(LocalDateStream.from(start.minusDays(1)).to(start.minusDays(5)).every(3, ChronoUnit.DAYS),
+                        LocalDateStream.from(start.minusDays(3)).to(start.minusDays(3))))
+                .containsExactly(
+                        start,
+                        start.minusDays(2),
+                        start.minusDays(5));
+    }
+
     @Test(expected = NullPointerException.class)
     public void toByUnitsMustHaveUnit() {
         LocalDateStream.fromNow().to(1, null);
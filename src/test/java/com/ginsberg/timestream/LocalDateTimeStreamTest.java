@@ -28,7 +28,12 @@ import org.junit.Test;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -190,6 +195,218 @@ public class LocalDateTimeStreamTest {
                 .containsExactly(now, now.plusSeconds(2));
     }
 
+    @Test
+    public void boundedStreamKnowsItsSize() {
+        final Spliterator<LocalDateTime> spliterator = LocalDateTimeStream
+                .from(now)
+                .until(1, ChronoUnit.DAYS)
+                .every(1, ChronoUnit.HOURS)
+                .stream()
+                .spliterator();
+        assertThat(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED)).isTrue();
+        assertThat(spliterator.getExactSizeIfKnown()).isEqualTo(24);
+    }
+
+    @Test
+    public void boundedStreamSplitsEvenly() {
+        final Spliterator<LocalDateTime> spliterator = LocalDateTimeStream
+                .from(now)
+                .until(1, ChronoUnit.DAYS)
+                .every(1, ChronoUnit.HOURS)
+                .stream()
+                .spliterator();
+        final Spliterator<LocalDateTime> prefix = spliterator.trySplit();
+        assertThat(prefix.estimateSize()).isEqualTo(12);
+        assertThat(spliterator.estimateSize()).isEqualTo(12);
+    }
+
+    @Test
+    public void parallelStreamMatchesSequentialStream() {
+        final LocalDateTimeStream builder = LocalDateTimeStream
+                .from(now)
+                .to(-30, ChronoUnit.DAYS)
+                .every(7, ChronoUnit.MINUTES);
+        assertThat(builder.stream().parallel().collect(Collectors.toList()))
+                .isEqualTo(builder.stream().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void manyHalfDaysStepByHours() {
+        final Stream<LocalDateTime> stream = LocalDateTimeStream
+                .from(now)
+                .to(200, ChronoUnit.DAYS)
+                .every(1, ChronoUnit.HALF_DAYS)
+                .stream();
+        assertThat(stream)
+                .hasSize(401)
+                .endsWith(now.plusDays(200));
+    }
+
+    @Test
+    public void sizeOfLongRangeIsCalculated() {
+        final LocalDateTime start = LocalDateTime.of(2010, 1, 1, 0, 0);
+        final LocalDateTime end = LocalDateTime.of(2020, 1, 1, 0, 0);
+        final LocalDateTimeStream builder = LocalDateTimeStream
+                .from(start)
+                .to(end);
+        assertThat(builder.size()).hasValue(ChronoUnit.SECONDS.between(start, end) + 1);
+    }
+
+    @Test
+    public void sizeOfInfiniteStreamIsEmpty() {
+        assertThat(LocalDateTimeStream.from(now).size()).isEmpty();
+    }
+
+    @Test
+    public void sizeMatchesStreamCount() {
+        final LocalDateTimeStream builder = LocalDateTimeStream
+                .from(now)
+                .until(-1, ChronoUnit.DAYS)
+                .every(7, ChronoUnit.MINUTES);
+        assertThat(builder.size()).hasValue(builder.stream().count());
+    }
+
+    @Test
+    public void epochMilliStreamAtOffset() {
+        final LocalDateTime start = LocalDateTime.of(1970, 1, 1, 1, 0);
+        final LongStream stream = LocalDateTimeStream
+                .from(start)
+                .to(2, ChronoUnit.SECONDS)
+                .epochMilliStream(ZoneOffset.ofHours(1));
+        assertThat(stream).containsExactly(0L, 1_000L, 2_000L);
+    }
+
+    @Test
+    public void epochSecondStreamByMonthsMatchesElements() {
+        final ZoneOffset offset = ZoneOffset.ofHours(-5);
+        final LocalDateTimeStream builder = LocalDateTimeStream
+                .from(now)
+                .to(-2, ChronoUnit.YEARS)
+                .every(1, ChronoUnit.MONTHS);
+        assertThat(builder.epochSecondStream(offset).toArray())
+                .isEqualTo(builder.stream().mapToLong(d -> d.toEpochSecond(offset)).toArray());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void epochMilliStreamMustHaveOffset() {
+        LocalDateTimeStream.fromNow().epochMilliStream(null);
+    }
+
+    @Test
+    public void everyDurationKeepsMilliseconds() {
+        final Stream<LocalDateTime> stream = LocalDateTimeStream
+                .from(now)
+                .to(1, ChronoUnit.SECONDS)
+                .every(Duration.ofMillis(250))
+                .stream();
+        assertThat(stream)
+                .isNotNull()
+                .containsExactly(now, now.plusNanos(250_000_000), now.plusNanos(500_000_000), now.plusNanos(750_000_000), now.plusSeconds(1));
+    }
+
+    @Test
+    public void everyDurationIsNotTruncatedToSeconds() {
+        final Stream<LocalDateTime> stream = LocalDateTimeStream
+                .from(now)
+                .to(-3, ChronoUnit.SECONDS)
+                .every(Duration.ofSeconds(1, 500_000_000))
+                .stream();
+        assertThat(stream)
+                .isNotNull()
+                .containsExactly(now, now.minusNanos(1_500_000_000), now.minusSeconds(3));
+    }
+
+    @Test
+    public void highFrequencyTicksAsEpochNanos() {
+        final LocalDateTimeStream builder = LocalDateTimeStream
+                .from(LocalDateTime.of(2017, 1, 2, 9, 30))
+                .until(1, ChronoUnit.SECONDS)
+                .every(Duration.ofNanos(100_000));
+        final long start = LocalDateTime.of(2017, 1, 2, 9, 30).toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L;
+        assertThat(builder.size()).hasValue(10_000);
+        assertThat(builder.epochNanoStream(ZoneOffset.UTC))
+                .startsWith(start, start + 100_000, start + 200_000)
+                .endsWith(start + 999_900_000)
+                .hasSize(10_000);
+        assertThat(builder.get(9_999)).isEqualTo(LocalDateTime.of(2017, 1, 2, 9, 30, 0, 999_900_000));
+    }
+
+    @Test
+    public void cursorReadsFieldsWithoutCreatingElements() {
+        final TimeCursor<LocalDateTime> cursor = LocalDateTimeStream
+                .from(LocalDateTime.of(2016, 12, 31, 23, 59, 59, 500_000_000))
+                .to(1, ChronoUnit.SECONDS)
+                .every(Duration.ofMillis(750))
+                .cursor();
+        assertThat(cursor.advance()).isTrue();
+        assertThat(cursor.advance()).isTrue();
+        assertThat(cursor.year()).isEqualTo(2017);
+        assertThat(cursor.month()).isEqualTo(1);
+        assertThat(cursor.day()).isEqualTo(1);
+        assertThat(cursor.hour()).isEqualTo(0);
+        assertThat(cursor.minute()).isEqualTo(0);
+        assertThat(cursor.second()).isEqualTo(0);
+        assertThat(cursor.nano()).isEqualTo(250_000_000);
+        assertThat(cursor.epochSecond()).isEqualTo(LocalDateTime.of(2017, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC));
+        assertThat(cursor.get()).isEqualTo(LocalDateTime.of(2017, 1, 1, 0, 0, 0, 250_000_000));
+        assertThat(cursor.advance()).isFalse();
+    }
+
+    @Test
+    public void everyWeekdayKeepsTimeOfDay() {
+        final LocalDateTime friday = LocalDateTime.of(2016, 4, 1, 9, 30);
+        assertThat(LocalDateTimeStream
+                .from(friday)
+                .to(friday.plusDays(4))
+                .everyWeekday()
+                .stream())
+                .containsExactly(friday, friday.plusDays(3), friday.plusDays(4));
+    }
+
+    @Test
+    public void businessHoursFormGrid() {
+        final LocalDateTime friday = LocalDateTime.of(2016, 4, 1, 15, 0);
+        assertThat(LocalDateTimeStream
+                .from(friday)
+                .until(friday.plusDays(3))
+                .every(1, ChronoUnit.HOURS)
+                .duringBusinessHours(LocalTime.of(9, 0), LocalTime.of(16, 30), BusinessDays.BUSINESS_DAYS)
+                .stream())
+                .containsExactly(
+                        friday,
+                        friday.plusHours(1),
+                        LocalDateTime.of(2016, 4, 4, 9, 0),
+                        LocalDateTime.of(2016, 4, 4, 10, 0),
+                        LocalDateTime.of(2016, 4, 4, 11, 0),
+                        LocalDateTime.of(2016, 4, 4, 12, 0),
+                        LocalDateTime.of(2016, 4, 4, 13, 0),
+                        LocalDateTime.of(2016, 4, 4, 14, 0));
+    }
+
+    @Test
+    public void businessHoursAreCountedAndIndexed() {
+        final LocalDateTimeStream builder = LocalDateTimeStream
+                .from(LocalDateTime.of(2016, 1, 1, 0, 0))
+                .until(LocalDateTime.of(2026, 1, 1, 0, 0))
+                .every(15, ChronoUnit.MINUTES)
+                .duringBusinessHours(LocalTime.of(9, 0), LocalTime.of(17, 0), BusinessDays.BUSINESS_DAYS);
+        assertThat(builder.size()).hasValue(2609L * 32);
+        assertThat(builder.get(32)).isEqualTo(LocalDateTime.of(2016, 1, 4, 9, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void businessHoursMustCloseAfterOpening() {
+        LocalDateTimeStream.fromNow().duringBusinessHours(LocalTime.NOON, LocalTime.NOON, BusinessDays.BUSINESS_DAYS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void businessHoursMustStepByTime() {
+        LocalDateTimeStream
+                .fromNow()
+                .duringBusinessHours(LocalTime.of(9, 0), LocalTime.of(17, 0), BusinessDays.BUSINESS_DAYS)
+                .every(1, ChronoUnit.DAYS);
+    }
+
     @Test(expected = NullPointerException.class)
     public void mustHaveFromDate() {
         LocalDateTimeStream.from(null);
@@ -0,0 +1,204 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RecurrenceRuleTest {
+
+    private final LocalDate start = LocalDate.of(2016, 1, 1);
+    private final ZoneId newYork = ZoneId.of("America/New_York");
+
+    @Test
+    public void parsesToStandardOrder() {
+        assertThat(RecurrenceRule.parse("RRULE:byday=2TU;freq=monthly").toString())
+                .isEqualTo("FREQ=MONTHLY;BYDAY=2TU");
+        assertThat(RecurrenceRule.parse("BYDAY=2TU;FREQ=MONTHLY"))
+                .isEqualTo(RecurrenceRule.parse("FREQ=MONTHLY;BYDAY=2TU"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void frequencyIsRequired() {
+        RecurrenceRule.parse("BYDAY=MO");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void countAndUntilAreExclusive() {
+        RecurrenceRule.parse("FREQ=DAILY;COUNT=3;UNTIL=20161231");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void weeklyOrdinalsAreRejected() {
+        RecurrenceRule.parse("FREQ=WEEKLY;BYDAY=2TU");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void datesCantHaveTimes() {
+        LocalDateStream.from(start).recurring(RecurrenceRule.parse("FREQ=DAILY;BYHOUR=9"));
+    }
+
+    @Test
+    public void secondTuesdayOfEachMonth() {
+        assertThat(LocalDateStream
+                .from(start)
+                .to(LocalDate.of(2016, 4, 30))
+                .recurring(RecurrenceRule.parse("FREQ=MONTHLY;BYDAY=2TU"))
+                .stream())
+                .containsExactly(
+                        LocalDate.of(2016, 1, 12),
+                        LocalDate.of(2016, 2, 9),
+                        LocalDate.of(2016, 3, 8),
+                        LocalDate.of(2016, 4, 12));
+    }
+
+    @Test
+    public void lastWeekdayOfEachQuarter() {
+        assertThat(LocalDateStream
+                .from(start)
+                .to(LocalDate.of(2016, 12, 31))
+                .recurring(RecurrenceRule.parse("FREQ=MONTHLY;BYMONTH=3,6,9,12;BYDAY=MO,TU,WE,TH,FR;BYSETPOS=-1"))
+                .stream())
+                .containsExactly(
+                        LocalDate.of(2016, 3, 31),
+                        LocalDate.of(2016, 6, 30),
+                        LocalDate.of(2016, 9, 30),
+                        LocalDate.of(2016, 12, 30));
+    }
+
+    @Test
+    public void missingPartsComeFromTheStart() {
+        assertThat(LocalDateStream
+                .from(LocalDate.of(2016, 1, 31))
+                .recurring(RecurrenceRule.parse("FREQ=MONTHLY;COUNT=4"))
+                .stream())
+                .containsExactly(
+                        LocalDate.of(2016, 1, 31),
+                        LocalDate.of(2016, 3, 31),
+                        LocalDate.of(2016, 5, 31),
+                        LocalDate.of(2016, 7, 31));
+    }
+
+    @Test
+    public void countBoundsAnOpenStream() {
+        final LocalDateStream stream = LocalDateStream
+                .from(start)
+                .recurring(RecurrenceRule.parse("FREQ=YEARLY;BYMONTH=2;BYMONTHDAY=29;COUNT=3"));
+        assertThat(stream.size()).hasValue(3L);
+        assertThat(stream.toArray()).containsExactly(
+                LocalDate.of(2016, 2, 29),
+                LocalDate.of(2020, 2, 29),
+                LocalDate.of(2024, 2, 29));
+    }
+
+    @Test
+    public void ruleThatNeverMatchesEnds() {
+        assertThat(LocalDateStream
+                .from(start)
+                .recurring(RecurrenceRule.parse("FREQ=YEARLY;BYMONTH=2;BYMONTHDAY=30"))
+                .stream()
+                .count())
+                .isEqualTo(0L);
+    }
+
+    @Test
+    public void backwardFromTheStart() {
+        assertThat(LocalDateStream
+                .from(start)
+                .to(LocalDate.of(2015, 10, 1))
+                .recurring(RecurrenceRule.parse("FREQ=MONTHLY;BYMONTHDAY=-1"))
+                .stream())
+                .containsExactly(
+                        LocalDate.of(2015, 12, 31),
+                        LocalDate.of(2015, 11, 30),
+                        LocalDate.of(2015, 10, 31));
+    }
+
+    @Test
+    public void timesOfDayInZone() {
+        assertThat(ZonedDateTimeStream
+                .from(ZonedDateTime.of(2016, 3, 1, 0, 0, 0, 0, newYork))
+                .recurring(RecurrenceRule.parse("FREQ=MONTHLY;BYDAY=2TU;BYHOUR=9,17;BYMINUTE=30;COUNT=4"))
+                .stream())
+                .containsExactly(
+                        ZonedDateTime.of(2016, 3, 8, 9, 30, 0, 0, newYork),
+                        ZonedDateTime.of(2016, 3, 8, 17, 30, 0, 0, newYork),
+                        ZonedDateTime.of(2016, 4, 12, 9, 30, 0, 0, newYork),
+                        ZonedDateTime.of(2016, 4, 12, 17, 30, 0, 0, newYork));
+    }
+
+    @Test
+    public void timeInGapIsMovedOnce() {
+        assertThat(ZonedDateTimeStream
+                .from(ZonedDateTime.of(2016, 3, 13, 0, 0, 0, 0, newYork))
+                .to(ZonedDateTime.of(2016, 3, 13, 12, 0, 0, 0, newYork))
+                .recurring(RecurrenceRule.parse("FREQ=DAILY;BYHOUR=1,2,3;BYMINUTE=30"))
+                .stream())
+                .containsExactly(
+                        ZonedDateTime.of(2016, 3, 13, 1, 30, 0, 0, newYork),
+                        ZonedDateTime.of(2016, 3, 13, 3, 30, 0, 0, newYork));
+    }
+
+    @Test
+    public void untilInUtc() {
+        assertThat(ZonedDateTimeStream
+                .from(ZonedDateTime.of(2016, 1, 1, 9, 0, 0, 0, newYork))
+                .recurring(RecurrenceRule.parse("FREQ=WEEKLY;BYDAY=MO,FR;UNTIL=20160111T140000Z"))
+                .stream())
+                .containsExactly(
+                        ZonedDateTime.of(2016, 1, 1, 9, 0, 0, 0, newYork),
+                        ZonedDateTime.of(2016, 1, 4, 9, 0, 0, 0, newYork),
+                        ZonedDateTime.of(2016, 1, 8, 9, 0, 0, 0, newYork),
+                        ZonedDateTime.of(2016, 1, 11, 9, 0, 0, 0, newYork));
+    }
+
+    @Test
+    public void parallelSplitsByPeriod() {
+        final LocalDateStream stream = LocalDateStream
+                .from(start)
+                .until(LocalDate.of(2116, 1, 1))
+                .recurring(RecurrenceRule.parse("FREQ=YEARLY;BYDAY=-1FR,1MO"));
+        final List<LocalDate> expected = LocalDateStream
+                .from(start)
+                .until(LocalDate.of(2116, 1, 1))
+                .stream()
+                .filter(date -> date.equals(date.with(TemporalAdjusters.lastInMonth(DayOfWeek.FRIDAY)))
+                        && date.getMonthValue() == 12
+                        || date.equals(date.with(TemporalAdjusters.firstInMonth(DayOfWeek.MONDAY)))
+                        && date.getMonthValue() == 1)
+                .collect(Collectors.toList());
+        assertThat(stream.size()).hasValue(200L);
+        assertThat(stream.parallelStream().collect(Collectors.toList())).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ginsberg.timestream;
+
+import com.ginsberg.timestream.util.ManualClock;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplayTest {
+
+    private final LocalDateTime start = LocalDateTime.of(2016, 1, 1, 0, 0);
+    private final ManualClock clock = new ManualClock(start.toInstant(ZoneOffset.UTC));
+    private final TickScheduler scheduler = TickScheduler.manual(clock, Duration.ofMillis(1));
+    private final List<LocalDateTime> released = new ArrayList<>();
+
+    private Replay<LocalDateTime> minutes(final int count,
+                                          final double speed,
+                                          final Duration batch) {
+        return Replay.of(
+                LocalDateTimeStream.from(start).until(count, ChronoUnit.MINUTES).every(1, ChronoUnit.MINUTES).build(),
+                time -> time.toInstant(ZoneOffset.UTC),
+                speed,
+                batch,
+                scheduler,
+                released::add);
+    }
+
+    @Test
+    public void elementsAreReleasedAtScaledTimes() {
+        final Replay<LocalDateTime> replay = minutes(10, 60, Duration.ofMillis(100));
+        replay.start();
+        scheduler.runDue();
+        assertThat(released).containsExactly(start);
+        clock.advance(Duration.ofMillis(999));
+        scheduler.runDue();
+        assertThat(released).hasSize(1);
+        clock.advance(Duration.ofMillis(1));
+        scheduler.runDue();
+        assertThat(released).containsExactly(start, start.plusMinutes(1));
+        clock.advance(Duration.ofMillis(3500));
+        scheduler.runDue();
+        assertThat(replay.getReleased()).isEqualTo(5L);
+        assertThat(replay.getLag()).isEqualTo(Duration.ofMillis(2500));
+    }
+
+    @Test
+    public void backwardPlansAreReplayedAtTheSamePace() {
+        final LocalDateTime end = start.plusMinutes(9);
+        final Replay<LocalDateTime> replay = Replay.of(
+                LocalDateTimeStream.from(end).to(start).every(1, ChronoUnit.MINUTES).build(),
+                time -> time.toInstant(ZoneOffset.UTC),
+                60,
+                Duration.ofMillis(100),
+                scheduler,
+                released::add);
+        replay.start();
+        scheduler.runDue();
+        assertThat(released).containsExactly(end);
+        clock.advance(Duration.ofMillis(8999));
+        scheduler.runDue();
+        assertThat(released).hasSize(9);
+        assertThat(replay.isFinished()).isFalse();
+        clock.advance(Duration.ofMillis(100));
+        scheduler.runDue();
+        assertThat(released).hasSize(10).endsWith(start);
+        assertThat(replay.isFinished()).isTrue();
+    }
+
+    @Test
+    public void wakeupsAreBatched() {
+        final Replay<LocalDateTime> replay = minutes(1000, 60_000, Duration.ofMillis(50));
+        replay.start();
+        scheduler.runDue();
+        clock.advance(Duration.ofMillis(50));
+        assertThat(scheduler.runDue()).isEqualTo(1);
+        assertThat(replay.getReleased()).isEqualTo(51L);
+        clock.advance(Duration.ofMillis(25));
+        assertThat(scheduler.runDue()).isEqualTo(0);
+    }
+
+    @Test
+    public void pauseLeavesOutTheTimeSpentPaused() {
+        final Replay<LocalDateTime> replay = minutes(10, 60, Duration.ofMillis(100));
+        replay.start();
+        scheduler.runDue();
+        replay.pause();
+        clock.advance(Duration.ofSeconds(30));
+        scheduler.runDue();
+        assertThat(released).containsExactly(start);
+        assertThat(replay.isPaused()).isTrue();
+        replay.resume();
+        scheduler.runDue();
+        assertThat(released).containsExactly(start);
+        clock.advance(Duration.ofSeconds(1));
+        scheduler.runDue();
+        assertThat(released).containsExactly(start, start.plusMinutes(1));
+    }
+
+    @Test
+    public void replayFinishesAfterTheLastElement() {
+        final Replay<LocalDateTime> replay = minutes(3, 600, Duration.ofMillis(10));
+        replay.start();
+        clock.advance(Duration.ofSeconds(1));
+        scheduler.runDue();
+        assertThat(released).containsExactly(start, start.plusMinutes(1), start.plusMinutes(2));
+        assertThat(replay.isFinished()).isTrue();
+        assertThat(replay.getFailure()).isNull();
+    }
+
+    @Test
+    public void consumerThatThrowsFailsTheReplay() {
+        final IllegalStateException boom = new IllegalStateException("boom");
+        final Replay<LocalDateTime> replay = Replay.of(
+                LocalDateTimeStream.from(start).until(10, ChronoUnit.MINUTES).every(1, ChronoUnit.MINUTES).build(),
+                time -> time.toInstant(ZoneOffset.UTC),
+                60,
+                Duration.ofMillis(100),
+                scheduler,
+                time -> {
+                    if (time.equals(start.plusMinutes(1))) {
+                        throw boom;
+                    }
+                    released.add(time);
+                });
+        replay.start();
+        clock.advance(Duration.ofSeconds(5));
+        scheduler.runDue();
+        assertThat(released).containsExactly(start);
+        assertThat(replay.isFinished()).isTrue();
+        assertThat(replay.getFailure()).isSameAs(boom);
+        assertThat(replay.getReleased()).isEqualTo(1L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void speedMustBePositive() {
+        minutes(10, 0, Duration.ofMillis(100));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void replayStartsOnce() {
+        final Replay<LocalDateTime> replay = minutes(10, 60, Duration.ofMillis(100));
+        replay.start();
+        replay.start();
+    }
+}
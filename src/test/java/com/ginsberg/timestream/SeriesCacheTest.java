@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ginsberg.timestream;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SeriesCacheTest {
+
+    private final ZonedDateTime start = ZonedDateTime.of(LocalDateTime.of(2016, 3, 12, 0, 0), ZoneId.of("America/New_York"));
+
+    private ZonedDateTimeStream days(final ZonedDateTime from) {
+        return ZonedDateTimeStream
+                .from(from)
+                .until(10, ChronoUnit.DAYS)
+                .every(1, ChronoUnit.DAYS);
+    }
+
+    @Test
+    public void seriesMatchesStream() {
+        final CachedSeries<ZonedDateTime> series = new SeriesCache(10, 1_000_000).get(days(start));
+        assertThat(series.size()).isEqualTo(10);
+        assertThat(series.stream()).containsExactlyElementsOf(days(start).stream().collect(Collectors.toList()));
+        assertThat(series.longStream()).containsExactlyElementsOf(days(start).epochSecondStream().boxed().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void sameSeriesIsFoundAgain() {
+        final SeriesCache cache = new SeriesCache(10, 1_000_000);
+        final CachedSeries<ZonedDateTime> series = cache.get(days(start));
+        assertThat(cache.get(days(start))).isSameAs(series);
+        assertThat(cache.getHitCount()).isEqualTo(1L);
+        assertThat(cache.getMissCount()).isEqualTo(1L);
+        assertThat(cache.getEntryCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void zoneIsPartOfTheKey() {
+        final SeriesCache cache = new SeriesCache(10, 1_000_000);
+        cache.get(days(start));
+        cache.get(days(start.withZoneSameLocal(ZoneId.of("Europe/London"))));
+        assertThat(cache.getHitCount()).isEqualTo(0L);
+        assertThat(cache.getEntryCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void leastRecentlyUsedSeriesIsEvicted() {
+        final SeriesCache cache = new SeriesCache(2, 1_000_000);
+        cache.get(days(start));
+        cache.get(days(start.plusDays(1)));
+        cache.get(days(start));
+        cache.get(days(start.plusDays(2)));
+        assertThat(cache.getEvictionCount()).isEqualTo(1L);
+
+        cache.get(days(start));
+        assertThat(cache.getHitCount()).isEqualTo(2L);
+        cache.get(days(start.plusDays(1)));
+        assertThat(cache.getMissCount()).isEqualTo(4L);
+    }
+
+    @Test
+    public void memoryLimitEvictsSeries() {
+        final SeriesCache cache = new SeriesCache(10, 200);
+        cache.get(days(start));
+        cache.get(days(start.plusDays(1)));
+        assertThat(cache.getEntryCount()).isEqualTo(1);
+        assertThat(cache.getByteCount()).isLessThanOrEqualTo(200L);
+    }
+
+    @Test
+    public void seriesOverMemoryLimitIsNotKept() {
+        final SeriesCache cache = new SeriesCache(10, 100);
+        assertThat(cache.get(days(start)).size()).isEqualTo(10);
+        assertThat(cache.getEntryCount()).isEqualTo(0);
+        assertThat(cache.getByteCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void fromNowIsAnchoredToStartOfDay() {
+        final SeriesCache cache = new SeriesCache(10, 1_000_000);
+        final CachedSeries<ZonedDateTime> hours = cache.get(ZonedDateTimeStream
+                .fromNow()
+                .until(1, ChronoUnit.DAYS)
+                .every(1, ChronoUnit.HOURS));
+        assertThat(hours.get(0)).isEqualTo(hours.get(0).toLocalDate().atStartOfDay(hours.get(0).getZone()));
+        assertThat(hours.get(hours.size() - 1).toLocalDate()).isEqualTo(hours.get(0).toLocalDate());
+    }
+
+    @Test
+    public void datesFromNowAreToday() {
+        final CachedSeries<LocalDate> days = new SeriesCache(10, 1_000_000).get(LocalDateStream
+                .fromNow()
+                .to(-89, ChronoUnit.DAYS));
+        assertThat(days.size()).isEqualTo(90);
+        assertThat(days.get(0)).isEqualTo(LocalDate.now());
+        assertThat(days.getLong(89)).isEqualTo(LocalDate.now().minusDays(89).toEpochDay());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void seriesMustBeBounded() {
+        new SeriesCache(10, 1_000_000).get(LocalDateStream.fromNow());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mustHavePositiveEntryLimit() {
+        new SeriesCache(0, 1_000_000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mustHavePositiveByteLimit() {
+        new SeriesCache(10, 0);
+    }
+}
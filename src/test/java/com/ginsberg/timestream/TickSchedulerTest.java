@@ -0,0 +1,184 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ginsberg.timestream;
+
+import com.ginsberg.timestream.util.ManualClock;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TickSchedulerTest {
+
+    private final ZonedDateTime start = ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private final ManualClock clock = new ManualClock(start.toInstant());
+    private final TickScheduler scheduler = TickScheduler.manual(clock, Duration.ofMillis(10));
+    private final List<ZonedDateTime> released = new ArrayList<>();
+    private final List<Throwable> errors = new ArrayList<>();
+    private final AtomicInteger completed = new AtomicInteger();
+
+    private PacedEmitter<ZonedDateTime> seconds(final int count) {
+        return new PacedEmitter<>(
+                ZonedDateTimeStream.from(start).until(count, ChronoUnit.SECONDS).every(1, ChronoUnit.SECONDS).build().stream().spliterator(),
+                ZonedDateTime::toInstant,
+                scheduler,
+                released::add,
+                errors::add,
+                completed::incrementAndGet);
+    }
+
+    @Test
+    public void tasksRunWhenClockReachesThem() {
+        final AtomicInteger run = new AtomicInteger();
+        scheduler.schedule(start.plus(25, ChronoUnit.MILLIS).toInstant(), run::incrementAndGet);
+        clock.advance(Duration.ofMillis(20));
+        assertThat(scheduler.runDue()).isEqualTo(0);
+        clock.advance(Duration.ofMillis(10));
+        assertThat(scheduler.runDue()).isEqualTo(1);
+        assertThat(run.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void tasksAlreadyReachedWithinATickRunInTheSameCall() {
+        final AtomicInteger run = new AtomicInteger();
+        clock.advance(Duration.ofMillis(15));
+        scheduler.runDue();
+        scheduler.schedule(start.plus(12, ChronoUnit.MILLIS).toInstant(),
+                () -> scheduler.schedule(clock.instant(), run::incrementAndGet));
+        assertThat(scheduler.runDue()).isEqualTo(2);
+        assertThat(run.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void tasksMoreThanATurnAwayWaitForTheirTime() {
+        final AtomicInteger run = new AtomicInteger();
+        scheduler.schedule(start.plusHours(1).toInstant(), run::incrementAndGet);
+        clock.advance(Duration.ofMinutes(59));
+        assertThat(scheduler.runDue()).isEqualTo(0);
+        clock.advance(Duration.ofMinutes(1));
+        assertThat(scheduler.runDue()).isEqualTo(1);
+    }
+
+    @Test
+    public void clockInAnotherZoneDecidesTheSameInstants() {
+        final AtomicInteger run = new AtomicInteger();
+        final TickScheduler chicago = TickScheduler.manual(clock.withZone(ZoneId.of("America/Chicago")), Duration.ofMillis(10));
+        chicago.schedule(start.plusSeconds(1).toInstant(), run::incrementAndGet);
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(chicago.runDue()).isEqualTo(1);
+        assertThat(chicago.getClock().getZone()).isEqualTo(ZoneId.of("America/Chicago"));
+    }
+
+    @Test
+    public void cancelledTasksDontRun() {
+        final AtomicInteger run = new AtomicInteger();
+        scheduler.schedule(start.plusSeconds(1).toInstant(), run::incrementAndGet).cancel();
+        clock.advance(Duration.ofSeconds(1));
+        scheduler.runDue();
+        assertThat(run.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void elementsAreReleasedAsTheClockReachesThem() {
+        seconds(3).request(Long.MAX_VALUE);
+        scheduler.runDue();
+        assertThat(released).containsExactly(start);
+        clock.advance(Duration.ofMillis(1500));
+        scheduler.runDue();
+        assertThat(released).containsExactly(start, start.plusSeconds(1));
+        clock.advance(Duration.ofMillis(500));
+        scheduler.runDue();
+        assertThat(released).containsExactly(start, start.plusSeconds(1), start.plusSeconds(2));
+        assertThat(completed.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void requestingExactlyEveryElementCompletes() {
+        seconds(3).request(3);
+        scheduler.runDue();
+        clock.advance(Duration.ofSeconds(2));
+        scheduler.runDue();
+        assertThat(released).containsExactly(start, start.plusSeconds(1), start.plusSeconds(2));
+        assertThat(completed.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void elementsWaitUntilTheyAreRequested() {
+        final PacedEmitter<ZonedDateTime> emitter = seconds(5);
+        emitter.request(2);
+        clock.advance(Duration.ofSeconds(10));
+        scheduler.runDue();
+        assertThat(released).containsExactly(start, start.plusSeconds(1));
+        emitter.request(2);
+        scheduler.runDue();
+        assertThat(released).containsExactly(start, start.plusSeconds(1), start.plusSeconds(2), start.plusSeconds(3));
+        assertThat(completed.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void cancelledEmitterStops() {
+        final PacedEmitter<ZonedDateTime> emitter = seconds(5);
+        emitter.request(5);
+        scheduler.runDue();
+        emitter.cancel();
+        clock.advance(Duration.ofSeconds(10));
+        scheduler.runDue();
+        assertThat(released).containsExactly(start);
+        assertThat(completed.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void requestMustBePositive() {
+        seconds(5).request(0);
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void startedSchedulerRunsOnItsOwnThreads() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(2);
+        try (TickScheduler running = TickScheduler.start(Clock.systemUTC(), Duration.ofMillis(1), 2)) {
+            running.schedule(Instant.now().plusMillis(20), latch::countDown);
+            running.schedule(Instant.now().minusMillis(20), latch::countDown);
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void resolutionMustBeAtLeastAMillisecond() {
+        TickScheduler.manual(clock, Duration.ofNanos(1));
+    }
+}
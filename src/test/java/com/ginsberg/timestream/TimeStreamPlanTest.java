@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ginsberg.timestream;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimeStreamPlanTest {
+
+    private final ZonedDateTime start = ZonedDateTime.of(LocalDateTime.of(2016, 3, 12, 0, 0), ZoneId.of("America/New_York"));
+
+    private ZonedDateTimeStream days() {
+        return ZonedDateTimeStream
+                .from(start)
+                .until(10, ChronoUnit.DAYS)
+                .every(1, ChronoUnit.DAYS);
+    }
+
+    @Test
+    public void planMatchesBuilder() {
+        final TimeStreamPlan<ZonedDateTime> plan = days().build();
+        assertThat(plan.size()).isEqualTo(OptionalLong.of(10));
+        assertThat(plan.isForward()).isTrue();
+        assertThat(plan.stream()).containsExactlyElementsOf(days().stream().collect(Collectors.toList()));
+        assertThat(plan.parallelStream()).containsExactlyElementsOf(days().stream().collect(Collectors.toList()));
+        assertThat(plan.get(9)).isEqualTo(start.plusDays(9));
+    }
+
+    @Test
+    public void changesToBuilderDontChangePlan() {
+        final LocalDateStream builder = LocalDateStream.from(LocalDate.of(2016, 1, 1)).to(LocalDate.of(2016, 1, 5));
+        final TimeStreamPlan<LocalDate> plan = builder.build();
+        builder.every(2, ChronoUnit.DAYS).to(LocalDate.of(2017, 1, 1));
+        assertThat(plan.size()).isEqualTo(OptionalLong.of(5));
+        assertThat(plan.stream()).containsExactly(
+                LocalDate.of(2016, 1, 1),
+                LocalDate.of(2016, 1, 2),
+                LocalDate.of(2016, 1, 3),
+                LocalDate.of(2016, 1, 4),
+                LocalDate.of(2016, 1, 5));
+    }
+
+    @Test
+    public void planCanBeStreamedAgain() {
+        final TimeStreamPlan<LocalDate> plan = LocalDateStream
+                .from(LocalDate.of(2016, 1, 1))
+                .recurring(RecurrenceRule.parse("FREQ=MONTHLY;BYDAY=2TU;COUNT=3"))
+                .build();
+        assertThat(plan.size()).isEqualTo(OptionalLong.of(3));
+        assertThat(plan.stream()).containsExactly(
+                LocalDate.of(2016, 1, 12),
+                LocalDate.of(2016, 2, 9),
+                LocalDate.of(2016, 3, 8));
+        assertThat(plan.stream().count()).isEqualTo(3);
+    }
+
+    @Test
+    public void planIsSharedBetweenThreads() {
+        final TimeStreamPlan<ZonedDateTime> plan = days().build();
+        final List<ZonedDateTime> expected = days().stream().collect(Collectors.toList());
+        assertThat(IntStream.range(0, 64)
+                .parallel()
+                .mapToObj(i -> plan.stream().collect(Collectors.toList()))
+                .collect(Collectors.toSet()))
+                .containsExactly(expected);
+    }
+
+    @Test
+    public void unboundedPlan() {
+        final TimeStreamPlan<LocalDate> plan = LocalDateStream.from(LocalDate.of(2016, 1, 1)).every(1, ChronoUnit.MONTHS).build();
+        assertThat(plan.size()).isEqualTo(OptionalLong.empty());
+        assertThat(plan.stream().limit(2)).containsExactly(LocalDate.of(2016, 1, 1), LocalDate.of(2016, 2, 1));
+        assertThat(plan.get(12)).isEqualTo(LocalDate.of(2017, 1, 1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getPastTheEnd() {
+        days().build().get(10);
+    }
+}
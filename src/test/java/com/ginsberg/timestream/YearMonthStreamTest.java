@@ -29,8 +29,13 @@ import org.junit.Test;
 
 import java.time.Period;
 import java.time.YearMonth;
+import java.time.temporal.ChronoField;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static com.ginsberg.timestream.util.Assertions.expectingChronoUnitException;
@@ -197,6 +202,59 @@ public class YearMonthStreamTest {
                 .containsExactly(now, now.plusMonths(2));
     }
 
+    @Test
+    public void sequentialOrParallelStreamsMatch() {
+        final YearMonthStream builder = YearMonthStream
+                .from(now)
+                .until(-100, ChronoUnit.YEARS);
+        assertThat(builder.stream(true).collect(Collectors.toList()))
+                .isEqualTo(builder.stream(false).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void prolepticMonthStreamMatchesElements() {
+        final YearMonthStream builder = YearMonthStream
+                .from(now)
+                .until(-30, ChronoUnit.YEARS)
+                .every(5, ChronoUnit.MONTHS);
+        assertThat(builder.prolepticMonthStream().toArray())
+                .isEqualTo(builder.stream().mapToLong(ym -> ym.getLong(ChronoField.PROLEPTIC_MONTH)).toArray());
+    }
+
+    @Test
+    public void prolepticMonthIntStreamByYears() {
+        final IntStream stream = YearMonthStream
+                .from(YearMonth.of(2016, 4))
+                .to(2, ChronoUnit.YEARS)
+                .every(1, ChronoUnit.YEARS)
+                .prolepticMonthIntStream();
+        assertThat(stream).containsExactly(2016 * 12 + 3, 2017 * 12 + 3, 2018 * 12 + 3);
+    }
+
+    @Test
+    public void packedYearMonthStream() {
+        final IntStream stream = YearMonthStream
+                .from(YearMonth.of(2016, 11))
+                .to(YearMonth.of(2017, 2))
+                .packedYearMonthStream();
+        assertThat(stream).containsExactly(201611, 201612, 201701, 201702);
+    }
+
+    @Test
+    public void cursorMatchesStream() {
+        final YearMonthStream builder = YearMonthStream
+                .from(YearMonth.of(2016, 11))
+                .until(YearMonth.of(2010, 1))
+                .every(5, ChronoUnit.MONTHS);
+        final TimeCursor<YearMonth> cursor = builder.cursor();
+        final List<YearMonth> months = new ArrayList<>();
+        while (cursor.advance()) {
+            assertThat(cursor.day()).isEqualTo(1);
+            months.add(cursor.get());
+        }
+        assertThat(months).containsExactlyElementsOf(builder.stream().collect(Collectors.toList()));
+    }
+
     @Test(expected = NullPointerException.class)
     public void mustHaveFromDate() {
         YearMonthStream.from(null);
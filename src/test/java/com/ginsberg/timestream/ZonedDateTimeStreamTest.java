@@ -27,8 +27,18 @@ package com.ginsberg.timestream;
 import org.junit.Test;
 
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -190,11 +200,362 @@ public class ZonedDateTimeStreamTest {
                 .containsExactly(now, now.plusSeconds(2));
     }
 
+    @Test
+    public void parallelStreamIsParallel() {
+        final Stream<ZonedDateTime> stream = ZonedDateTimeStream
+                .from(now)
+                .to(1, ChronoUnit.HOURS)
+                .parallelStream();
+        assertThat(stream.isParallel()).isTrue();
+    }
+
+    @Test
+    public void parallelStreamRunsInGivenPool() {
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            final Set<ForkJoinPool> pools = ZonedDateTimeStream
+                    .from(now)
+                    .to(1, ChronoUnit.DAYS)
+                    .parallelStream(pool, s -> s
+                            .map(z -> ((ForkJoinWorkerThread) Thread.currentThread()).getPool())
+                            .collect(Collectors.toSet()));
+            assertThat(pools).containsExactly(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void getCalculatesElementAtIndex() {
+        final ZonedDateTimeStream builder = ZonedDateTimeStream
+                .from(now)
+                .to(-1, ChronoUnit.DAYS)
+                .every(1, ChronoUnit.MINUTES);
+        assertThat(builder.get(0)).isEqualTo(now);
+        assertThat(builder.get(1_000)).isEqualTo(now.minusMinutes(1_000));
+        assertThat(builder.get(1_440)).isEqualTo(now.minusDays(1));
+    }
+
+    @Test
+    public void getOnInfiniteStream() {
+        assertThat(ZonedDateTimeStream.from(now).get(1_250_000)).isEqualTo(now.plusSeconds(1_250_000));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getPastEndOfStreamFails() {
+        ZonedDateTimeStream.from(now).until(10, ChronoUnit.SECONDS).get(10);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getMustHaveNonNegativeIndex() {
+        ZonedDateTimeStream.from(now).get(-1);
+    }
+
+    @Test
+    public void streamFromSkipsToIndex() {
+        final Stream<ZonedDateTime> stream = ZonedDateTimeStream
+                .from(now)
+                .to(1_250_002, ChronoUnit.SECONDS)
+                .streamFrom(1_250_000);
+        assertThat(stream)
+                .containsExactly(now.plusSeconds(1_250_000), now.plusSeconds(1_250_001), now.plusSeconds(1_250_002));
+    }
+
+    @Test
+    public void streamFromPastEndIsEmpty() {
+        final Stream<ZonedDateTime> stream = ZonedDateTimeStream
+                .from(now)
+                .to(2, ChronoUnit.SECONDS)
+                .streamFrom(3);
+        assertThat(stream).isEmpty();
+    }
+
+    @Test
+    public void epochMilliStreamMatchesElements() {
+        final ZonedDateTimeStream builder = ZonedDateTimeStream
+                .from(now)
+                .until(-10, ChronoUnit.MINUTES)
+                .every(250, ChronoUnit.MILLIS);
+        assertThat(builder.epochMilliStream().toArray())
+                .isEqualTo(builder.stream().mapToLong(z -> z.toInstant().toEpochMilli()).toArray());
+    }
+
+    @Test
+    public void epochSecondStreamMatchesElements() {
+        final ZonedDateTimeStream builder = ZonedDateTimeStream
+                .from(now)
+                .to(2, ChronoUnit.HOURS)
+                .every(7, ChronoUnit.MINUTES);
+        assertThat(builder.epochSecondStream().toArray())
+                .isEqualTo(builder.stream().mapToLong(ZonedDateTime::toEpochSecond).toArray());
+    }
+
+    @Test
+    public void epochNanoStreamMatchesElements() {
+        final ZonedDateTimeStream builder = ZonedDateTimeStream
+                .from(now)
+                .to(1, ChronoUnit.MILLIS)
+                .every(333, ChronoUnit.NANOS);
+        assertThat(builder.epochNanoStream())
+                .containsExactlyElementsOf(builder.stream()
+                        .map(z -> z.toEpochSecond() * 1_000_000_000L + z.getNano())
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void epochMilliStreamAcrossDaylightSavingTime() {
+        final ZonedDateTime start = ZonedDateTime.of(LocalDateTime.of(2016, 3, 12, 12, 0), ZoneId.of("America/New_York"));
+        final long millisPerHour = Duration.ofHours(1).toMillis();
+        final long[] millis = ZonedDateTimeStream
+                .from(start)
+                .to(2, ChronoUnit.DAYS)
+                .every(1, ChronoUnit.DAYS)
+                .epochMilliStream()
+                .toArray();
+        assertThat(millis).hasSize(3);
+        assertThat(millis[1] - millis[0]).isEqualTo(23 * millisPerHour);
+        assertThat(millis[2] - millis[1]).isEqualTo(24 * millisPerHour);
+    }
+
+    @Test
+    public void epochMilliStreamThroughGapKeepsLocalTime() {
+        // 02:30 does not exist on 2016-03-13 in New York, so that element moves forward an hour.
+        final ZonedDateTimeStream builder = ZonedDateTimeStream
+                .from(ZonedDateTime.of(LocalDateTime.of(2016, 3, 11, 2, 30), ZoneId.of("America/New_York")))
+                .to(4, ChronoUnit.DAYS)
+                .every(1, ChronoUnit.DAYS);
+        assertThat(builder.epochMilliStream())
+                .containsExactlyElementsOf(builder.stream()
+                        .map(z -> z.toInstant().toEpochMilli())
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void epochSecondStreamThroughOverlapBackward() {
+        final ZonedDateTimeStream builder = ZonedDateTimeStream
+                .from(ZonedDateTime.of(LocalDateTime.of(2016, 11, 8, 1, 30), ZoneId.of("America/New_York")))
+                .until(ZonedDateTime.of(LocalDateTime.of(2016, 10, 1, 1, 30), ZoneId.of("America/New_York")))
+                .every(1, ChronoUnit.DAYS);
+        assertThat(builder.epochSecondStream())
+                .containsExactlyElementsOf(builder.stream()
+                        .map(ZonedDateTime::toEpochSecond)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void epochSecondStreamByMonthsAcrossYears() {
+        final ZonedDateTimeStream builder = ZonedDateTimeStream
+                .from(ZonedDateTime.of(LocalDateTime.of(2015, 1, 31, 2, 30), ZoneId.of("Europe/London")))
+                .to(5, ChronoUnit.YEARS)
+                .every(1, ChronoUnit.MONTHS);
+        assertThat(builder.epochSecondStream())
+                .containsExactlyElementsOf(builder.stream()
+                        .map(ZonedDateTime::toEpochSecond)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void offsetZoneElementsMatchIteration() {
+        final ZonedDateTime start = ZonedDateTime.of(LocalDateTime.of(2016, 3, 12, 12, 0), ZoneOffset.ofHours(-5));
+        assertThat(ZonedDateTimeStream
+                .from(start)
+                .to(3, ChronoUnit.DAYS)
+                .every(7, ChronoUnit.HOURS)
+                .stream())
+                .containsExactlyElementsOf(Stream.iterate(start, z -> z.plusHours(7))
+                        .limit(11)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void everyDurationKeepsMicroseconds() {
+        final Stream<ZonedDateTime> stream = ZonedDateTimeStream
+                .from(now)
+                .until(1, ChronoUnit.MILLIS)
+                .every(Duration.ofNanos(250_000))
+                .stream();
+        assertThat(stream)
+                .isNotNull()
+                .containsExactly(now, now.plusNanos(250_000), now.plusNanos(500_000), now.plusNanos(750_000));
+    }
+
+    @Test
+    public void cursorAcrossDaylightSavingTimeMatchesStream() {
+        final ZonedDateTimeStream builder = ZonedDateTimeStream
+                .from(ZonedDateTime.of(LocalDateTime.of(2016, 3, 11, 2, 30), ZoneId.of("America/New_York")))
+                .to(ZonedDateTime.of(LocalDateTime.of(2016, 11, 8, 1, 30), ZoneId.of("America/New_York")))
+                .every(1, ChronoUnit.DAYS);
+        final TimeCursor<ZonedDateTime> cursor = builder.cursor();
+        final List<ZonedDateTime> dates = new ArrayList<>();
+        while (cursor.advance()) {
+            dates.add(cursor.get());
+        }
+        assertThat(dates).containsExactlyElementsOf(builder.stream().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void epochMilliIntervalsArePackedPairs() {
+        final ZonedDateTime start = ZonedDateTime.of(LocalDateTime.of(2016, 3, 12, 0, 0), ZoneId.of("America/New_York"));
+        final long millisPerHour = Duration.ofHours(1).toMillis();
+        final long startMillis = start.toInstant().toEpochMilli();
+        assertThat(ZonedDateTimeStream
+                .from(start)
+                .until(start.plusHours(60))
+                .every(1, ChronoUnit.DAYS)
+                .epochMilliIntervalStream())
+                .containsExactly(
+                        startMillis, startMillis + 24 * millisPerHour,
+                        startMillis + 24 * millisPerHour, startMillis + 47 * millisPerHour,
+                        startMillis + 47 * millisPerHour, startMillis + 60 * millisPerHour);
+    }
+
+    @Test
+    public void epochMilliBatchesAcrossDaylightSavings() {
+        final ZonedDateTime start = ZonedDateTime.of(LocalDateTime.of(2016, 3, 12, 0, 0), ZoneId.of("America/New_York"));
+        final long millisPerHour = Duration.ofHours(1).toMillis();
+        final long startMillis = start.toInstant().toEpochMilli();
+        final List<long[]> batches = ZonedDateTimeStream
+                .from(start)
+                .to(start.plusDays(2))
+                .every(1, ChronoUnit.DAYS)
+                .epochMilliBatches(2)
+                .collect(Collectors.toList());
+        assertThat(batches.size()).isEqualTo(2);
+        assertThat(batches.get(0)).containsExactly(startMillis, startMillis + 24 * millisPerHour);
+        assertThat(batches.get(1)).containsExactly(startMillis + 47 * millisPerHour);
+    }
+
+    @Test
+    public void parallelEpochMilliBatchesMatchSequential() {
+        final ZonedDateTimeStream builder = ZonedDateTimeStream
+                .from(now)
+                .to(10_000, ChronoUnit.MINUTES)
+                .every(7, ChronoUnit.MINUTES);
+        final List<Long> values = builder.epochMilliBatches(64)
+                .parallel()
+                .flatMapToLong(LongStream::of)
+                .boxed()
+                .collect(Collectors.toList());
+        assertThat(values).containsExactlyElementsOf(builder.epochMilliStream().boxed().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void toEpochMilliArrayAcrossDaylightSavings() {
+        final ZonedDateTime start = ZonedDateTime.of(LocalDateTime.of(2016, 3, 12, 0, 0), ZoneId.of("America/New_York"));
+        final long millisPerHour = Duration.ofHours(1).toMillis();
+        final long startMillis = start.toInstant().toEpochMilli();
+        assertThat(ZonedDateTimeStream
+                .from(start)
+                .until(start.plusDays(3))
+                .every(1, ChronoUnit.DAYS)
+                .toEpochMilliArray())
+                .containsExactly(startMillis, startMillis + 24 * millisPerHour, startMillis + 47 * millisPerHour);
+    }
+
     @Test(expected = NullPointerException.class)
     public void mustHaveFromDate() {
         ZonedDateTimeStream.from(null);
     }
 
+    @Test
+    public void mergeInterleavesSchedules() {
+        final ZonedDateTime start = ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        assertThat(ZonedDateTimeStream.merge(
+                false,
+                ZonedDateTimeStream.from(start).until(start.plusHours(1)).every(20, ChronoUnit.MINUTES),
+                ZonedDateTimeStream.from(start.plusMinutes(10)).until(start.plusHours(1)).every(30, ChronoUnit.MINUTES)))
+                .containsExactly(
+                        start,
+                        start.plusMinutes(10),
+                        start.plusMinutes(20),
+                        start.plusMinutes(40),
+                        start.plusMinutes(40));
+    }
+
+    @Test
+    public void mergeDistinctDropsEqualInstantsInOtherZones() {
+        final ZonedDateTime start = ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        final ZonedDateTime tokyo = start.withZoneSameInstant(ZoneId.of("Asia/Tokyo"));
+        assertThat(ZonedDateTimeStream.merge(
+                true,
+                ZonedDateTimeStream.from(start).to(start.plusHours(2)).every(1, ChronoUnit.HOURS),
+                ZonedDateTimeStream.from(tokyo).to(tokyo.plusHours(2)).every(2, ChronoUnit.HOURS)))
+                .containsExactly(
+                        start,
+                        start.plusHours(1),
+                        start.plusHours(2));
+    }
+
+    @Test
+    public void mergeIsLazyOverUnboundedStreams() {
+        final ZonedDateTime start = ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        assertThat(ZonedDateTimeStream.merge(
+                true,
+                ZonedDateTimeStream.from(start).every(2, ChronoUnit.SECONDS),
+                ZonedDateTimeStream.from(start).every(3, ChronoUnit.SECONDS))
+                .limit(5))
+                .containsExactly(
+                        start,
+                        start.plusSeconds(2),
+                        start.plusSeconds(3),
+                        start.plusSeconds(4),
+                        start.plusSeconds(6));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeStreamsMustMoveTheSameWay() {
+        final ZonedDateTime start = ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        ZonedDateTimeStream.merge(
+                false,
+                ZonedDateTimeStream.from(start).to(start.plusHours(1)),
+                ZonedDateTimeStream.from(start).to(start.minusHours(1)));
+    }
+
+    @Test
+    public void intersectMatchesInstantsInOtherZones() {
+        final ZonedDateTime start = ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        final ZonedDateTime tokyo = start.withZoneSameInstant(ZoneId.of("Asia/Tokyo"));
+        assertThat(ZonedDateTimeStream.from(start).every(30, ChronoUnit.MINUTES)
+                .intersect(ZonedDateTimeStream.from(tokyo).to(tokyo.plusHours(6)).every(2, ChronoUnit.HOURS),
+                        ZonedDateTimeStream.from(start).to(start.plusHours(6)).every(3, ChronoUnit.HOURS)))
+                .containsExactly(
+                        start,
+                        start.plusHours(6));
+    }
+
+    @Test
+    public void exceptSkipsMaintenanceWindows() {
+        final ZonedDateTime start = ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        assertThat(ZonedDateTimeStream.from(start).every(1, ChronoUnit.HOURS)
+                .except(ZonedDateTimeStream.from(start.plusHours(1)).every(1, ChronoUnit.DAYS),
+                        ZonedDateTimeStream.from(start.plusHours(2)).every(1, ChronoUnit.DAYS))
+                .limit(4))
+                .containsExactly(
+                        start,
+                        start.plusHours(3),
+                        start.plusHours(4),
+                        start.plusHours(5));
+    }
+
+    @Test
+    public void unionProducesEachInstantOnce() {
+        final ZonedDateTime start = ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        assertThat(ZonedDateTimeStream.from(start).to(start.plusHours(4)).every(2, ChronoUnit.HOURS)
+                .union(ZonedDateTimeStream.from(start).to(start.plusHours(3)).every(3, ChronoUnit.HOURS)))
+                .containsExactly(
+                        start,
+                        start.plusHours(2),
+                        start.plusHours(3),
+                        start.plusHours(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setOperationStreamsMustMoveTheSameWay() {
+        final ZonedDateTime start = ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        ZonedDateTimeStream.from(start).to(start.plusHours(1))
+                .intersect(ZonedDateTimeStream.from(start).to(start.minusHours(1)));
+    }
+
     @Test(expected = NullPointerException.class)
     public void toByUnitsMustHaveUnit() {
         ZonedDateTimeStream.fromNow().to(1, null);
@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ginsberg.timestream;
+
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StepsTest {
+
+    private final LocalDate start = LocalDate.of(2016, 1, 31);
+
+    @Test
+    public void java9VersionIsLoadedFromTheJar() throws IOException {
+        assertThat(majorVersion(Steps.class)).isGreaterThanOrEqualTo(53);
+    }
+
+    @Test
+    public void steppedSeriesStopAtTheFirstElementThatCantBeTaken() {
+        assertThat(LocalDateStream.from(start).until(3, ChronoUnit.MONTHS).every(1, ChronoUnit.MONTHS).stream())
+                .containsExactly(start, LocalDate.of(2016, 2, 29), LocalDate.of(2016, 3, 29), LocalDate.of(2016, 4, 29));
+    }
+
+    @Test
+    public void firstElementIsOnlyProducedIfItCanBeTaken() {
+        final Spliterator<LocalDate> steps = Steps.of(start, date -> date.plusDays(1), date -> date.isBefore(start));
+        assertThat(StreamSupport.stream(steps, false).collect(Collectors.toList())).isEmpty();
+    }
+
+    private static int majorVersion(final Class<?> type) throws IOException {
+        try (InputStream in = type.getResourceAsStream(type.getSimpleName() + ".class")) {
+            final DataInputStream data = new DataInputStream(in);
+            data.readInt();
+            data.readUnsignedShort();
+            return data.readUnsignedShort();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Todd Ginsberg
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ginsberg.timestream;
+
+import com.ginsberg.timestream.util.ManualClock;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TickPublisherTest {
+
+    private final ZonedDateTime start = ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private final ManualClock clock = new ManualClock(start.toInstant());
+    private final TickScheduler scheduler = TickScheduler.manual(clock, Duration.ofMillis(10));
+
+    private TickPublisher<ZonedDateTime> seconds(final int count) {
+        return TickPublisher.of(
+                ZonedDateTimeStream.from(start).until(count, ChronoUnit.SECONDS).every(1, ChronoUnit.SECONDS).build(),
+                ZonedDateTime::toInstant,
+                scheduler);
+    }
+
+    @Test
+    public void onSubscribeIsSignalledBeforeAnythingElse() {
+        final Recorder recorder = new Recorder();
+        seconds(3).subscribe(recorder);
+        assertThat(recorder.events).containsExactly("subscribe");
+        scheduler.runDue();
+        assertThat(recorder.events).containsExactly("subscribe");
+    }
+
+    @Test
+    public void elementsArePublishedAsTheClockReachesThem() {
+        final Recorder recorder = new Recorder();
+        seconds(3).subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        scheduler.runDue();
+        assertThat(recorder.elements).containsExactly(start);
+        clock.advance(Duration.ofMillis(1500));
+        scheduler.runDue();
+        assertThat(recorder.elements).containsExactly(start, start.plusSeconds(1));
+        clock.advance(Duration.ofMillis(500));
+        scheduler.runDue();
+        assertThat(recorder.elements).containsExactly(start, start.plusSeconds(1), start.plusSeconds(2));
+        assertThat(recorder.events).endsWith("complete");
+    }
+
+    @Test
+    public void requestingExactlyEveryElementCompletes() {
+        final Recorder recorder = new Recorder();
+        seconds(3).subscribe(recorder);
+        recorder.subscription.request(3);
+        clock.advance(Duration.ofSeconds(2));
+        scheduler.runDue();
+        assertThat(recorder.events).containsExactly("subscribe", "next", "next", "next", "complete");
+    }
+
+    @Test
+    public void elementsWaitUntilTheyAreRequested() {
+        final Recorder recorder = new Recorder();
+        seconds(5).subscribe(recorder);
+        recorder.subscription.request(1);
+        clock.advance(Duration.ofSeconds(10));
+        scheduler.runDue();
+        assertThat(recorder.elements).containsExactly(start);
+        recorder.subscription.request(2);
+        scheduler.runDue();
+        assertThat(recorder.elements).containsExactly(start, start.plusSeconds(1), start.plusSeconds(2));
+        assertThat(recorder.events).doesNotContain("complete");
+    }
+
+    @Test
+    public void cancelStopsPublishing() {
+        final Recorder recorder = new Recorder();
+        seconds(5).subscribe(recorder);
+        recorder.subscription.request(5);
+        scheduler.runDue();
+        recorder.subscription.cancel();
+        clock.advance(Duration.ofSeconds(10));
+        scheduler.runDue();
+        assertThat(recorder.events).containsExactly("subscribe", "next");
+    }
+
+    @Test
+    public void nonPositiveRequestIsAnError() {
+        final Recorder recorder = new Recorder();
+        seconds(5).subscribe(recorder);
+        recorder.subscription.request(0);
+        assertThat(recorder.events).containsExactly("subscribe", "error");
+        assertThat(recorder.error).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void nonPositiveRequestDuringOnNextIsSignalledAfterIt() {
+        final Recorder recorder = new Recorder();
+        recorder.whileReceiving = () -> {
+            final Thread other = new Thread(() -> recorder.subscription.request(-1));
+            other.start();
+            try {
+                other.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        seconds(3).subscribe(recorder);
+        recorder.subscription.request(1);
+        scheduler.runDue();
+        assertThat(recorder.events).containsExactly("subscribe", "next", "error");
+        assertThat(recorder.error).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void everySubscriberGetsTheWholePlan() {
+        final TickPublisher<ZonedDateTime> publisher = seconds(2);
+        final Recorder first = new Recorder();
+        final Recorder second = new Recorder();
+        publisher.subscribe(first);
+        first.subscription.request(Long.MAX_VALUE);
+        clock.advance(Duration.ofSeconds(1));
+        scheduler.runDue();
+        publisher.subscribe(second);
+        second.subscription.request(Long.MAX_VALUE);
+        scheduler.runDue();
+        assertThat(first.elements).containsExactly(start, start.plusSeconds(1));
+        assertThat(second.elements).containsExactly(start, start.plusSeconds(1));
+        assertThat(second.events).endsWith("complete");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void subscriberMustNotBeNull() {
+        seconds(1).subscribe(null);
+    }
+
+    private static final class Recorder implements Flow.Subscriber<ZonedDateTime> {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private final List<ZonedDateTime> elements = new ArrayList<>();
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+        private Runnable whileReceiving;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+            events.add("subscribe");
+        }
+
+        @Override
+        public void onNext(final ZonedDateTime item) {
+            if (whileReceiving != null) {
+                whileReceiving.run();
+            }
+            elements.add(item);
+            events.add("next");
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            error = throwable;
+            events.add("error");
+        }
+
+        @Override
+        public void onComplete() {
+            events.add("complete");
+        }
+    }
+}